@@ -0,0 +1,21 @@
+package com.univalle.bubackend.DTOs;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de un listado por cursor: en lugar de número de página y total, trae el cursor
+ * opaco para pedir la siguiente. No se cuenta el total, así cada página cuesta lo mismo.
+ */
+public record CursorSlice<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext
+) {
+    public static <T> CursorSlice<T> of(List<T> rows, int size, Function<T, Integer> key) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? KeysetCursor.encode(key.apply(content.get(content.size() - 1))) : null;
+        return new CursorSlice<>(content, nextCursor, hasNext);
+    }
+}
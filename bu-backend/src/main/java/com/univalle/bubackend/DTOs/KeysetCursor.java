@@ -0,0 +1,39 @@
+package com.univalle.bubackend.DTOs;
+
+import com.univalle.bubackend.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de los listados por cursor: el id del último elemento entregado, en Base64.
+ */
+public final class KeysetCursor {
+
+    public static final int MAX_SIZE = 100;
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Integer id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Id a partir del cual continuar, o {@code null} si es la primera página.
+     */
+    public static Integer decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Cursor no válido");
+        }
+    }
+
+    public static int size(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+}
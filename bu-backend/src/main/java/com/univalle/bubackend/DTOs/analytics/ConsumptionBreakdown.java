@@ -0,0 +1,10 @@
+package com.univalle.bubackend.DTOs.analytics;
+
+/**
+ * Consumo de un rango de días agrupado por hora, plan o tipo de venta.
+ *
+ * @param key    hora (0-23), plan, o "true"/"false" para beneficiario
+ * @param noShow reservas no canceladas ni pagadas de días ya cerrados
+ */
+public record ConsumptionBreakdown(String key, Long reserved, Long cancelled, Long paid, Long noShow) {
+}
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.DTOs.analytics;
+
+public enum ConsumptionDimension {
+    HOUR,
+    PLAN,
+    BENEFICIARY
+}
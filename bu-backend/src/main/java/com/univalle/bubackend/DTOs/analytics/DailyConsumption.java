@@ -0,0 +1,9 @@
+package com.univalle.bubackend.DTOs.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * @param noShow reservas no canceladas ni pagadas de días ya cerrados (hoy aún no cuenta)
+ */
+public record DailyConsumption(LocalDate day, Long reserved, Long cancelled, Long paid, Long noShow) {
+}
@@ -18,4 +18,19 @@ public record AppointmentReservationProfessionalDTO(Integer reservationId, Strin
         );
     }
 
+    // El profesional es el mismo en todo el listado, por eso se recibe ya armado
+    public AppointmentReservationProfessionalDTO(ProfessionalAppointmentRow row, UserEntityDTO professional) {
+        this(
+                row.reservationId(),
+                row.patient(),
+                row.patientLastname(),
+                row.phone(),
+                new AvailableDateDTO(row.availableDateId(), row.dateTime(), row.professionalId(), row.professionalName(),
+                        row.available(), row.typeAppointment().name()),
+                professional,
+                row.assistant(),
+                row.pending()
+        );
+    }
+
 }
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.DTOs.appointment;
+
+public record AppointmentSlotsChanged(
+        String type,
+        String typeAppointment
+) {
+}
@@ -0,0 +1,22 @@
+package com.univalle.bubackend.DTOs.appointment;
+
+import com.univalle.bubackend.models.TypeAppointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columnas del listado de citas de un profesional, seleccionadas sin cargar las entidades.
+ */
+public record ProfessionalAppointmentRow(Integer reservationId,
+                                         String patient,
+                                         String patientLastname,
+                                         Long phone,
+                                         Integer availableDateId,
+                                         LocalDateTime dateTime,
+                                         Integer professionalId,
+                                         String professionalName,
+                                         Boolean available,
+                                         TypeAppointment typeAppointment,
+                                         Boolean assistant,
+                                         Boolean pending) {
+}
@@ -0,0 +1,19 @@
+package com.univalle.bubackend.DTOs.appointment.report;
+
+import com.univalle.bubackend.models.Gender;
+import com.univalle.bubackend.models.TypeAppointment;
+
+import java.time.LocalDateTime;
+
+public record AttendedAppointmentRow(LocalDateTime dateTime,
+                                     TypeAppointment typeAppointment,
+                                     Boolean assistant,
+                                     String name,
+                                     String lastName,
+                                     String email,
+                                     Long phone,
+                                     String plan,
+                                     String semester,
+                                     String eps,
+                                     Gender gender) {
+}
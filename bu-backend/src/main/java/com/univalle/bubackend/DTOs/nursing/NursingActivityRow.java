@@ -0,0 +1,18 @@
+package com.univalle.bubackend.DTOs.nursing;
+
+import com.univalle.bubackend.models.Diagnostic;
+import com.univalle.bubackend.models.Gender;
+
+import java.time.LocalDateTime;
+
+public record NursingActivityRow(LocalDateTime date,
+                                 String username,
+                                 String name,
+                                 String lastName,
+                                 Long phone,
+                                 String plan,
+                                 String semester,
+                                 Gender gender,
+                                 Diagnostic diagnostic,
+                                 String conduct) {
+}
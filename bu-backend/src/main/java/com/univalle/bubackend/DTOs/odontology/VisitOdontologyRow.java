@@ -0,0 +1,14 @@
+package com.univalle.bubackend.DTOs.odontology;
+
+import com.univalle.bubackend.models.OdontologyReason;
+
+import java.time.LocalDateTime;
+
+public record VisitOdontologyRow(LocalDateTime date,
+                                 String username,
+                                 String name,
+                                 String lastName,
+                                 String plan,
+                                 OdontologyReason reason,
+                                 String description) {
+}
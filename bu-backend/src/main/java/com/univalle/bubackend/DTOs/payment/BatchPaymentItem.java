@@ -0,0 +1,10 @@
+package com.univalle.bubackend.DTOs.payment;
+
+public record BatchPaymentItem(
+        String username,
+        Integer reservationId,
+        boolean paid,
+        String message
+) {
+
+}
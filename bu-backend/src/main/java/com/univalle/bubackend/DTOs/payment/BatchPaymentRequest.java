@@ -0,0 +1,10 @@
+package com.univalle.bubackend.DTOs.payment;
+
+import java.util.List;
+
+public record BatchPaymentRequest(
+        List<String> usernames,
+        List<Integer> reservationIds
+) {
+
+}
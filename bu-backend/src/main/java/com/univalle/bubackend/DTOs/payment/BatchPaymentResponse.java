@@ -0,0 +1,11 @@
+package com.univalle.bubackend.DTOs.payment;
+
+import java.util.List;
+
+public record BatchPaymentResponse(
+        String message,
+        int paidCount,
+        List<BatchPaymentItem> results
+) {
+
+}
@@ -0,0 +1,12 @@
+package com.univalle.bubackend.DTOs.report;
+
+// Integrante de un informe de beca (exportación y listado paginado), leído con una consulta nativa
+public interface ReportMemberRow {
+    String getUsername();
+    String getName();
+    String getLastName();
+    String getPlan();
+    String getEmail();
+    Integer getCount();
+    Boolean getBeneficiary();
+}
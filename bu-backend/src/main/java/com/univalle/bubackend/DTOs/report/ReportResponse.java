@@ -7,5 +7,10 @@ import java.util.List;
 
 @Builder
 public record ReportResponse(Integer id, LocalDate date, String semester, String beca, List<UserDTO> users) {
+
+    // Resumen sin usuarios, usado por los listados
+    public ReportResponse(Integer id, LocalDate date, String semester, String beca) {
+        this(id, date, semester, beca, null);
+    }
 }
 
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.DTOs.report;
+
+import java.time.LocalDate;
+
+// Resumen de un informe con el número de integrantes, sin cargar los usuarios
+public record ReportSummary(Integer id, LocalDate date, String beca, String semester, Integer memberCount) {
+}
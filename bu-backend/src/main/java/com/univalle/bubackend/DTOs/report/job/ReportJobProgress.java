@@ -0,0 +1,16 @@
+package com.univalle.bubackend.DTOs.report.job;
+
+import com.univalle.bubackend.models.ReportJobStatus;
+
+/**
+ * Mensaje de /ws con el avance de un trabajo de informe.
+ *
+ * @param bytesWritten bytes del archivo escritos hasta el momento
+ */
+public record ReportJobProgress(String type,
+                                String jobId,
+                                String username,
+                                ReportJobStatus status,
+                                long bytesWritten,
+                                String error) {
+}
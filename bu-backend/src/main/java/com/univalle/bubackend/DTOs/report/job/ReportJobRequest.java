@@ -0,0 +1,16 @@
+package com.univalle.bubackend.DTOs.report.job;
+
+import com.univalle.bubackend.DTOs.report.ReportRequest;
+import com.univalle.bubackend.models.ReportJobType;
+import com.univalle.bubackend.services.export.ExportFormat;
+
+/**
+ * @param targetId id del informe (ALLOWANCE, NURSING) o del profesional (APPOINTMENT)
+ * @param report   informe a generar, solo para ALLOWANCE_GENERATE
+ * @param format   formato del archivo, Excel si no se indica
+ */
+public record ReportJobRequest(ReportJobType type,
+                               Integer targetId,
+                               ReportRequest report,
+                               ExportFormat format) {
+}
@@ -0,0 +1,21 @@
+package com.univalle.bubackend.DTOs.report.job;
+
+import com.univalle.bubackend.models.ReportJobStatus;
+import com.univalle.bubackend.models.ReportJobType;
+import com.univalle.bubackend.services.export.ExportFormat;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record ReportJobResponse(String id,
+                                ReportJobType type,
+                                Integer targetId,
+                                ExportFormat format,
+                                ReportJobStatus status,
+                                String filename,
+                                Long contentLength,
+                                String error,
+                                LocalDateTime createdAt,
+                                LocalDateTime finishedAt) {
+}
@@ -0,0 +1,9 @@
+package com.univalle.bubackend.DTOs.reservation;
+
+public record QueuePositionResponse(
+        String type,
+        Long ticket,
+        Integer position,
+        Integer waiting
+) {
+}
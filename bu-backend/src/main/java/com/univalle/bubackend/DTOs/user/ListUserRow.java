@@ -0,0 +1,16 @@
+package com.univalle.bubackend.DTOs.user;
+
+/**
+ * Columnas del listado de usuarios, seleccionadas sin cargar la entidad.
+ */
+public record ListUserRow(
+        Integer id,
+        String username,
+        String name,
+        String lastName,
+        String email,
+        String plan,
+        Boolean isActive,
+        Boolean lunchBeneficiary,
+        Boolean snackBeneficiary) {
+}
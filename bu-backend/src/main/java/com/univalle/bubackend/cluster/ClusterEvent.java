@@ -0,0 +1,23 @@
+package com.univalle.bubackend.cluster;
+
+import java.time.LocalDate;
+
+/**
+ * Evento que se reparte entre todas las instancias del backend.
+ *
+ * @param origin      identificador de la instancia que lo publicó
+ * @param day         día de servicio afectado, en eventos de reservas
+ * @param lunch       variación de cupos de almuerzo (negativa al reservar, positiva al cancelar)
+ * @param snack       variación de cupos de refrigerio
+ * @param subject     dato adicional del evento, por ejemplo el id de la reserva, el tipo de cita
+ *                    o el avance de un trabajo de informe en JSON
+ */
+public record ClusterEvent(
+        ClusterEventType type,
+        String origin,
+        LocalDate day,
+        int lunch,
+        int snack,
+        String subject
+) {
+}
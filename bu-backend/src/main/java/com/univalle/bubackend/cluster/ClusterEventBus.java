@@ -0,0 +1,291 @@
+package com.univalle.bubackend.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Bus de eventos entre instancias sobre LISTEN/NOTIFY de PostgreSQL, sin broker adicional.
+ *
+ * <p>El NOTIFY no se emite dentro de la transacción que hizo el cambio: PostgreSQL toma un bloqueo
+ * global al confirmar toda transacción que notificó, y eso pondría en fila todas las reservas del
+ * clúster. Después del commit el evento se despacha localmente y pasa a una cola; un hilo propio
+ * la vacía y envía los eventos pendientes en lotes, con una sola sentencia por lote. Las demás
+ * instancias los reciben por una conexión dedicada y los despachan como {@link ClusterEvent} a los
+ * {@code @EventListener} de la aplicación; la que publica ignora su propia notificación.</p>
+ *
+ * <p>Los eventos que no llegan (conexión caída al escuchar o al enviar) se compensan con
+ * {@link ClusterEventType#RESYNC}: al reconectarse, la instancia que escucha se lo despacha a sí
+ * misma, y la que no pudo enviar se lo envía a todas en cuanto vuelve a poder.</p>
+ */
+@Slf4j
+@Component
+public class ClusterEventBus {
+
+    private static final long RECONNECT_DELAY = 5000;
+    // Identificador sin comillas de PostgreSQL; se cita igual al escuchar para respetar mayúsculas
+    private static final Pattern CHANNEL = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,62}");
+    private static final int BATCH_SIZE = 500;
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String channel;
+
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final BlockingQueue<String> outbox = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    // Hubo eventos que no se pudieron enviar: las demás instancias deben resincronizarse
+    private final AtomicBoolean lost = new AtomicBoolean();
+
+    private volatile boolean running;
+    private Thread listener;
+    private Thread sender;
+
+    public ClusterEventBus(JdbcTemplate jdbcTemplate,
+                           DataSourceProperties dataSourceProperties,
+                           ApplicationEventPublisher eventPublisher,
+                           ObjectMapper objectMapper,
+                           @Value("${cluster.events.enabled:true}") boolean enabled,
+                           @Value("${cluster.events.channel:bu_events}") String channel) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalStateException("Nombre de canal de eventos no válido: " + channel);
+        }
+        this.enabled = enabled;
+        this.channel = channel;
+    }
+
+    public void reservationChanged(LocalDate day, int lunch, int snack, Integer reservationId) {
+        publish(new ClusterEvent(ClusterEventType.RESERVATION_CHANGED, nodeId, day, lunch, snack, String.valueOf(reservationId)));
+    }
+
+    public void reservationsPaid(LocalDate day, Collection<Integer> reservationIds) {
+        String ids = reservationIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        publish(new ClusterEvent(ClusterEventType.RESERVATION_PAID, nodeId, day, 0, 0, ids));
+    }
+
+    public void settingChanged() {
+        publish(new ClusterEvent(ClusterEventType.SETTING_CHANGED, nodeId, null, 0, 0, null));
+    }
+
+    public void menuChanged() {
+        publish(new ClusterEvent(ClusterEventType.MENU_CHANGED, nodeId, null, 0, 0, null));
+    }
+
+    public void appointmentsChanged(String typeAppointment) {
+        publish(new ClusterEvent(ClusterEventType.APPOINTMENTS_CHANGED, nodeId, null, 0, 0, typeAppointment));
+    }
+
+    public void reportJobChanged(String progress) {
+        publish(new ClusterEvent(ClusterEventType.REPORT_JOB_CHANGED, nodeId, null, 0, 0, progress));
+    }
+
+    private void publish(ClusterEvent event) {
+        // Se serializa antes para que un evento inválido falle en quien lo publica
+        String payload = enabled ? serialize(event) : null;
+        Runnable deliver = () -> {
+            dispatch(event);
+            if (payload != null) {
+                enqueue(payload);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver.run();
+                }
+            });
+        } else {
+            deliver.run();
+        }
+    }
+
+    private String serialize(ClusterEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + event.type(), e);
+        }
+    }
+
+    private void enqueue(String payload) {
+        if (!outbox.offer(payload)) {
+            lost.set(true);
+            log.warn("Cola de eventos del clúster llena, se descarta un evento");
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "ClusterEvents");
+        listener.setDaemon(true);
+        listener.start();
+        sender = new Thread(this::send, "ClusterEventsSender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        if (sender != null) {
+            sender.interrupt();
+        }
+    }
+
+    private void send() {
+        List<String> batch = new ArrayList<>();
+        while (running) {
+            try {
+                // Con eventos perdidos no se espera al siguiente: la resincronización sale sola
+                String first = lost.get() ? outbox.poll(RECONNECT_DELAY, TimeUnit.MILLISECONDS) : outbox.take();
+                if (first != null) {
+                    batch.add(first);
+                    outbox.drainTo(batch, BATCH_SIZE - 1);
+                }
+                if (lost.get()) {
+                    batch.add(0, serialize(new ClusterEvent(ClusterEventType.RESYNC, nodeId, null, 0, 0, null)));
+                }
+                pgNotify(batch);
+                lost.set(false);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // El lote se descarta: lo que traía se recupera con la resincronización
+                lost.set(true);
+                batch.clear();
+                log.warn("No se pudieron enviar eventos al clúster, reintentando: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Una sentencia por lote, en orden: una sola transacción y un solo bloqueo de NOTIFY al confirmar
+    private void pgNotify(List<String> payloads) {
+        jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+            Array array = connection.createArrayOf("text", payloads.toArray());
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT pg_notify(?, payload) FROM unnest(CAST(? AS text[])) AS p(payload)")) {
+                statement.setString(1, channel);
+                statement.setArray(2, array);
+                statement.execute();
+            } finally {
+                array.free();
+            }
+            return null;
+        });
+    }
+
+    private void listen() {
+        boolean connected = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + channel + "\"");
+                }
+                log.info("Escuchando eventos del clúster en el canal {}", channel);
+                // Lo que se notificó mientras no se escuchaba se perdió
+                if (connected) {
+                    dispatch(new ClusterEvent(ClusterEventType.RESYNC, nodeId, null, 0, 0, null));
+                }
+                connected = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(5000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Se perdió la conexión de eventos del clúster, reintentando: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        try {
+            ClusterEvent event = objectMapper.readValue(payload, ClusterEvent.class);
+            if (!nodeId.equals(event.origin())) {
+                dispatch(event);
+            }
+        } catch (Exception e) {
+            log.warn("Evento del clúster ignorado: {}", e.getMessage());
+        }
+    }
+
+    private void dispatch(ClusterEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            log.warn("Error procesando el evento {}: {}", event.type(), e.getMessage());
+        }
+    }
+}
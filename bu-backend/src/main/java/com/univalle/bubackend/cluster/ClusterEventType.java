@@ -0,0 +1,12 @@
+package com.univalle.bubackend.cluster;
+
+public enum ClusterEventType {
+    RESERVATION_CHANGED,
+    RESERVATION_PAID,
+    SETTING_CHANGED,
+    MENU_CHANGED,
+    APPOINTMENTS_CHANGED,
+    REPORT_JOB_CHANGED,
+    // Se perdieron eventos: cada instancia recarga su estado local desde la base de datos
+    RESYNC
+}
@@ -0,0 +1,49 @@
+package com.univalle.bubackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Bean
+    ThreadPoolTaskExecutor reservationAdmissionExecutor(@Value("${reservation.waiting-room.workers:10}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("ReservationAdmission-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Cola de una tarea por trabajador: si ya hay un vaciado pendiente, los avisos extra se descartan
+    @Bean
+    ThreadPoolTaskExecutor mailExecutor(@Value("${mail.outbox.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("MailSend-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Cola acotada: con la cola llena se rechaza el trabajo en lugar de acumularlo
+    @Bean
+    ThreadPoolTaskExecutor reportJobExecutor(@Value("${report.jobs.workers:2}") int workers,
+                                             @Value("${report.jobs.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("ReportJob-");
+        executor.initialize();
+        return executor;
+    }
+}
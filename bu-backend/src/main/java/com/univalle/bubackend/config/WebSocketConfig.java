@@ -1,5 +1,7 @@
 package com.univalle.bubackend.config;
 
+import com.univalle.bubackend.security.utils.JwtUtils;
+import com.univalle.bubackend.websocket.JwtHandshakeInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -11,13 +13,17 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final WebSocketHandler webSocketHandler;
+    private final JwtUtils jwtUtils;
 
-    public WebSocketConfig(WebSocketHandler webSocketHandler) {
+    public WebSocketConfig(WebSocketHandler webSocketHandler, JwtUtils jwtUtils) {
         this.webSocketHandler = webSocketHandler;
+        this.jwtUtils = jwtUtils;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(webSocketHandler, "/ws").setAllowedOrigins("*");
+        registry.addHandler(webSocketHandler, "/ws")
+                .addInterceptors(new JwtHandshakeInterceptor(jwtUtils))
+                .setAllowedOrigins("*");
     }
 }
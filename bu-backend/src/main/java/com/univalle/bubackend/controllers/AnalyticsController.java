@@ -0,0 +1,56 @@
+package com.univalle.bubackend.controllers;
+
+import com.univalle.bubackend.DTOs.analytics.ConsumptionBreakdown;
+import com.univalle.bubackend.DTOs.analytics.ConsumptionDimension;
+import com.univalle.bubackend.DTOs.analytics.DailyConsumption;
+import com.univalle.bubackend.models.MealType;
+import com.univalle.bubackend.services.analytics.ConsumptionAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/analytics/consumption")
+@AllArgsConstructor
+@PreAuthorize("hasRole('ADMINISTRADOR')")
+@SecurityRequirement(name = "Security Token")
+public class AnalyticsController {
+
+    private final ConsumptionAnalyticsService consumptionAnalyticsService;
+
+    @Operation(
+            summary = "Consumo diario",
+            description = "Reservas, cancelaciones, pagos e inasistencias por día de almuerzo (LUNCH) o refrigerio (SNACK). " +
+                    "Se puede filtrar por plan y por beneficiario o venta libre.",
+            tags = {"Analítica"}
+    )
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailyConsumption>> daily(@RequestParam MealType meal,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                        @RequestParam(required = false) String plan,
+                                                        @RequestParam(required = false) Boolean beneficiary) {
+        return new ResponseEntity<>(consumptionAnalyticsService.daily(meal, from, to, plan, beneficiary), HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Consumo agrupado",
+            description = "Totales del rango agrupados por hora de la reserva (HOUR), plan (PLAN) o beneficiario (BENEFICIARY).",
+            tags = {"Analítica"}
+    )
+    @GetMapping("/breakdown")
+    public ResponseEntity<List<ConsumptionBreakdown>> breakdown(@RequestParam MealType meal,
+                                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                @RequestParam ConsumptionDimension by) {
+        return new ResponseEntity<>(consumptionAnalyticsService.breakdown(meal, from, to, by), HttpStatus.OK);
+    }
+}
@@ -1,9 +1,14 @@
 package com.univalle.bubackend.controllers;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
 import com.univalle.bubackend.DTOs.report.DeleteResponse;
+import com.univalle.bubackend.DTOs.report.ReportMemberRow;
 import com.univalle.bubackend.DTOs.report.ReportRequest;
 import com.univalle.bubackend.DTOs.report.ReportResponse;
-import com.univalle.bubackend.models.Report;
+import com.univalle.bubackend.DTOs.report.ReportSummary;
+import com.univalle.bubackend.services.export.ExportFormat;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ReportExportEngine;
 import com.univalle.bubackend.services.report.allowance.ReportServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,18 +18,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -51,14 +54,14 @@ public class ReportController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201",
                     content = {@Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Report.class))}),
+                            schema = @Schema(implementation = ReportResponse.class))}),
             @ApiResponse(responseCode = "400", description = "Tipo de beca no valida",
                     content = @Content),
             @ApiResponse(responseCode = "401", description = "Usuario no autenticado o token inválido",
                     content = @Content)
     })
     @PostMapping
-    public ResponseEntity<Report> generateReport(@RequestBody ReportRequest reportRequest) {
+    public ResponseEntity<ReportResponse> generateReport(@RequestBody ReportRequest reportRequest) {
         return new ResponseEntity<>(reportService.generateReport(reportRequest), HttpStatus.CREATED);
     }
 
@@ -95,8 +98,10 @@ public class ReportController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
-                    content = {@Content(mediaType = "application/json",
-                            schema = @Schema(implementation = InputStreamResource.class))}),
+                    content = {@Content(mediaType = ExportFormat.XLSX_VALUE,
+                            schema = @Schema(type = "string", format = "binary"))}),
+            @ApiResponse(responseCode = "304", description = "El informe no cambió desde la última descarga (If-None-Match)",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Informe no encontrado",
                     content = @Content),
             @ApiResponse(responseCode = "401", description = "Usuario no autenticado o token inválido",
@@ -108,30 +113,42 @@ public class ReportController {
             required = true,
             example = "1"
     )
-    @GetMapping("/download/{id}")
-    public ResponseEntity<InputStreamResource> downloadReport(@PathVariable Integer id) {
-        ByteArrayInputStream excelStream = reportService.generateExcelReport(id);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=informe_beca" + ".xlsx");
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(excelStream));
+    @GetMapping(value = "/download/{id}", produces = {ExportFormat.XLSX_VALUE, ExportFormat.CSV_VALUE})
+    public ResponseEntity<Resource> downloadReport(@PathVariable Integer id, @RequestHeader HttpHeaders headers) {
+        return ReportExportEngine.download(reportService.downloadReport(id, ExportRequest.from(headers)));
     }
 
     @GetMapping("/semester/{semester}")
-    public ResponseEntity<List<Report>> getReportsBySemester(@PathVariable String semester) {
+    public ResponseEntity<List<ReportSummary>> getReportsBySemester(@PathVariable String semester) {
         return new ResponseEntity<>(reportService.findReportsBySemester(semester), HttpStatus.OK);
     }
 
     @GetMapping("/date/{date}")
-    public ResponseEntity<List<Report>> getReportsByDate(@PathVariable String date) {
+    public ResponseEntity<List<ReportSummary>> getReportsByDate(@PathVariable String date) {
         LocalDate localDate = LocalDate.parse(date);
         return new ResponseEntity<>(reportService.findReportsByDate(localDate), HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Integrantes del informe",
+            description = "Lista por páginas los usuarios incluidos en el informe, ordenados por código",
+            tags = {"Informes"}
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReportMemberRow.class))}),
+            @ApiResponse(responseCode = "404", description = "Informe no encontrado",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "Usuario no autenticado o token inválido",
+                    content = @Content)
+    })
+    @GetMapping("/{id}/members")
+    public ResponseEntity<Page<ReportMemberRow>> getReportMembers(@PathVariable Integer id,
+                                                                  @PageableDefault(size = 50, page = 0) Pageable page) {
+        return new ResponseEntity<>(reportService.findReportMembers(id, page), HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Ver el informe",
             description = "Permite ver en detalle el informe que escoja",
@@ -197,5 +214,16 @@ public class ReportController {
         return new ResponseEntity<>(reports, HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Listar reportes por cursor",
+            description = "Lista reportes sin contar el total. Para la siguiente página se envía el nextCursor de la respuesta anterior."
+    )
+    @GetMapping("/list/keyset")
+    public ResponseEntity<CursorSlice<ReportResponse>> getReportsKeyset(@RequestParam(value = "filter") String filter,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "10") int size) {
+        return new ResponseEntity<>(reportService.listReports(filter, cursor, size), HttpStatus.OK);
+    }
+
 
 }
@@ -0,0 +1,80 @@
+package com.univalle.bubackend.controllers;
+
+import com.univalle.bubackend.DTOs.report.job.ReportJobRequest;
+import com.univalle.bubackend.DTOs.report.job.ReportJobResponse;
+import com.univalle.bubackend.services.report.job.ReportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.AllArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/report-jobs")
+@AllArgsConstructor
+@PreAuthorize("isAuthenticated()")
+@SecurityRequirement(name = "Security Token")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+
+    @Operation(
+            summary = "Generar un informe en segundo plano",
+            description = "Registra el trabajo y responde con su id. El avance se publica por /ws en el canal del usuario y en el tema report-jobs.{id}",
+            tags = {"Informes"}
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReportJobResponse.class))}),
+            @ApiResponse(responseCode = "400", description = "Solicitud incompleta", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Cola de informes llena", content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<ReportJobResponse> submit(@RequestBody ReportJobRequest request, Principal principal) {
+        return new ResponseEntity<>(reportJobService.submit(request, principal.getName()), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReportJobResponse> findJob(@PathVariable String id, Principal principal) {
+        return new ResponseEntity<>(reportJobService.findJob(id, principal.getName()), HttpStatus.OK);
+    }
+
+    /**
+     * El archivo no cambia una vez generado: su hash es el ETag y Spring responde 304 con
+     * If-None-Match y 206 con Range.
+     */
+    @Operation(
+            summary = "Descargar el informe generado",
+            tags = {"Informes"}
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", content = @Content),
+            @ApiResponse(responseCode = "206", description = "Rango parcial del archivo", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Trabajo o archivo no encontrado", content = @Content),
+            @ApiResponse(responseCode = "409", description = "El informe aún no está listo", content = @Content)
+    })
+    @GetMapping("/{id}/download")
+    public ResponseEntity<Resource> download(@PathVariable String id, Principal principal) {
+        ReportJobService.Download download = reportJobService.download(id, principal.getName());
+        return ResponseEntity.ok()
+                .eTag(download.contentHash())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + download.filename())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(download.format().getMediaType())
+                .body(new FileSystemResource(download.path()));
+    }
+}
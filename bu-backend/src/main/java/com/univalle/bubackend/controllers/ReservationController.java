@@ -1,12 +1,17 @@
 package com.univalle.bubackend.controllers;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentRequest;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentResponse;
 import com.univalle.bubackend.DTOs.payment.ReservationPaymentRequest;
 import com.univalle.bubackend.DTOs.payment.ReservationPaymentResponse;
 import com.univalle.bubackend.DTOs.reservation.*;
 import com.univalle.bubackend.exceptions.ResourceNotFoundException;
 import com.univalle.bubackend.exceptions.reservation.NoSlotsAvailableException;
 import com.univalle.bubackend.exceptions.reservation.UnauthorizedException;
+import com.univalle.bubackend.exceptions.reservation.WaitingRoomFullException;
 import com.univalle.bubackend.services.reservation.IReservationService;
+import com.univalle.bubackend.services.reservation.ReservationWaitingRoom;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -24,6 +29,8 @@ import jakarta.validation.Valid;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/reservations")
@@ -31,6 +38,7 @@ import java.util.List;
 public class ReservationController {
 
     private final IReservationService reservationService;
+    private final ReservationWaitingRoom waitingRoom;
 
     @Operation(summary = "Create a reservation for a student")
     @ApiResponses(value = {
@@ -41,22 +49,40 @@ public class ReservationController {
             @ApiResponse(responseCode = "403", description = "Unauthorized to make reservation",
                     content = @Content),
             @ApiResponse(responseCode = "409", description = "No slots available",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Waiting room full or wait timed out",
                     content = @Content)
     })
     @PostMapping("/create")
-    public ResponseEntity<?> createStudentReservation(@Valid @RequestBody ReservationStudentRequest request) {
+    public CompletableFuture<ResponseEntity<?>> createStudentReservation(@Valid @RequestBody ReservationStudentRequest request) {
         try {
-            ReservationResponse response = reservationService.createStudentReservation(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (ResourceNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-        } catch (UnauthorizedException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
-        } catch (NoSlotsAvailableException e) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            // La reserva pasa por la sala de espera; el hilo de Tomcat se libera mientras espera turno
+            return waitingRoom.enter(request)
+                    .handle((response, error) -> error == null
+                            ? ResponseEntity.status(HttpStatus.CREATED).body(response)
+                            : studentReservationError(error));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(studentReservationError(e));
         }
     }
 
+    private ResponseEntity<?> studentReservationError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ResourceNotFoundException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(cause.getMessage());
+        }
+        if (cause instanceof UnauthorizedException) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(cause.getMessage());
+        }
+        if (cause instanceof NoSlotsAvailableException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(cause.getMessage());
+        }
+        if (cause instanceof WaitingRoomFullException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(cause.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(cause.getMessage());
+    }
+
     @Operation(summary = "Create a reservation for an external user")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Reservation created successfully",
@@ -134,6 +160,24 @@ public class ReservationController {
         }
     }
 
+    @Operation(summary = "Register payments for several reservations at once",
+            description = "Receives usernames and/or reservation ids and returns the result of each one.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchPaymentResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content)
+    })
+    @PutMapping("/register-payments")
+    public ResponseEntity<?> registerPayments(@RequestBody BatchPaymentRequest batchRequest) {
+        try {
+            BatchPaymentResponse response = reservationService.registerPayments(batchRequest);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
     @Operation(summary = "Get all active reservations with pagination")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reservations found",
@@ -151,6 +195,20 @@ public class ReservationController {
         }
     }
 
+    @Operation(summary = "Get active reservations with cursor pagination",
+            description = "Pass the nextCursor of the previous response to get the next page. No total count is computed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reservations found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorSlice.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content)
+    })
+    @GetMapping("/all/keyset")
+    public ResponseEntity<CursorSlice<ListReservationResponse>> getAllReservationsKeyset(@RequestParam(required = false) String cursor,
+                                                                                          @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(reservationService.getActiveReservations(cursor, size));
+    }
+
     @Operation(summary = "Cancel a reservation")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reservation canceled successfully",
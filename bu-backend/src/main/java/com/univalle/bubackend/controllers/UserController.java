@@ -1,5 +1,6 @@
 package com.univalle.bubackend.controllers;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
 import com.univalle.bubackend.DTOs.report.DeleteResponse;
 import com.univalle.bubackend.DTOs.user.*;
 import com.univalle.bubackend.models.RoleName;
@@ -182,6 +183,18 @@ public class UserController {
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Listar usuarios por cursor",
+            description = "Lista usuarios sin contar el total. Para la siguiente página se envía el nextCursor de la respuesta anterior.",
+            tags = {"Usuarios"}
+    )
+    @GetMapping("/list/keyset")
+    public ResponseEntity<CursorSlice<ListUser>> getAllUsersKeyset(@RequestParam(value = "filter") String filter,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "10") int size) {
+        return new ResponseEntity<>(userService.listUsers(filter, cursor, size), HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Eliminar todos los beneficiarios",
             description = "Permite eliminar a todos los beneficiarios a la vez",
@@ -1,8 +1,12 @@
 package com.univalle.bubackend.controllers.appointment;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
 import com.univalle.bubackend.DTOs.appointment.*;
 import com.univalle.bubackend.DTOs.user.UserResponse;
 import com.univalle.bubackend.services.appointment.reservation.IAppointmentReservationService;
+import com.univalle.bubackend.services.export.ExportFormat;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ReportExportEngine;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,7 +15,6 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -19,12 +22,11 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
 
 @RestController
@@ -105,6 +107,20 @@ public class AppointmentReservationController {
         return new ResponseEntity<>(appointmentReservationService.allAppointmentProfessionalAttended(id, pageable), HttpStatus.OK);
     }
 
+    @GetMapping("/professional/pending/{id}/keyset")
+    public ResponseEntity<CursorSlice<AppointmentReservationProfessionalDTO>> getAppointmentPendingKeyset(@PathVariable Integer id,
+                                                                                                        @RequestParam(required = false) String cursor,
+                                                                                                        @RequestParam(defaultValue = "10") int size) {
+        return new ResponseEntity<>(appointmentReservationService.allAppointmentProfessional(id, true, cursor, size), HttpStatus.OK);
+    }
+
+    @GetMapping("/professional/attended/{id}/keyset")
+    public ResponseEntity<CursorSlice<AppointmentReservationProfessionalDTO>> getAppointmentAttendedKeyset(@PathVariable Integer id,
+                                                                                                         @RequestParam(required = false) String cursor,
+                                                                                                         @RequestParam(defaultValue = "10") int size) {
+        return new ResponseEntity<>(appointmentReservationService.allAppointmentProfessional(id, false, cursor, size), HttpStatus.OK);
+    }
+
     @GetMapping("/professional/attended/search/{id}")
     public ResponseEntity<ResponseAppointmentReservationProfessional> getAppointmentAttendedSearch(@PathVariable Integer id, @RequestParam("fecha") String fecha,
                                                                                                    @RequestParam(defaultValue = "0") int page,
@@ -162,17 +178,10 @@ public class AppointmentReservationController {
         return ResponseEntity.ok(responses);
     }
 
-    @GetMapping("/download/{id}")
-    public ResponseEntity<InputStreamResource> downloadAppointmentReport(@PathVariable Integer id) {
-        ByteArrayInputStream excelStream = appointmentReservationService.downloadAppointmentReport(id);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=informe_citas" + ".xlsx");
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(excelStream));
+    @GetMapping(value = "/download/{id}", produces = {ExportFormat.XLSX_VALUE, ExportFormat.CSV_VALUE})
+    public ResponseEntity<StreamingResponseBody> downloadAppointmentReport(@PathVariable Integer id, @RequestHeader HttpHeaders headers) {
+        ExportRequest export = ExportRequest.from(headers);
+        return ReportExportEngine.download(ReportExportEngine.filename("informe_citas", id), export, appointmentReservationService.downloadAppointmentReport(id, export));
     }
 
 }
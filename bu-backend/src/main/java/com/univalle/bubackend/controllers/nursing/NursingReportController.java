@@ -4,19 +4,20 @@ import com.univalle.bubackend.DTOs.nursing.NursingReportRequest;
 import com.univalle.bubackend.DTOs.nursing.NursingReportResponse;
 import com.univalle.bubackend.DTOs.report.DeleteResponse;
 import com.univalle.bubackend.models.NursingReport;
+import com.univalle.bubackend.services.export.ExportFormat;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ReportExportEngine;
 import com.univalle.bubackend.services.report.nursing.NursingReportServiceImpl;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.ByteArrayInputStream;
 import java.util.List;
 
 @RestController
@@ -52,18 +53,9 @@ public class NursingReportController {
     }
 
 
-    @GetMapping("/download/{id}")
-    public ResponseEntity<InputStreamResource> downloadNursingReport(@PathVariable int id) {
-        ByteArrayInputStream excelStream = nursingReportService.downloadNursingReport(id);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=informe_enfermeria" + ".xlsx");
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(excelStream));
-
+    @GetMapping(value = "/download/{id}", produces = {ExportFormat.XLSX_VALUE, ExportFormat.CSV_VALUE})
+    public ResponseEntity<Resource> downloadNursingReport(@PathVariable int id, @RequestHeader HttpHeaders headers) {
+        return ReportExportEngine.download(nursingReportService.downloadCachedNursingReport(id, ExportRequest.from(headers)));
     }
 
     @GetMapping("list")
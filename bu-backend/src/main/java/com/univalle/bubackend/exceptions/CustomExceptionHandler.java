@@ -8,6 +8,7 @@ import com.univalle.bubackend.exceptions.nursing.FieldException;
 import com.univalle.bubackend.exceptions.report.*;
 import com.univalle.bubackend.exceptions.reservation.NoSlotsAvailableException;
 import com.univalle.bubackend.exceptions.reservation.UnauthorizedException;
+import com.univalle.bubackend.exceptions.reservation.WaitingRoomFullException;
 import com.univalle.bubackend.exceptions.resetpassword.AlreadyLinkHasBeenCreated;
 import com.univalle.bubackend.exceptions.resetpassword.PasswordDoesNotMatch;
 import com.univalle.bubackend.exceptions.resetpassword.TokenExpired;
@@ -157,6 +158,30 @@ public class CustomExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ExceptionDTO(errorMessage) );
     }
 
+    @ExceptionHandler(ReportJobNotFound.class)
+    public ResponseEntity<ExceptionDTO> handleReportJobNotFound(ReportJobNotFound ex) {
+        String errorMessage = ex.getMessage();
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ExceptionDTO(errorMessage));
+    }
+
+    @ExceptionHandler(ReportJobNotReady.class)
+    public ResponseEntity<ExceptionDTO> handleReportJobNotReady(ReportJobNotReady ex) {
+        String errorMessage = ex.getMessage();
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ExceptionDTO(errorMessage));
+    }
+
+    @ExceptionHandler(ReportJobQueueFull.class)
+    public ResponseEntity<ExceptionDTO> handleReportJobQueueFull(ReportJobQueueFull ex) {
+        String errorMessage = ex.getMessage();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ExceptionDTO(errorMessage));
+    }
+
+    @ExceptionHandler(InvalidReportJob.class)
+    public ResponseEntity<ExceptionDTO> handleInvalidReportJob(InvalidReportJob ex) {
+        String errorMessage = ex.getMessage();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ExceptionDTO(errorMessage));
+    }
+
     @ExceptionHandler(BecaInvalid.class)
     public ResponseEntity<ExceptionDTO> handleBecaInvalid(BecaInvalid ex) {
         String errorMessage = ex.getMessage();
@@ -257,6 +282,18 @@ public class CustomExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(new ExceptionDTO(errorMessage));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ExceptionDTO> handleInvalidCursor(InvalidCursorException ex) {
+        String errorMessage = ex.getMessage();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ExceptionDTO(errorMessage));
+    }
+
+    @ExceptionHandler(WaitingRoomFullException.class)
+    public ResponseEntity<ExceptionDTO> handleWaitingRoomFull(WaitingRoomFullException ex) {
+        String errorMessage = ex.getMessage();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ExceptionDTO(errorMessage));
+    }
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ExceptionDTO> handleResourceNotFound(ResourceNotFoundException ex) {
         String errorMessage = ex.getMessage();
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.exceptions.report;
+
+public class InvalidReportJob extends RuntimeException {
+    public InvalidReportJob(String message) {
+        super(message);
+    }
+}
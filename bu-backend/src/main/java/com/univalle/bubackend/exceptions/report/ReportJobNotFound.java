@@ -0,0 +1,7 @@
+package com.univalle.bubackend.exceptions.report;
+
+public class ReportJobNotFound extends RuntimeException {
+    public ReportJobNotFound(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.exceptions.report;
+
+public class ReportJobNotReady extends RuntimeException {
+    public ReportJobNotReady(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.univalle.bubackend.exceptions.report;
+
+public class ReportJobQueueFull extends RuntimeException {
+    public ReportJobQueueFull(String message) {
+        super(message);
+    }
+}
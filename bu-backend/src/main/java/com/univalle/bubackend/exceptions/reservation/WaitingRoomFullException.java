@@ -0,0 +1,7 @@
+package com.univalle.bubackend.exceptions.reservation;
+
+public class WaitingRoomFullException extends RuntimeException {
+    public WaitingRoomFullException(String message) {
+        super(message);
+    }
+}
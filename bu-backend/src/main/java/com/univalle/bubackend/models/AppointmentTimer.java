@@ -0,0 +1,42 @@
+package com.univalle.bubackend.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"type", "targetId"})
+        },
+        indexes = {
+                @Index(name = "idx_appointment_timer_due", columnList = "dueAt")
+        }
+)
+public class AppointmentTimer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private AppointmentTimerType type;
+
+    // Id de la cita o del horario, según el tipo
+    @NotNull
+    private Integer targetId;
+
+    @NotNull
+    private LocalDateTime dueAt;
+
+    @Builder.Default
+    private Integer attempts = 0;
+}
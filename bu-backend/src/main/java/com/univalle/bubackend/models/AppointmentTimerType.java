@@ -0,0 +1,9 @@
+package com.univalle.bubackend.models;
+
+public enum AppointmentTimerType {
+    // Recordatorio por correo dos horas antes de la cita
+    REMINDER,
+    // Ya no se programan (los cubre AppointmentSweeper); se conservan para las filas que queden pendientes
+    CLOSE_APPOINTMENT,
+    EXPIRE_AVAILABLE_DATE
+}
@@ -0,0 +1,56 @@
+package com.univalle.bubackend.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Consumo de la cafetería agregado por día, comida, hora de la reserva, plan y tipo de venta
+ * (beneficiario o venta libre). Lo mantiene ConsumptionRollupWriter, que acumula las reservas,
+ * cancelaciones y pagos confirmados y los vuelca cada pocos segundos, así las consultas de
+ * analítica no recorren la tabla de reservas.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"serviceDate", "meal", "hour", "plan", "beneficiary"})
+})
+public class ConsumptionRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    private LocalDate serviceDate;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private MealType meal;
+
+    // Hora (0-23) en que se hizo la reserva
+    @NotNull
+    private Integer hour;
+
+    // Vacío si el usuario no tiene plan
+    @NotNull
+    private String plan;
+
+    @NotNull
+    private Boolean beneficiary;
+
+    @Builder.Default
+    private Integer reserved = 0;
+
+    @Builder.Default
+    private Integer cancelled = 0;
+
+    @Builder.Default
+    private Integer paid = 0;
+}
@@ -0,0 +1,55 @@
+package com.univalle.bubackend.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(indexes = {
+        @Index(name = "idx_mail_outbox_status_next", columnList = "status, nextAttemptAt")
+})
+public class MailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    private String recipient;
+
+    @NotNull
+    private String subject;
+
+    @NotNull
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Builder.Default
+    private Boolean html = false;
+
+    @NotNull
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    private MailStatus status = MailStatus.PENDING;
+
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @NotNull
+    private LocalDateTime nextAttemptAt;
+
+    @NotNull
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -0,0 +1,8 @@
+package com.univalle.bubackend.models;
+
+public enum MailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
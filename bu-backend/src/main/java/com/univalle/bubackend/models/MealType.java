@@ -0,0 +1,6 @@
+package com.univalle.bubackend.models;
+
+public enum MealType {
+    LUNCH,
+    SNACK
+}
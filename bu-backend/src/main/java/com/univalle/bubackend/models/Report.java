@@ -40,7 +40,11 @@ public class Report {
     @JsonManagedReference
     private Set<UserEntity> userEntities = new HashSet<>();
 
+    // Nombres explícitos porque ReportMembershipWriter inserta en esta tabla directamente
     @ElementCollection
+    @CollectionTable(name = "report_user_report_count", joinColumns = @JoinColumn(name = "report_id"))
+    @MapKeyColumn(name = "user_report_count_key")
+    @Column(name = "user_report_count")
     private Map<Integer, Integer> userReportCount = new HashMap<>();
 
 }
@@ -0,0 +1,66 @@
+package com.univalle.bubackend.models;
+
+import com.univalle.bubackend.services.export.ExportFormat;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(indexes = {
+        @Index(name = "idx_report_job_status_created", columnList = "status, createdAt"),
+        @Index(name = "idx_report_job_content_hash", columnList = "contentHash")
+})
+public class ReportJob {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private ReportJobType type;
+
+    // Id del informe o del profesional, según el tipo
+    private Integer targetId;
+
+    // Solicitud original en JSON, para ALLOWANCE_GENERATE
+    @Column(columnDefinition = "TEXT")
+    private String parameters;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private ExportFormat format;
+
+    @NotNull
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    private ReportJobStatus status = ReportJobStatus.PENDING;
+
+    @NotNull
+    private String username;
+
+    private String filename;
+
+    // SHA-256 del archivo generado, también es su nombre en disco y su ETag
+    @Column(length = 64)
+    private String contentHash;
+
+    private Long contentLength;
+
+    @Column(length = 1000)
+    private String error;
+
+    @NotNull
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,8 @@
+package com.univalle.bubackend.models;
+
+public enum ReportJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,10 @@
+package com.univalle.bubackend.models;
+
+public enum ReportJobType {
+    // Genera el informe de beca y lo exporta
+    ALLOWANCE_GENERATE,
+    ALLOWANCE,
+    NURSING,
+    ODONTOLOGY,
+    APPOINTMENT
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
@@ -15,6 +16,10 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_reservation_day_lunch", columnList = "serviceDate, lunch, paid, user_id"),
+        @Index(name = "idx_reservation_day_snack", columnList = "serviceDate, snack, paid, user_id")
+})
 public class Reservation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,6 +31,10 @@ public class Reservation {
     @NotNull
     private LocalTime time;
 
+    // Día de servicio de la reserva; las consultas filtran por esta columna indexada en lugar de DATE(data).
+    // Sin nullable = false: Hibernate la agrega así a una tabla con filas y la migración la deja NOT NULL
+    private LocalDate serviceDate;
+
     @Builder.Default
     private Boolean paid = false;
 
@@ -40,5 +49,11 @@ public class Reservation {
     @JsonBackReference
     private UserEntity userEntity;
 
+    @PrePersist
+    private void prePersist() {
+        if (serviceDate == null && data != null) {
+            serviceDate = data.toLocalDate();
+        }
+    }
 
 }
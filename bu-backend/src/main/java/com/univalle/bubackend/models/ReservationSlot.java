@@ -0,0 +1,42 @@
+package com.univalle.bubackend.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"serviceDay", "mealType", "seq"})
+        }
+)
+public class ReservationSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @NotNull
+    private LocalDate serviceDay;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private MealType mealType;
+
+    @NotNull
+    private Integer seq;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reservation_id")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    private Reservation reservation;
+}
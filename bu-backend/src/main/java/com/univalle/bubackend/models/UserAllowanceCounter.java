@@ -0,0 +1,47 @@
+package com.univalle.bubackend.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Veces que un usuario aparece en los informes diarios de una beca dentro de un semestre (inicio y fin).
+ * Lo mantiene AllowanceCounterWriter con un upsert por informe diario generado o borrado.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_allowance_counter_semester",
+                columnNames = {"userId", "beca", "semesterStart", "semesterEnd"})
+})
+public class UserAllowanceCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    private Integer userId;
+
+    // En minúsculas: almuerzo o refrigerio
+    @NotNull
+    private String beca;
+
+    // Inicio del semestre configurado cuando se generó el informe diario
+    @NotNull
+    private LocalDate semesterStart;
+
+    // Fin del semestre: si cambia en la configuración, los contadores se arman de nuevo con el rango nuevo.
+    // NOT NULL lo pone AllowanceCounterKeyMigration, la columna se agregó a una tabla con datos
+    private LocalDate semesterEnd;
+
+    @NotNull
+    @Builder.Default
+    private Integer appearances = 0;
+}
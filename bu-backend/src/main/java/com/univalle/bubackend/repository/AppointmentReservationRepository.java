@@ -1,12 +1,18 @@
 package com.univalle.bubackend.repository;
 
+import com.univalle.bubackend.DTOs.appointment.ProfessionalAppointmentRow;
+import com.univalle.bubackend.DTOs.appointment.report.AttendedAppointmentRow;
 import com.univalle.bubackend.models.AppointmentReservation;
 import com.univalle.bubackend.models.TypeAppointment;
 import com.univalle.bubackend.models.UserEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentReservationRepository extends JpaRepository<AppointmentReservation, Integer> {
@@ -26,13 +33,25 @@ public interface AppointmentReservationRepository extends JpaRepository<Appointm
 
     @Query("SELECT a FROM AppointmentReservation a " +
             "WHERE a.pendingAppointment = false " +
-            "AND FUNCTION('DATE', a.availableDates.dateTime) = :specificDate " +
+            "AND a.availableDates.dateTime >= :start AND a.availableDates.dateTime < :end " +
             "AND a.availableDates.professional.id = :professionalId")
-    Page<AppointmentReservation> findAttendedAppointmentsBySpecificDate(
-            @Param("specificDate") LocalDate specificDate,
+    Page<AppointmentReservation> findAttendedAppointmentsBetween(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
             @Param("professionalId") Integer professionalId,
             Pageable pageable);
 
+    default Page<AppointmentReservation> findAttendedAppointmentsBySpecificDate(LocalDate specificDate, Integer professionalId, Pageable pageable) {
+        return findAttendedAppointmentsBetween(specificDate.atStartOfDay(), specificDate.plusDays(1).atStartOfDay(), professionalId, pageable);
+    }
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.appointment.ProfessionalAppointmentRow(a.id, e.name, e.lastName, e.phone, " +
+            "d.id, d.dateTime, p.id, p.name, d.available, d.typeAppointment, a.assistant, a.pendingAppointment) " +
+            "FROM AppointmentReservation a JOIN a.availableDates d JOIN d.professional p JOIN a.estudiante e " +
+            "WHERE p.id = :professionalId AND a.pendingAppointment = :pending AND a.id < :beforeId " +
+            "ORDER BY a.id DESC")
+    List<ProfessionalAppointmentRow> findProfessionalAppointmentsBefore(Integer professionalId, boolean pending, Integer beforeId, Pageable pageable);
+
     List<AppointmentReservation> findByEstudiante_IdAndAvailableDates_TypeAppointment(Integer estudianteId, TypeAppointment typeAppointment);
 
 
@@ -73,4 +92,27 @@ public interface AppointmentReservationRepository extends JpaRepository<Appointm
             Pageable pageable,
             @Param("username") String username,
             @Param("typeAppointment") TypeAppointment typeAppointment);
+
+    @Query("SELECT a FROM AppointmentReservation a " +
+            "JOIN FETCH a.availableDates JOIN FETCH a.estudiante " +
+            "WHERE a.id = :id")
+    Optional<AppointmentReservation> findWithDetailsById(@Param("id") Integer id);
+
+    @Modifying
+    @Query("UPDATE AppointmentReservation a SET a.pendingAppointment = false " +
+            "WHERE a.id = :id AND a.pendingAppointment = true")
+    int closePending(@Param("id") Integer id);
+
+    @Modifying
+    @Query("UPDATE AppointmentReservation a SET a.pendingAppointment = false " +
+            "WHERE a.pendingAppointment = true " +
+            "AND a.availableDates.id IN (SELECT d.id FROM AvailableDates d WHERE d.dateTime <= :now)")
+    int closePendingBefore(@Param("now") LocalDateTime now);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.univalle.bubackend.DTOs.appointment.report.AttendedAppointmentRow(d.dateTime, d.typeAppointment, " +
+            "a.assistant, e.name, e.lastName, e.email, e.phone, e.plan, e.semester, e.eps, e.gender) " +
+            "FROM AppointmentReservation a JOIN a.availableDates d JOIN a.estudiante e " +
+            "WHERE d.professional.id = :professionalId AND a.pendingAppointment = false ORDER BY d.dateTime")
+    Stream<AttendedAppointmentRow> streamAttended(@Param("professionalId") Integer professionalId);
 }
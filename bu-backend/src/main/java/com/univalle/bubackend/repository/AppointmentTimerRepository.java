@@ -0,0 +1,32 @@
+package com.univalle.bubackend.repository;
+
+import com.univalle.bubackend.models.AppointmentTimer;
+import com.univalle.bubackend.models.AppointmentTimerType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppointmentTimerRepository extends JpaRepository<AppointmentTimer, Long> {
+
+    @Query(value = "SELECT * FROM appointment_timer WHERE due_at <= :now " +
+            "ORDER BY due_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<AppointmentTimer> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Volver a programar un temporizador existente lo reemplaza en lugar de duplicarlo
+    @Modifying
+    @Query(value = "INSERT INTO appointment_timer (type, target_id, due_at, attempts) " +
+            "VALUES (:type, :targetId, :dueAt, 0) " +
+            "ON CONFLICT (type, target_id) DO UPDATE SET due_at = EXCLUDED.due_at, attempts = 0", nativeQuery = true)
+    void upsert(@Param("type") String type, @Param("targetId") Integer targetId, @Param("dueAt") LocalDateTime dueAt);
+
+    @Modifying
+    @Query("DELETE FROM AppointmentTimer t WHERE t.targetId = :targetId AND t.type IN :types")
+    int deleteByTarget(@Param("targetId") Integer targetId, @Param("types") Collection<AppointmentTimerType> types);
+}
@@ -29,6 +29,18 @@ public interface AvailableDatesRepository extends JpaRepository<AvailableDates,
 
     @Modifying
     @Transactional
-    @Query("DELETE FROM AvailableDates ad WHERE FUNCTION('DATE', ad.dateTime) = :specificDate")
-    void deleteAllBySpecificDate(@Param("specificDate")  LocalDate specificDate);
+    @Query("DELETE FROM AvailableDates ad WHERE ad.dateTime >= :start AND ad.dateTime < :end")
+    void deleteAllBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Modifying
+    @Query("DELETE FROM AvailableDates ad WHERE ad.id = :id AND ad.available = true")
+    int deleteIfAvailable(@Param("id") Integer id);
+
+    @Modifying
+    @Query("DELETE FROM AvailableDates ad WHERE ad.available = true AND ad.dateTime <= :now")
+    int deleteExpiredAvailable(@Param("now") LocalDateTime now);
+
+    default void deleteAllBySpecificDate(LocalDate specificDate) {
+        deleteAllBetween(specificDate.atStartOfDay(), specificDate.plusDays(1).atStartOfDay());
+    }
 }
@@ -0,0 +1,62 @@
+package com.univalle.bubackend.repository;
+
+import com.univalle.bubackend.DTOs.analytics.ConsumptionBreakdown;
+import com.univalle.bubackend.DTOs.analytics.DailyConsumption;
+import com.univalle.bubackend.models.ConsumptionRollup;
+import com.univalle.bubackend.models.MealType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Las consultas recorren solo los agregados del rango: su costo no depende del historial de reservas
+@Repository
+public interface ConsumptionRollupRepository extends JpaRepository<ConsumptionRollup, Long> {
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.analytics.DailyConsumption(c.serviceDate, " +
+            "SUM(c.reserved), SUM(c.cancelled), SUM(c.paid), " +
+            "SUM(CASE WHEN c.serviceDate < :today THEN c.reserved - c.cancelled - c.paid ELSE 0 END)) " +
+            "FROM ConsumptionRollup c " +
+            "WHERE c.serviceDate BETWEEN :from AND :to AND c.meal = :meal " +
+            "AND (:plan IS NULL OR c.plan = :plan) AND (:beneficiary IS NULL OR c.beneficiary = :beneficiary) " +
+            "GROUP BY c.serviceDate ORDER BY c.serviceDate")
+    List<DailyConsumption> daily(@Param("meal") MealType meal,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to,
+                                 @Param("plan") String plan,
+                                 @Param("beneficiary") Boolean beneficiary,
+                                 @Param("today") LocalDate today);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.analytics.ConsumptionBreakdown(CAST(c.hour AS String), " +
+            "SUM(c.reserved), SUM(c.cancelled), SUM(c.paid), " +
+            "SUM(CASE WHEN c.serviceDate < :today THEN c.reserved - c.cancelled - c.paid ELSE 0 END)) " +
+            "FROM ConsumptionRollup c WHERE c.serviceDate BETWEEN :from AND :to AND c.meal = :meal " +
+            "GROUP BY c.hour ORDER BY c.hour")
+    List<ConsumptionBreakdown> byHour(@Param("meal") MealType meal,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to,
+                                      @Param("today") LocalDate today);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.analytics.ConsumptionBreakdown(c.plan, " +
+            "SUM(c.reserved), SUM(c.cancelled), SUM(c.paid), " +
+            "SUM(CASE WHEN c.serviceDate < :today THEN c.reserved - c.cancelled - c.paid ELSE 0 END)) " +
+            "FROM ConsumptionRollup c WHERE c.serviceDate BETWEEN :from AND :to AND c.meal = :meal " +
+            "GROUP BY c.plan ORDER BY c.plan")
+    List<ConsumptionBreakdown> byPlan(@Param("meal") MealType meal,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to,
+                                      @Param("today") LocalDate today);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.analytics.ConsumptionBreakdown(CAST(c.beneficiary AS String), " +
+            "SUM(c.reserved), SUM(c.cancelled), SUM(c.paid), " +
+            "SUM(CASE WHEN c.serviceDate < :today THEN c.reserved - c.cancelled - c.paid ELSE 0 END)) " +
+            "FROM ConsumptionRollup c WHERE c.serviceDate BETWEEN :from AND :to AND c.meal = :meal " +
+            "GROUP BY c.beneficiary ORDER BY c.beneficiary")
+    List<ConsumptionBreakdown> byBeneficiary(@Param("meal") MealType meal,
+                                             @Param("from") LocalDate from,
+                                             @Param("to") LocalDate to,
+                                             @Param("today") LocalDate today);
+}
@@ -0,0 +1,33 @@
+package com.univalle.bubackend.repository;
+
+import com.univalle.bubackend.models.MailOutbox;
+import com.univalle.bubackend.models.MailStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    // Los SENDING vencidos son envíos de una instancia que se cayó y se vuelven a intentar
+    @Query(value = "SELECT * FROM mail_outbox " +
+            "WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<MailOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.univalle.bubackend.models.MailStatus.SENT, m.sentAt = :now, m.lastError = null WHERE m.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    long countByStatusIn(Collection<MailStatus> statuses);
+
+    @Modifying
+    @Query("DELETE FROM MailOutbox m WHERE m.status = com.univalle.bubackend.models.MailStatus.SENT AND m.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -1,16 +1,21 @@
 package com.univalle.bubackend.repository;
 
+import com.univalle.bubackend.DTOs.odontology.VisitOdontologyRow;
 import com.univalle.bubackend.DTOs.odontology.VisitResponse;
 import com.univalle.bubackend.models.VisitOdontologyLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 @Repository
@@ -26,4 +31,9 @@ public interface OdontologyVisitRepository extends JpaRepository<VisitOdontology
     @Query("SELECT v FROM VisitOdontologyLog v WHERE v.date BETWEEN :startDate AND :endDate")
     List<VisitOdontologyLog> findAllWithinLastYear(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.univalle.bubackend.DTOs.odontology.VisitOdontologyRow(v.date, u.username, u.name, u.lastName, " +
+            "u.plan, v.reason, v.description) " +
+            "FROM VisitOdontologyLog v JOIN v.user u WHERE v.date BETWEEN :startDate AND :endDate ORDER BY v.date")
+    Stream<VisitOdontologyRow> streamWithin(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 }
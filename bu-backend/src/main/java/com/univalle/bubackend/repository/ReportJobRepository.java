@@ -0,0 +1,30 @@
+package com.univalle.bubackend.repository;
+
+import com.univalle.bubackend.models.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, String> {
+
+    Optional<ReportJob> findByIdAndUsername(String id, String username);
+
+    List<ReportJob> findByFinishedAtBefore(LocalDateTime before);
+
+    boolean existsByContentHash(String contentHash);
+
+    // Trabajos de una instancia que se cayó antes de terminarlos
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = com.univalle.bubackend.models.ReportJobStatus.FAILED, " +
+            "j.error = 'El trabajo no terminó a tiempo', j.finishedAt = :now " +
+            "WHERE j.status IN (com.univalle.bubackend.models.ReportJobStatus.PENDING, com.univalle.bubackend.models.ReportJobStatus.RUNNING) " +
+            "AND j.createdAt < :before")
+    int failStale(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now);
+}
@@ -1,11 +1,18 @@
 package com.univalle.bubackend.repository;
 
+import com.univalle.bubackend.DTOs.nursing.NursingActivityRow;
 import com.univalle.bubackend.models.NursingReport;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReportNursingRepository extends JpaRepository<NursingReport, Integer> {
@@ -13,4 +20,10 @@ public interface ReportNursingRepository extends JpaRepository<NursingReport, In
     List<NursingReport> findByYearAndTrimester(Integer year, Integer trimester);
     List<NursingReport> findByYear(Integer year);
     Optional<NursingReport> findNursingReportByYearAndTrimester(int year, int trimester);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.univalle.bubackend.DTOs.nursing.NursingActivityRow(a.date, u.username, u.name, u.lastName, " +
+            "u.phone, u.plan, u.semester, u.gender, a.diagnostic, a.conduct) " +
+            "FROM NursingReport r JOIN r.activities a JOIN a.user u WHERE r.id = :reportId ORDER BY a.date")
+    Stream<NursingActivityRow> streamActivities(@Param("reportId") Integer reportId);
 }
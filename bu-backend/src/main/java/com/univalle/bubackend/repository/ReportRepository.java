@@ -1,22 +1,46 @@
 package com.univalle.bubackend.repository;
 
+import com.univalle.bubackend.DTOs.report.ReportMemberRow;
+import com.univalle.bubackend.DTOs.report.ReportResponse;
+import com.univalle.bubackend.DTOs.report.ReportSummary;
 import com.univalle.bubackend.models.Report;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Integer> {
     Optional<Report> findById(Integer id);
-    List<Report> findBySemester(String semester);
-    List<Report> findAllByDate(LocalDate date);
+    boolean existsByDateAndSemesterIsNullAndBecaIgnoreCase(LocalDate date, String beca);
+    boolean existsBySemesterAndBecaIgnoreCase(String semester, String beca);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.report.ReportSummary(r.id, r.date, r.beca, r.semester, SIZE(r.userEntities)) " +
+            "FROM Report r WHERE r.semester = :semester ORDER BY r.id")
+    List<ReportSummary> findSummariesBySemester(@Param("semester") String semester);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.report.ReportSummary(r.id, r.date, r.beca, r.semester, SIZE(r.userEntities)) " +
+            "FROM Report r WHERE r.date = :date ORDER BY r.id")
+    List<ReportSummary> findSummariesByDate(@Param("date") LocalDate date);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.report.ReportResponse(r.id, r.date, r.semester, r.beca) " +
+            "FROM Report r WHERE r.semester IS NULL AND r.id < :beforeId ORDER BY r.id DESC")
+    List<ReportResponse> findDailyReportsBefore(Integer beforeId, Pageable pageable);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.report.ReportResponse(r.id, r.date, r.semester, r.beca) " +
+            "FROM Report r WHERE r.semester IS NOT NULL AND r.id < :beforeId ORDER BY r.id DESC")
+    List<ReportResponse> findSemesterReportsBefore(Integer beforeId, Pageable pageable);
 
     @Query("SELECT r FROM  Report r WHERE r.semester IS NULL")
     Page<Report> findDailyReports(Pageable pageable);
@@ -26,4 +50,24 @@ public interface ReportRepository extends JpaRepository<Report, Integer> {
 
     Page<Report> findAll(Pageable pageable);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT u.username AS \"username\", u.name AS \"name\", u.last_name AS \"lastName\", " +
+            "u.plan AS \"plan\", u.email AS \"email\", c.user_report_count AS \"count\", " +
+            "(COALESCE(u.lunch_beneficiary, false) OR COALESCE(u.snack_beneficiary, false)) AS \"beneficiary\" " +
+            "FROM report_user ru JOIN user_entity u ON u.id = ru.user_id " +
+            "LEFT JOIN report_user_report_count c ON c.report_id = ru.report_id AND c.user_report_count_key = ru.user_id " +
+            "WHERE ru.report_id = :reportId " +
+            "AND (COALESCE(u.lunch_beneficiary, false) OR COALESCE(u.snack_beneficiary, false)) = :beneficiaries " +
+            "ORDER BY u.username", nativeQuery = true)
+    Stream<ReportMemberRow> streamMembers(@Param("reportId") Integer reportId, @Param("beneficiaries") boolean beneficiaries);
+
+    @Query(value = "SELECT u.username AS \"username\", u.name AS \"name\", u.last_name AS \"lastName\", " +
+            "u.plan AS \"plan\", u.email AS \"email\", c.user_report_count AS \"count\", " +
+            "(COALESCE(u.lunch_beneficiary, false) OR COALESCE(u.snack_beneficiary, false)) AS \"beneficiary\" " +
+            "FROM report_user ru JOIN user_entity u ON u.id = ru.user_id " +
+            "LEFT JOIN report_user_report_count c ON c.report_id = ru.report_id AND c.user_report_count_key = ru.user_id " +
+            "WHERE ru.report_id = :reportId ORDER BY u.username",
+            countQuery = "SELECT COUNT(*) FROM report_user ru WHERE ru.report_id = :reportId",
+            nativeQuery = true)
+    Page<ReportMemberRow> findMembers(@Param("reportId") Integer reportId, Pageable pageable);
 }
@@ -1,53 +1,90 @@
 package com.univalle.bubackend.repository;
 
+import com.univalle.bubackend.DTOs.reservation.ListReservationResponse;
 import com.univalle.bubackend.models.Reservation;
 import com.univalle.bubackend.models.UserEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Integer> {
 
-    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.lunch = true AND DATE(r.data) = :date")
+    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.lunch = true AND r.serviceDate = :date")
     int countLunchReservationsForDay(LocalDate date);
 
-    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.snack = true AND DATE(r.data) = :date")
+    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.snack = true AND r.serviceDate = :date")
     int countSnackReservationsForDay(LocalDate date);
 
-    @Query("SELECT r FROM Reservation r Where r.userEntity.username = :username AND r.lunch = true AND DATE(r.data) = :date")
+    @Query("SELECT r FROM Reservation r Where r.userEntity.username = :username AND r.lunch = true AND r.serviceDate = :date")
     List<Reservation> findLunchReservationByUser(String username, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r Where r.userEntity.username = :username AND r.snack = true AND DATE(r.data) = :date")
+    @Query("SELECT r FROM Reservation r Where r.userEntity.username = :username AND r.snack = true AND r.serviceDate = :date")
     List<Reservation> findSnackReservationByUser(String username, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r Where r.id = :id AND r.lunch = true AND DATE(r.data) = :date AND r.paid = false")
+    @Query("SELECT r FROM Reservation r Where r.id = :id AND r.lunch = true AND r.serviceDate = :date AND r.paid = false")
     Optional<Reservation> findLunchReservationById(Integer id, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r Where r.id = :id AND r.snack = true AND DATE(r.data) = :date AND r.paid = false")
+    @Query("SELECT r FROM Reservation r Where r.id = :id AND r.snack = true AND r.serviceDate = :date AND r.paid = false")
     Optional<Reservation> findSnackReservationById(Integer id, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r WHERE r.userEntity = :userEntity AND r.paid = false AND r.lunch = true AND DATE(r.data) = :date")
+    @Query("SELECT r FROM Reservation r WHERE r.userEntity = :userEntity AND r.paid = false AND r.lunch = true AND r.serviceDate = :date")
     List<Reservation> findByUserEntityLunchPaidFalse(UserEntity userEntity, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r WHERE r.userEntity = :userEntity AND r.paid = false AND r.snack = true AND DATE(r.data) = :date")
+    @Query("SELECT r FROM Reservation r WHERE r.userEntity = :userEntity AND r.paid = false AND r.snack = true AND r.serviceDate = :date")
     List<Reservation> findByUserEntitySnackPaidFalse(UserEntity userEntity, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r Where r.userEntity = :userEntity AND DATE(r.data) = :date AND r.snack = true")
+    @Query("SELECT r FROM Reservation r Where r.userEntity = :userEntity AND r.serviceDate = :date AND r.snack = true")
     Optional<Reservation> findSnackReservationPerDay(UserEntity userEntity, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r Where r.userEntity = :userEntity AND DATE(r.data) = :date AND r.lunch = true")
+    @Query("SELECT r FROM Reservation r Where r.userEntity = :userEntity AND r.serviceDate = :date AND r.lunch = true")
     Optional<Reservation> findLunchReservationPerDay(UserEntity userEntity, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r WHERE r.paid = false AND DATE(r.data) = :date AND r.lunch = true")
+    @Query("SELECT r FROM Reservation r WHERE r.paid = false AND r.serviceDate = :date AND r.lunch = true")
     Page<Reservation> findAllLunchByPaidFalse(Pageable pageable, LocalDate date);
 
-    @Query("SELECT r FROM Reservation r WHERE r.paid = false AND DATE(r.data) = :date AND r.snack = true")
+    @Query("SELECT r FROM Reservation r WHERE r.paid = false AND r.serviceDate = :date AND r.snack = true")
     Page<Reservation> findAllSnackByPaidFalse(Pageable pageable, LocalDate date);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.reservation.ListReservationResponse(r.id, r.data, r.time, r.paid, r.snack, r.lunch, u.username, u.name, u.lastName) " +
+            "FROM Reservation r JOIN r.userEntity u " +
+            "WHERE r.serviceDate = :date AND r.paid = false AND r.lunch = true AND r.id > :afterId ORDER BY r.id")
+    List<ListReservationResponse> findUnpaidLunchAfter(LocalDate date, Integer afterId, Pageable pageable);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.reservation.ListReservationResponse(r.id, r.data, r.time, r.paid, r.snack, r.lunch, u.username, u.name, u.lastName) " +
+            "FROM Reservation r JOIN r.userEntity u " +
+            "WHERE r.serviceDate = :date AND r.paid = false AND r.snack = true AND r.id > :afterId ORDER BY r.id")
+    List<ListReservationResponse> findUnpaidSnackAfter(LocalDate date, Integer afterId, Pageable pageable);
+
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.userEntity WHERE r.serviceDate = :date AND r.paid = false")
+    List<Reservation> findUnpaidForDay(LocalDate date);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.paid = true WHERE r.id = :id AND r.paid = false")
+    int updatePaid(Integer id);
+
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.userEntity u " +
+            "WHERE r.serviceDate = :date AND (u.username IN :usernames OR r.id IN :ids)")
+    List<Reservation> findForPayment(LocalDate date, Collection<String> usernames, Collection<Integer> ids);
+
+    // Bloquea las que siguen sin pagar, en orden para no interbloquear lotes; las pagadas o canceladas por otra caja no aparecen
+    @Query(value = "SELECT id FROM reservation WHERE id IN (:ids) AND paid = false ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Integer> lockUnpaid(Collection<Integer> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Reservation r SET r.paid = true WHERE r.id IN :ids AND r.paid = false")
+    int markPaid(Collection<Integer> ids);
+
+    // Completa el día de servicio de las reservas creadas antes de existir la columna
+    @Modifying
+    @Query(value = "UPDATE reservation SET service_date = CAST(data AS date) WHERE service_date IS NULL", nativeQuery = true)
+    int backfillServiceDate();
 }
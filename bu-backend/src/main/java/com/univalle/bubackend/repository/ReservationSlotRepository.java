@@ -0,0 +1,53 @@
+package com.univalle.bubackend.repository;
+
+import com.univalle.bubackend.models.ReservationSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface ReservationSlotRepository extends JpaRepository<ReservationSlot, Integer> {
+
+    // Reservas del día para la comida, sin contar la que está reclamando ficha en esta transacción (0 si no hay)
+    String CONSUMED = "(SELECT COUNT(*) FROM reservation r WHERE r.service_date = :day AND r.id <> :reservationId " +
+            "AND ((:mealType = 'LUNCH' AND r.lunch) OR (:mealType = 'SNACK' AND r.snack)))";
+
+    // Serializa la generación de fichas de un día y comida entre nodos; se libera al terminar la transacción
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(hashtext(CAST(:day AS text) || :mealType))) l",
+            nativeQuery = true)
+    int lockAllocation(@Param("day") LocalDate day, @Param("mealType") String mealType);
+
+    /*
+     * Completa las fichas libres hasta "total - reservas existentes". Las reservas hechas antes de
+     * que existieran las fichas no tienen ficha, por eso se cuentan sobre la tabla de reservas.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO reservation_slot (service_day, meal_type, seq) " +
+            "SELECT :day, :mealType, base.max_seq + s " +
+            "FROM (SELECT COALESCE(MAX(seq), 0) AS max_seq, COUNT(*) FILTER (WHERE reservation_id IS NULL) AS free " +
+            "      FROM reservation_slot WHERE service_day = :day AND meal_type = :mealType) base, " +
+            "     generate_series(1, GREATEST(:total - " + CONSUMED + " - base.free, 0)) s " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int allocate(@Param("day") LocalDate day, @Param("mealType") String mealType, @Param("total") int total,
+                 @Param("reservationId") Integer reservationId);
+
+    // Deja como máximo "total - reservas existentes" fichas libres, conservando las de menor secuencia
+    @Modifying
+    @Query(value = "DELETE FROM reservation_slot WHERE id IN (" +
+            "SELECT id FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY seq) AS rn FROM reservation_slot " +
+            "      WHERE service_day = :day AND meal_type = :mealType AND reservation_id IS NULL) free " +
+            "WHERE free.rn > GREATEST(:total - " + CONSUMED + ", 0))", nativeQuery = true)
+    int trim(@Param("day") LocalDate day, @Param("mealType") String mealType, @Param("total") int total,
+             @Param("reservationId") Integer reservationId);
+
+    @Modifying
+    @Query(value = "UPDATE reservation_slot SET reservation_id = :reservationId " +
+            "WHERE id = (SELECT id FROM reservation_slot " +
+            "WHERE service_day = :day AND meal_type = :mealType AND reservation_id IS NULL " +
+            "LIMIT 1 FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int claim(@Param("day") LocalDate day, @Param("mealType") String mealType, @Param("reservationId") Integer reservationId);
+}
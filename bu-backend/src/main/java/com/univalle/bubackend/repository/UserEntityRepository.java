@@ -1,5 +1,6 @@
 package com.univalle.bubackend.repository;
 
+import com.univalle.bubackend.DTOs.user.ListUserRow;
 import com.univalle.bubackend.models.UserEntity;
 import com.univalle.bubackend.models.RoleName;
 import org.springframework.data.domain.Page;
@@ -9,7 +10,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,14 +30,12 @@ public interface UserEntityRepository extends JpaRepository<UserEntity, Integer>
     @Query("SELECT u FROM UserEntity u JOIN u.roles r WHERE u.username = :username AND r.name <> :student AND r.name <> :monitor")
     Optional<UserEntity> findByUsernameNoStudent(@Param("username") String username, @Param("student") RoleName student, @Param("monitor") RoleName monitor);
 
-    @Query("SELECT u FROM UserEntity u JOIN u.reservations r WHERE r.lunch = true AND r.paid = true AND r.data BETWEEN :startOfDay AND :endOfDay")
-    List<UserEntity> findUserLunchPaid(@Param("startOfDay") LocalDateTime startOfDay, @Param("endOfDay") LocalDateTime endOfDay);
-
-    @Query("SELECT u FROM UserEntity u JOIN u.reservations r WHERE r.snack = true AND r.paid = true AND r.data BETWEEN :startOfDay AND :endOfDay")
-    List<UserEntity> findUserSnackPaid(@Param("startOfDay") LocalDateTime startOfDay, @Param("endOfDay") LocalDateTime endOfDay);
-
     List<UserEntity> findByLunchBeneficiaryTrueOrSnackBeneficiaryTrue();
 
+    @Query("SELECT new com.univalle.bubackend.DTOs.user.ListUserRow(u.id, u.username, u.name, u.lastName, u.email, u.plan, u.isActive, u.lunchBeneficiary, u.snackBeneficiary) " +
+            "FROM UserEntity u WHERE u.lunchBeneficiary = true OR u.snackBeneficiary = true")
+    List<ListUserRow> findBeneficiaryRows();
+
     @Query("SELECT u FROM UserEntity u JOIN u.roles r WHERE r.name = 'ESTUDIANTE'")
     Page<UserEntity> findAllStudents(Pageable pageable);
 
@@ -45,8 +45,31 @@ public interface UserEntityRepository extends JpaRepository<UserEntity, Integer>
     @Query("SELECT u FROM UserEntity u JOIN u.roles r where r.name <> 'ESTUDIANTE'")
     Page<UserEntity> findAllNonStudents(Pageable pageable);
 
-    @Query("SELECT DISTINCT u FROM UserEntity u JOIN u.reservations r WHERE r.data BETWEEN :startDate AND :endDate")
-    List<UserEntity> findAllByReservationDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    @Query("SELECT new com.univalle.bubackend.DTOs.user.ListUserRow(u.id, u.username, u.name, u.lastName, u.email, u.plan, u.isActive, u.lunchBeneficiary, u.snackBeneficiary) " +
+            "FROM UserEntity u WHERE u.id < :beforeId " +
+            "AND EXISTS (SELECT 1 FROM u.roles r WHERE r.name = 'ESTUDIANTE') ORDER BY u.id DESC")
+    List<ListUserRow> findStudentRowsBefore(Integer beforeId, Pageable pageable);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.user.ListUserRow(u.id, u.username, u.name, u.lastName, u.email, u.plan, u.isActive, u.lunchBeneficiary, u.snackBeneficiary) " +
+            "FROM UserEntity u WHERE u.id < :beforeId " +
+            "AND (u.lunchBeneficiary = true OR u.snackBeneficiary = true) ORDER BY u.id DESC")
+    List<ListUserRow> findBeneficiaryRowsBefore(Integer beforeId, Pageable pageable);
+
+    @Query("SELECT new com.univalle.bubackend.DTOs.user.ListUserRow(u.id, u.username, u.name, u.lastName, u.email, u.plan, u.isActive, u.lunchBeneficiary, u.snackBeneficiary) " +
+            "FROM UserEntity u WHERE u.id < :beforeId " +
+            "AND EXISTS (SELECT 1 FROM u.roles r WHERE r.name <> 'ESTUDIANTE') ORDER BY u.id DESC")
+    List<ListUserRow> findNonStudentRowsBefore(Integer beforeId, Pageable pageable);
+
+    // Cada fila es [id del usuario, Role]
+    @Query("SELECT u.id, r FROM UserEntity u JOIN u.roles r WHERE u.id IN :ids")
+    List<Object[]> findRolesByUserIds(Collection<Integer> ids);
+
+    @Query("SELECT DISTINCT r.userEntity.id FROM Reservation r WHERE r.serviceDate BETWEEN :startDate AND :endDate")
+    List<Integer> findIdsByReservationDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
+    @Query("SELECT DISTINCT r.userEntity.id FROM Reservation r WHERE r.serviceDate = :day AND r.lunch = true AND r.paid = true")
+    List<Integer> findIdsLunchPaid(@Param("day") LocalDate day);
 
+    @Query("SELECT DISTINCT r.userEntity.id FROM Reservation r WHERE r.serviceDate = :day AND r.snack = true AND r.paid = true")
+    List<Integer> findIdsSnackPaid(@Param("day") LocalDate day);
 }
@@ -0,0 +1,41 @@
+package com.univalle.bubackend.security;
+
+import com.univalle.bubackend.security.filters.JwtFilter;
+import com.univalle.bubackend.security.utils.JwtUtils;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+/**
+ * Acceso a los endpoints de actuator: health queda abierto para los chequeos del balanceador y
+ * las métricas solo las ve el administrador. Va antes de la cadena general, que no restringe por URL.
+ */
+@Configuration
+@AllArgsConstructor
+public class ActuatorSecurityConfig {
+
+    private JwtUtils jwtUtils;
+
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole("ADMINISTRADOR"))
+                .addFilterBefore(new JwtFilter(jwtUtils), BasicAuthenticationFilter.class);
+
+        return http.build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.univalle.bubackend.services.analytics;
+
+import com.univalle.bubackend.DTOs.analytics.ConsumptionBreakdown;
+import com.univalle.bubackend.DTOs.analytics.ConsumptionDimension;
+import com.univalle.bubackend.DTOs.analytics.DailyConsumption;
+import com.univalle.bubackend.models.MealType;
+import com.univalle.bubackend.repository.ConsumptionRollupRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Series de consumo de la cafetería leídas de consumption_rollup. Solo lectura.
+ */
+@Service
+@AllArgsConstructor
+@Transactional(readOnly = true)
+public class ConsumptionAnalyticsService {
+
+    // Rango máximo por consulta, unos diez años
+    private static final long MAX_DAYS = 3660;
+
+    private final ConsumptionRollupRepository consumptionRollupRepository;
+
+    public List<DailyConsumption> daily(MealType meal, LocalDate from, LocalDate to, String plan, Boolean beneficiary) {
+        validate(from, to);
+        return consumptionRollupRepository.daily(meal, from, to, plan, beneficiary, LocalDate.now());
+    }
+
+    public List<ConsumptionBreakdown> breakdown(MealType meal, LocalDate from, LocalDate to, ConsumptionDimension by) {
+        validate(from, to);
+        LocalDate today = LocalDate.now();
+        return switch (by) {
+            case HOUR -> consumptionRollupRepository.byHour(meal, from, to, today);
+            case PLAN -> consumptionRollupRepository.byPlan(meal, from, to, today);
+            case BENEFICIARY -> consumptionRollupRepository.byBeneficiary(meal, from, to, today);
+        };
+    }
+
+    private static void validate(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La fecha inicial debe ser anterior a la final.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_DAYS) {
+            throw new IllegalArgumentException("El rango máximo de consulta es de " + MAX_DAYS + " días.");
+        }
+    }
+}
@@ -17,16 +17,13 @@ import com.univalle.bubackend.services.appointment.validations.DateTimeValidatio
 import com.univalle.bubackend.services.appointment.validations.IsValidTypeAppointment;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,9 +37,9 @@ public class AppointmentServiceImpl implements IAppointmentService {
     private UserEntityRepository userEntityRepository;
     private AppointmentReservationRepository appointmentReservationRepository;
     private AppointmentDateCreationValidation appointmentDateCreationValidations;
-    private TaskScheduler taskScheduler;
     private IsValidTypeAppointment isValidTypeAppointment;
     private DateTimeValidation isValidDateTime;
+    private AppointmentSlotsBroadcaster appointmentSlotsBroadcaster;
 
     @Override
     public ResponseAvailableDate availableDatesAssign(RequestAvailableDate requestAvailableDate) {
@@ -73,24 +70,12 @@ public class AppointmentServiceImpl implements IAppointmentService {
 
 
         availableDatesRepository.saveAll(dates);
-        dates.forEach(x -> taskScheduler.schedule(()->{
-                Instant scheduledInstant = convertToInstant(x.getDateTime());
-                log.info("Scheduled task for: {} Current time: {}", scheduledInstant, Instant.now());
-                if(x.getAvailable()){
-                    availableDatesRepository.delete(x);
-                }
-            }, convertToInstant(x.getDateTime()))
-        );
+        dates.stream().map(AvailableDates::getTypeAppointment).distinct().forEach(appointmentSlotsBroadcaster::slotsChanged);
         List<AvailableDateDTO> dateDTOS = dates.stream().map(AvailableDateDTO::new).toList();
 
         return new ResponseAvailableDate("Se crearon las citas", professional.getId(), dateDTOS);
     }
 
-    private Instant convertToInstant(LocalDateTime localDateTime) {
-        ZoneId zoneId = ZoneId.systemDefault();
-        return localDateTime.atZone(zoneId).toInstant();
-    }
-
     @Override
     public ResponseAllAvailableDates getAllDatesProfessional(Integer professionalId) {
         Optional<UserEntity> professional = userEntityRepository.findById(professionalId);
@@ -109,6 +94,7 @@ public class AppointmentServiceImpl implements IAppointmentService {
         Optional<AvailableDates> availableDatesOpt = availableDatesRepository.findById(id);
         AvailableDates availableDates = availableDatesOpt.orElseThrow(() -> new NoAvailableDateFound("No se encontró el horario"));
         availableDatesRepository.delete(availableDates);
+        appointmentSlotsBroadcaster.slotsChanged(availableDates.getTypeAppointment());
         return new ResponseDeleteAvailableDate("Se eliminó el horario", new AvailableDateDTO(availableDates));
     }
 
@@ -153,5 +139,6 @@ public class AppointmentServiceImpl implements IAppointmentService {
             throw new IllegalArgumentException("La fecha proporcionada no tiene el formato correcto: dd/MM/yyyy");
         }
         availableDatesRepository.deleteAllBySpecificDate(date);
+        Arrays.stream(TypeAppointment.values()).forEach(appointmentSlotsBroadcaster::slotsChanged);
     }
 }
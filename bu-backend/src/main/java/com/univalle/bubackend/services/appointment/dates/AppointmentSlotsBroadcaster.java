@@ -0,0 +1,66 @@
+package com.univalle.bubackend.services.appointment.dates;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.DTOs.appointment.AppointmentSlotsChanged;
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.cluster.ClusterEventType;
+import com.univalle.bubackend.models.TypeAppointment;
+import com.univalle.bubackend.websocket.WebSocketHandler;
+import com.univalle.bubackend.websocket.WebSocketTopics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Avisa a los suscriptores del tema de cada tipo de cita que cambiaron los horarios disponibles,
+ * para que vuelvan a consultarlos. El aviso viaja por el bus del clúster y cada instancia lo
+ * entrega a sus propias sesiones una vez confirmada la transacción.
+ */
+@Slf4j
+@Component
+public class AppointmentSlotsBroadcaster {
+
+    private final WebSocketHandler webSocketHandler;
+    private final ClusterEventBus clusterEventBus;
+    private final ObjectMapper objectMapper;
+
+    public AppointmentSlotsBroadcaster(WebSocketHandler webSocketHandler, ClusterEventBus clusterEventBus, ObjectMapper objectMapper) {
+        this.webSocketHandler = webSocketHandler;
+        this.clusterEventBus = clusterEventBus;
+        this.objectMapper = objectMapper;
+    }
+
+    public void slotsChanged(TypeAppointment typeAppointment) {
+        clusterEventBus.appointmentsChanged(typeAppointment.name());
+    }
+
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.type() == ClusterEventType.RESYNC) {
+            // No se sabe qué horarios cambiaron mientras no llegaban eventos: se avisa de todos
+            for (TypeAppointment typeAppointment : TypeAppointment.values()) {
+                notifyClients(typeAppointment);
+            }
+            return;
+        }
+        if (event.type() != ClusterEventType.APPOINTMENTS_CHANGED) {
+            return;
+        }
+        try {
+            notifyClients(TypeAppointment.valueOf(event.subject()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Tipo de cita desconocido en el evento: {}", event.subject());
+        }
+    }
+
+    private void notifyClients(TypeAppointment typeAppointment) {
+        try {
+            String message = objectMapper.writeValueAsString(
+                    new AppointmentSlotsChanged("appointments", typeAppointment.name()));
+            webSocketHandler.publish(WebSocketTopics.appointments(typeAppointment), message);
+        } catch (Exception e) {
+            log.warn("No se pudo avisar el cambio de horarios: {}", e.getMessage());
+        }
+    }
+}
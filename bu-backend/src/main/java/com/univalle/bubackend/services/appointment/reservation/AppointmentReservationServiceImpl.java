@@ -1,10 +1,11 @@
 package com.univalle.bubackend.services.appointment.reservation;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
+import com.univalle.bubackend.DTOs.KeysetCursor;
 import com.univalle.bubackend.DTOs.appointment.*;
-import com.univalle.bubackend.DTOs.appointment.report.AppointmentReservationDTO;
-import com.univalle.bubackend.DTOs.appointment.report.UserAppointmentDTO;
+import com.univalle.bubackend.DTOs.appointment.report.AttendedAppointmentRow;
+import com.univalle.bubackend.DTOs.user.UserEntityDTO;
 import com.univalle.bubackend.DTOs.user.UserResponse;
-import com.univalle.bubackend.config.TaskManager;
 import com.univalle.bubackend.exceptions.ResourceNotFoundException;
 import com.univalle.bubackend.exceptions.appointment.CantReserveMoreAppointments;
 import com.univalle.bubackend.exceptions.appointment.HaveAnAppoinmentPending;
@@ -17,31 +18,27 @@ import com.univalle.bubackend.models.*;
 import com.univalle.bubackend.repository.AppointmentReservationRepository;
 import com.univalle.bubackend.repository.AvailableDatesRepository;
 import com.univalle.bubackend.repository.UserEntityRepository;
+import com.univalle.bubackend.services.appointment.dates.AppointmentSlotsBroadcaster;
+import com.univalle.bubackend.services.appointment.timer.AppointmentTimerService;
 import com.univalle.bubackend.services.appointment.validations.AppointmentDateCreationValidation;
 import com.univalle.bubackend.services.appointment.validations.DateTimeValidation;
 import com.univalle.bubackend.services.appointment.validations.DefineTypeOfAppointment;
-import com.univalle.bubackend.services.notification.NotificationService;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ReportExportEngine;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.Font;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
@@ -53,9 +50,9 @@ public class AppointmentReservationServiceImpl implements IAppointmentReservatio
     private DateTimeValidation dateTimeValidation;
     private DefineTypeOfAppointment defineTypeOfAppointment;
     private AvailableDatesRepository availableDatesRepository;
-    private TaskScheduler taskScheduler;
-    private NotificationService notificationService;
-    private TaskManager taskManager;
+    private AppointmentTimerService appointmentTimerService;
+    private ReportExportEngine reportExportEngine;
+    private AppointmentSlotsBroadcaster appointmentSlotsBroadcaster;
 
 
     @Override
@@ -114,39 +111,12 @@ public class AppointmentReservationServiceImpl implements IAppointmentReservatio
 
 
         AppointmentReservation savedAppointment = appointmentReservationRepository.save(appointmentReservation);
+        appointmentSlotsBroadcaster.slotsChanged(availableDates.getTypeAppointment());
 
-        long delayNotification = Duration.between(LocalDateTime.now(), availableDates.getDateTime().minusHours(2)).toMillis();
-        taskManager.scheduleTask(savedAppointment.getId(), () -> sendNotification(userEntity, availableDates), delayNotification);
-
-        long delayStatusUpdate = Duration.between(LocalDateTime.now(), availableDates.getDateTime()).toMillis();
-        taskManager.scheduleTask(savedAppointment.getId(), () -> {
-            savedAppointment.setPendingAppointment(false);
-            appointmentReservationRepository.save(savedAppointment);
-        }, delayStatusUpdate);
+        appointmentTimerService.scheduleAppointment(savedAppointment.getId(), availableDates.getDateTime());
 
         return new ResponseAppointmentReservation("Cita reservada con éxito", new AvailableDateDTO(availableDates), new UserResponse(userEntity));
     }
-    // Metodo para Enviar notificaciones
-    private void sendNotification(UserEntity userEntity, AvailableDates availableDates) {
-        // Formatear la fecha y hora
-        String formattedDateTime = availableDates.getDateTime()
-                .format(DateTimeFormatter.ofPattern("dd/MM/yyyy 'a las' HH:mm"));
-
-        // Construir el asunto y el cuerpo del mensaje
-        String subject = "Recordatorio de tu cita";
-        String body = String.format(
-                "<p>Cordial saludo:</p>" +
-                        "<p>Te queremos recordar que tienes una cita pendiente de <strong>%s</strong> programada para <strong>%s</strong>.</p>" +
-                        "<p>Te esperamos, gracias.</p>" +
-                        "<p><em>Bienestar Universitario.</em></p>",
-                availableDates.getTypeAppointment(),
-                formattedDateTime
-        );
-
-        // Enviar la notificación
-        notificationService.sendNotification(userEntity.getEmail(), subject, body);
-    }
-
     @Override
     public ResponseAppointmentReservationProfessional allAppointmentProfessional(Integer professionalId) {
         return null;
@@ -197,6 +167,25 @@ public class AppointmentReservationServiceImpl implements IAppointmentReservatio
         );
     }
 
+    @Override
+    public CursorSlice<AppointmentReservationProfessionalDTO> allAppointmentProfessional(Integer professionalId, boolean pending, String cursor, int size) {
+        Integer beforeId = Optional.ofNullable(KeysetCursor.decode(cursor)).orElse(Integer.MAX_VALUE);
+        int limit = KeysetCursor.size(size);
+
+        // Las columnas de la cita, la fecha y el estudiante llegan proyectadas en una sola consulta;
+        // el profesional es el mismo para todas las filas y se carga una sola vez
+        List<ProfessionalAppointmentRow> page = appointmentReservationRepository
+                .findProfessionalAppointmentsBefore(professionalId, pending, beforeId, PageRequest.of(0, limit + 1));
+        UserEntityDTO professional = page.isEmpty() ? null : userEntityRepository.findById(professionalId)
+                .map(UserEntityDTO::new)
+                .orElse(null);
+        List<AppointmentReservationProfessionalDTO> rows = page.stream()
+                .map(row -> new AppointmentReservationProfessionalDTO(row, professional))
+                .toList();
+
+        return CursorSlice.of(rows, limit, AppointmentReservationProfessionalDTO::reservationId);
+    }
+
     @Override
     public ResponseAppointmentReservationProfessional allAppointmentProfessionalAttendedByDate(Integer professionalId, String specificDate, Pageable pageable) {
         // Define el formato esperado
@@ -253,12 +242,13 @@ public class AppointmentReservationServiceImpl implements IAppointmentReservatio
 
         AvailableDates availableDates = appointmentReservation.getAvailableDates();
 
-        taskManager.cancelTask(id);
+        appointmentTimerService.cancelAppointment(id);
 
         availableDates.setAvailable(true);
 
         availableDatesRepository.save(availableDates);
         appointmentReservationRepository.delete(appointmentReservation);
+        appointmentSlotsBroadcaster.slotsChanged(availableDates.getTypeAppointment());
         return new ResponseAppointmentCancel("Se cancelado la reserva", appointmentReservation.getAvailableDates());
     }
 
@@ -320,14 +310,7 @@ public class AppointmentReservationServiceImpl implements IAppointmentReservatio
         AppointmentReservation savedAppointment = appointmentReservationRepository.save(appointmentReservation);
 
 
-        long delayNotification = Duration.between(LocalDateTime.now(), availableDates.getDateTime().minusHours(2)).toMillis();
-        taskManager.scheduleTask(savedAppointment.getId(), () -> sendNotification(userEntity, availableDates), delayNotification);
-
-        long delayStatusUpdate = Duration.between(LocalDateTime.now(), availableDates.getDateTime()).toMillis();
-        taskManager.scheduleTask(savedAppointment.getId(), () -> {
-            savedAppointment.setPendingAppointment(false);
-            appointmentReservationRepository.save(savedAppointment);
-        }, delayStatusUpdate);
+        appointmentTimerService.scheduleAppointment(savedAppointment.getId(), availableDates.getDateTime());
 
         return new ResponseAppointmentFollowUp("Se ha reservado la cita con exito", userEntity.getName(), professional.getName());
     }
@@ -383,94 +366,27 @@ public class AppointmentReservationServiceImpl implements IAppointmentReservatio
     }
 
     @Override
-    public ByteArrayInputStream downloadAppointmentReport(Integer professionalId) {
-        // Obtener todas las citas atendidas por un profesional
-        List<AppointmentReservation> appointmentReservations =
-                appointmentReservationRepository.findByAvailableDates_Professional_IdAndPendingAppointmentFalse(professionalId);
-
+    public StreamingResponseBody downloadAppointmentReport(Integer professionalId, ExportRequest export) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-        // Convertir las citas en DTOs
-        List<AppointmentReservationDTO> reservationDTOs = appointmentReservations.stream()
-                .map(reservation -> new AppointmentReservationDTO(
-                        reservation.getId(),
-                        reservation.getAvailableDates().getDateTime(),
-                        reservation.getAvailableDates().getTypeAppointment().name(),
-                        reservation.getAssistant(),
-                        reservation.getPendingAppointment(),
-                        new UserAppointmentDTO(
-                                reservation.getEstudiante().getUsername(),
-                                reservation.getEstudiante().getName(),
-                                reservation.getEstudiante().getLastName(),
-                                reservation.getEstudiante().getEmail(),
-                                reservation.getEstudiante().getPlan(),
-                                reservation.getEstudiante().getSemester(),
-                                reservation.getEstudiante().getEps(),
-                                reservation.getEstudiante().getPhone(),
-                                reservation.getEstudiante().getGender() != null
-                                        ? reservation.getEstudiante().getGender().name()
-                                        : null
-                        )
-                ))
-                .toList();
-
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            XSSFSheet sheet = workbook.createSheet("Citas Atendidas");
-
-            // Crear estilos
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerFont.setFontHeightInPoints((short) 12);
-            headerStyle.setFont(headerFont);
-
-            CellStyle normalStyle = workbook.createCellStyle();
-            Font normalFont = workbook.createFont();
-            normalFont.setFontHeightInPoints((short) 12);
-            normalStyle.setFont(normalFont);
-
+        return reportExportEngine.stream(export, "Citas Atendidas", new int[]{18, 16, 35, 35, 14, 30, 10, 20, 12, 8}, sheet -> {
             // Crear encabezados
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {
-                    "Fecha", "Tipo de Cita", "Paciente", "Email", "Teléfono", "Plan", "Semestre", "EPS", "Género", "Asistió"
-            };
-
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            // Poblar filas con datos
-            int rowNum = 1;
-            for (AppointmentReservationDTO dto : reservationDTOs) {
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(dto.dateTime().format(formatter));
-                row.createCell(1).setCellValue(dto.typeAppointment());
-                row.createCell(2).setCellValue(dto.user().name() + " " + dto.user().lastName());
-                row.createCell(3).setCellValue(dto.user().email());
-                row.createCell(4).setCellValue(dto.user().phone() != null ? dto.user().phone().toString() : "");
-                row.createCell(5).setCellValue(dto.user().plan());
-                row.createCell(6).setCellValue(dto.user().semester());
-                row.createCell(7).setCellValue(dto.user().eps());
-                row.createCell(8).setCellValue(dto.user().gender());
-                row.createCell(9).setCellValue(dto.assistant() != null && dto.assistant() ? "Sí" : "No");
+            sheet.header("Fecha", "Tipo de Cita", "Paciente", "Email", "Teléfono", "Plan", "Semestre", "EPS", "Género", "Asistió");
+
+            // Citas atendidas por el profesional, leídas por cursor
+            try (Stream<AttendedAppointmentRow> appointments = appointmentReservationRepository.streamAttended(professionalId)) {
+                appointments.forEach(dto -> sheet.row(
+                        dto.dateTime().format(formatter),
+                        dto.typeAppointment().name(),
+                        dto.name() + " " + dto.lastName(),
+                        dto.email(),
+                        dto.phone() != null ? dto.phone().toString() : "",
+                        dto.plan(),
+                        dto.semester(),
+                        dto.eps(),
+                        dto.gender() != null ? dto.gender().name() : null,
+                        dto.assistant() != null && dto.assistant() ? "Sí" : "No"));
             }
-
-            // Ajustar ancho de columnas automáticamente
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
-
-            // Generar archivo Excel
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
-
-        } catch (IOException e) {
-            throw new RuntimeException("Error al generar el archivo Excel", e);
-        }
-
-
+        });
     }
 }
@@ -1,10 +1,12 @@
 package com.univalle.bubackend.services.appointment.reservation;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
 import com.univalle.bubackend.DTOs.appointment.*;
+import com.univalle.bubackend.services.export.ExportRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
 
 public interface IAppointmentReservationService {
@@ -17,6 +19,8 @@ public interface IAppointmentReservationService {
 
     ResponseAppointmentReservationProfessional allAppointmentProfessionalAttended(Integer professionalId, Pageable pageable);
 
+    CursorSlice<AppointmentReservationProfessionalDTO> allAppointmentProfessional(Integer professionalId, boolean pending, String cursor, int size);
+
     ResponseAppointmentReservationProfessional allAppointmentProfessionalAttendedByDate( Integer professionalId, String specificDate, Pageable pageable);
 
     ResponseAppointmentReservationStudent allAppointmentEstudiante(Integer estudianteId);
@@ -29,5 +33,5 @@ public interface IAppointmentReservationService {
 
     UserResponseAppointment findReservationsByUsername(String username, Pageable pageable);
 
-    ByteArrayInputStream downloadAppointmentReport(Integer professionalId);
+    StreamingResponseBody downloadAppointmentReport(Integer professionalId, ExportRequest export);
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.univalle.bubackend.services.appointment.timer;
+
+import com.univalle.bubackend.repository.AppointmentReservationRepository;
+import com.univalle.bubackend.repository.AvailableDatesRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mantenimiento periódico por conjuntos: una sentencia borra los horarios vencidos que nadie
+ * reservó y otra cierra las citas cuya hora ya pasó. Reemplaza un temporizador por horario y
+ * otro por cita. Es idempotente, así que puede correr en todas las instancias a la vez.
+ */
+@Slf4j
+@Component
+public class AppointmentSweeper {
+
+    private final AvailableDatesRepository availableDatesRepository;
+    private final AppointmentReservationRepository appointmentReservationRepository;
+    private final Counter expiredDates;
+    private final Counter closedAppointments;
+
+    public AppointmentSweeper(AvailableDatesRepository availableDatesRepository,
+                              AppointmentReservationRepository appointmentReservationRepository,
+                              MeterRegistry meterRegistry) {
+        this.availableDatesRepository = availableDatesRepository;
+        this.appointmentReservationRepository = appointmentReservationRepository;
+        this.expiredDates = meterRegistry.counter("appointment.sweep.expired-dates");
+        this.closedAppointments = meterRegistry.counter("appointment.sweep.closed-appointments");
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${appointment.sweep.interval:60000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int closed = appointmentReservationRepository.closePendingBefore(now);
+        int deleted = availableDatesRepository.deleteExpiredAvailable(now);
+
+        expiredDates.increment(deleted);
+        closedAppointments.increment(closed);
+        if (deleted > 0 || closed > 0) {
+            log.info("Barrido de citas: {} horarios vencidos eliminados, {} citas cerradas", deleted, closed);
+        }
+    }
+}
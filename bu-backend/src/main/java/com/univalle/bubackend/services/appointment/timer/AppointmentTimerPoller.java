@@ -0,0 +1,129 @@
+package com.univalle.bubackend.services.appointment.timer;
+
+import com.univalle.bubackend.models.AppointmentReservation;
+import com.univalle.bubackend.models.AppointmentTimer;
+import com.univalle.bubackend.models.AvailableDates;
+import com.univalle.bubackend.repository.AppointmentReservationRepository;
+import com.univalle.bubackend.repository.AppointmentTimerRepository;
+import com.univalle.bubackend.repository.AvailableDatesRepository;
+import com.univalle.bubackend.services.notification.NotificationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Único hilo que ejecuta los temporizadores vencidos. Los reclama por lotes con FOR UPDATE SKIP LOCKED,
+ * así varias instancias no ejecutan el mismo, y cada uno corre en su propia transacción junto con
+ * el borrado de su fila. Si una instancia se cae con temporizadores reclamados, se retoman al vencer el plazo.
+ */
+@Slf4j
+@Component
+public class AppointmentTimerPoller {
+
+    private final AppointmentTimerRepository appointmentTimerRepository;
+    private final AppointmentReservationRepository appointmentReservationRepository;
+    private final AvailableDatesRepository availableDatesRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transaction;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+
+    public AppointmentTimerPoller(AppointmentTimerRepository appointmentTimerRepository,
+                                  AppointmentReservationRepository appointmentReservationRepository,
+                                  AvailableDatesRepository availableDatesRepository,
+                                  NotificationService notificationService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${appointment.timers.batch-size:100}") int batchSize,
+                                  @Value("${appointment.timers.max-attempts:5}") int maxAttempts,
+                                  @Value("${appointment.timers.lease:300000}") long lease) {
+        this.appointmentTimerRepository = appointmentTimerRepository;
+        this.appointmentReservationRepository = appointmentReservationRepository;
+        this.availableDatesRepository = availableDatesRepository;
+        this.notificationService = notificationService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(lease);
+    }
+
+    @Scheduled(fixedDelayString = "${appointment.timers.poll-interval:15000}")
+    public void poll() {
+        List<AppointmentTimer> batch;
+        do {
+            batch = claim();
+            batch.forEach(this::fire);
+        } while (batch.size() == batchSize);
+    }
+
+    private List<AppointmentTimer> claim() {
+        return transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<AppointmentTimer> claimed = new ArrayList<>();
+            for (AppointmentTimer timer : appointmentTimerRepository.lockDue(now, batchSize)) {
+                if (timer.getAttempts() >= maxAttempts) {
+                    log.warn("Se descarta el temporizador {} de {} {} tras {} intentos",
+                            timer.getType(), timer.getTargetId(), timer.getDueAt(), timer.getAttempts());
+                    appointmentTimerRepository.delete(timer);
+                    continue;
+                }
+                // Queda reservado para este nodo hasta que termine o venza el plazo
+                timer.setAttempts(timer.getAttempts() + 1);
+                timer.setDueAt(now.plus(lease));
+                claimed.add(timer);
+            }
+            return claimed;
+        });
+    }
+
+    private void fire(AppointmentTimer timer) {
+        try {
+            transaction.executeWithoutResult(status -> {
+                switch (timer.getType()) {
+                    case REMINDER -> appointmentReservationRepository.findWithDetailsById(timer.getTargetId())
+                            .filter(AppointmentReservation::getPendingAppointment)
+                            .ifPresent(this::sendReminder);
+                    case CLOSE_APPOINTMENT -> appointmentReservationRepository.closePending(timer.getTargetId());
+                    case EXPIRE_AVAILABLE_DATE -> availableDatesRepository.deleteIfAvailable(timer.getTargetId());
+                }
+                appointmentTimerRepository.deleteById(timer.getId());
+            });
+        } catch (Exception e) {
+            log.warn("Falló el temporizador {} de {}: {}", timer.getType(), timer.getTargetId(), e.getMessage());
+        }
+    }
+
+    private void sendReminder(AppointmentReservation appointmentReservation) {
+        AvailableDates availableDates = appointmentReservation.getAvailableDates();
+
+        // Formatear la fecha y hora
+        String formattedDateTime = availableDates.getDateTime()
+                .format(DateTimeFormatter.ofPattern("dd/MM/yyyy 'a las' HH:mm"));
+
+        // Construir el asunto y el cuerpo del mensaje
+        String subject = "Recordatorio de tu cita";
+        String body = String.format(
+                "<p>Cordial saludo:</p>" +
+                        "<p>Te queremos recordar que tienes una cita pendiente de <strong>%s</strong> programada para <strong>%s</strong>.</p>" +
+                        "<p>Te esperamos, gracias.</p>" +
+                        "<p><em>Bienestar Universitario.</em></p>",
+                availableDates.getTypeAppointment(),
+                formattedDateTime
+        );
+
+        // El correo queda en la cola de salida dentro de la misma transacción que borra el temporizador
+        notificationService.sendNotification(appointmentReservation.getEstudiante().getEmail(), subject, body);
+    }
+}
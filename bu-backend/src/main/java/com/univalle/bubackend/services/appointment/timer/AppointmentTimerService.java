@@ -0,0 +1,41 @@
+package com.univalle.bubackend.services.appointment.timer;
+
+import com.univalle.bubackend.models.AppointmentTimerType;
+import com.univalle.bubackend.repository.AppointmentTimerRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+
+/**
+ * Programa los temporizadores de las citas en la tabla appointment_timer. Se guardan en la misma
+ * transacción que la cita, sobreviven a reinicios y los ejecuta {@link AppointmentTimerPoller}.
+ */
+@Service
+public class AppointmentTimerService {
+
+    private final AppointmentTimerRepository appointmentTimerRepository;
+
+    public AppointmentTimerService(AppointmentTimerRepository appointmentTimerRepository) {
+        this.appointmentTimerRepository = appointmentTimerRepository;
+    }
+
+    /**
+     * Recordatorio dos horas antes de la cita. El cierre a la hora de inicio lo hace {@link AppointmentSweeper}.
+     */
+    @Transactional
+    public void scheduleAppointment(Integer appointmentId, LocalDateTime dateTime) {
+        schedule(AppointmentTimerType.REMINDER, appointmentId, dateTime.minusHours(2));
+    }
+
+    @Transactional
+    public void cancelAppointment(Integer appointmentId) {
+        appointmentTimerRepository.deleteByTarget(appointmentId,
+                EnumSet.of(AppointmentTimerType.REMINDER, AppointmentTimerType.CLOSE_APPOINTMENT));
+    }
+
+    private void schedule(AppointmentTimerType type, Integer targetId, LocalDateTime dueAt) {
+        appointmentTimerRepository.upsert(type.name(), targetId, dueAt);
+    }
+}
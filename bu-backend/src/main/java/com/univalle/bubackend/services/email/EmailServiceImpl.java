@@ -2,8 +2,6 @@ package com.univalle.bubackend.services.email;
 
 import com.univalle.bubackend.models.Reservation;
 import lombok.AllArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -14,16 +12,13 @@ import java.time.format.DateTimeFormatter;
 @AllArgsConstructor
 public class EmailServiceImpl implements IEmailService {
 
-    public JavaMailSender mailSender;
+    private MailOutboxService mailOutboxService;
 
     @Override
     public void sendPasswordResetEmail(String email, String token) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("Password Reset");
-        message.setText("Para restablecer tu contraseña, haz clic en el siguiente enlace: " +
-                "http://localhost:5173/confirmarcontrasena?token=" + token);
-        mailSender.send(message);
+        mailOutboxService.enqueue(email, "Password Reset",
+                "Para restablecer tu contraseña, haz clic en el siguiente enlace: " +
+                "http://localhost:5173/confirmarcontrasena?token=" + token, false);
     }
 
     @Override
@@ -34,12 +29,9 @@ public class EmailServiceImpl implements IEmailService {
         String formattedDate = date.format(dateFormatter);
         String formattedTime = time.format(timeFormatter);
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(reservation.getUserEntity().getEmail());
-        message.setSubject("Confirmación de Cancelación de Reserva");
-        message.setText("Su reserva de " + type + " ha sido cancelada con éxito el día " + formattedDate +
-                " a las " + formattedTime + ".");
-        mailSender.send(message);
+        mailOutboxService.enqueue(reservation.getUserEntity().getEmail(), "Confirmación de Cancelación de Reserva",
+                "Su reserva de " + type + " ha sido cancelada con éxito el día " + formattedDate +
+                " a las " + formattedTime + ".", false);
     }
 
 }
\ No newline at end of file
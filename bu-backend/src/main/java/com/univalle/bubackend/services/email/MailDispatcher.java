@@ -0,0 +1,212 @@
+package com.univalle.bubackend.services.email;
+
+import com.univalle.bubackend.models.MailOutbox;
+import com.univalle.bubackend.models.MailStatus;
+import com.univalle.bubackend.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envía los correos de mail_outbox. Cada trabajador toma un lote con FOR UPDATE SKIP LOCKED
+ * (varias instancias no se pisan), lo envía por una sola conexión SMTP y marca el resultado
+ * de cada mensaje. Los fallidos se reintentan con espera exponencial hasta agotar los intentos.
+ */
+@Slf4j
+@Component
+public class MailDispatcher {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final ThreadPoolTaskExecutor mailExecutor;
+    private final TransactionTemplate transaction;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration lease;
+
+    private final Timer sendLatency;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    public MailDispatcher(MailOutboxRepository mailOutboxRepository,
+                          JavaMailSender mailSender,
+                          @Qualifier("mailExecutor") ThreadPoolTaskExecutor mailExecutor,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${mail.outbox.batch-size:20}") int batchSize,
+                          @Value("${mail.outbox.max-attempts:6}") int maxAttempts,
+                          @Value("${mail.outbox.backoff:30000}") long backoff,
+                          @Value("${mail.outbox.lease:300000}") long lease) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoff = Duration.ofMillis(backoff);
+        this.lease = Duration.ofMillis(lease);
+
+        this.sendLatency = meterRegistry.timer("mail.send.latency");
+        this.sent = meterRegistry.counter("mail.messages.sent");
+        this.retried = meterRegistry.counter("mail.messages.retried");
+        this.failed = meterRegistry.counter("mail.messages.failed");
+        Gauge.builder("mail.outbox.depth", queueDepth, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Pide a un trabajador que vacíe la cola. Si todos están ocupados no hace nada:
+     * el que esté trabajando o el siguiente sondeo tomará los mensajes.
+     */
+    public void wakeUp() {
+        mailExecutor.execute(this::drain);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval:10000}")
+    public void poll() {
+        queueDepth.set(mailOutboxRepository.countByStatusIn(EnumSet.of(MailStatus.PENDING, MailStatus.SENDING)));
+        if (queueDepth.get() > 0) {
+            wakeUp();
+        }
+    }
+
+    @Scheduled(cron = "${mail.outbox.cleanup-cron:0 30 3 * * *}")
+    public void cleanup() {
+        transaction.executeWithoutResult(status ->
+                mailOutboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(7)));
+    }
+
+    void drain() {
+        List<MailOutbox> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<MailOutbox> claim() {
+        return transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MailOutbox> due = mailOutboxRepository.lockDue(now, batchSize);
+            // Mientras se envían quedan reservados; si la instancia se cae, se retoman al vencer el plazo
+            due.forEach(mail -> {
+                mail.setStatus(MailStatus.SENDING);
+                mail.setNextAttemptAt(now.plus(lease));
+            });
+            return due;
+        });
+    }
+
+    private void send(List<MailOutbox> batch) {
+        Map<MimeMessage, MailOutbox> messages = new IdentityHashMap<>();
+        Map<MailOutbox, Exception> failures = new IdentityHashMap<>();
+
+        for (MailOutbox mail : batch) {
+            try {
+                messages.put(toMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                failures.put(mail, e);
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            // Un solo envío de varios mensajes reutiliza la misma conexión SMTP
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((message, error) -> {
+                MailOutbox mail = message instanceof MimeMessage mimeMessage ? messages.get(mimeMessage) : null;
+                if (mail != null) {
+                    failures.put(mail, error);
+                }
+            });
+            if (e.getFailedMessages().isEmpty()) {
+                messages.values().forEach(mail -> failures.put(mail, e));
+            }
+        } catch (MailException e) {
+            messages.values().forEach(mail -> failures.put(mail, e));
+        } finally {
+            if (!messages.isEmpty()) {
+                sendLatency.record(Duration.ofNanos(System.nanoTime() - start));
+            }
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (MailOutbox mail : batch) {
+            if (!failures.containsKey(mail)) {
+                sentIds.add(mail.getId());
+            }
+        }
+
+        transaction.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!sentIds.isEmpty()) {
+                mailOutboxRepository.markSent(sentIds, now);
+            }
+            failures.forEach((mail, error) -> {
+                mail.setAttempts(mail.getAttempts() + 1);
+                mail.setLastError(truncate(error.getMessage()));
+                if (mail.getAttempts() >= maxAttempts) {
+                    mail.setStatus(MailStatus.FAILED);
+                    failed.increment();
+                    log.warn("No se pudo enviar el correo {} a {} tras {} intentos: {}",
+                            mail.getId(), mail.getRecipient(), mail.getAttempts(), error.getMessage());
+                } else {
+                    mail.setStatus(MailStatus.PENDING);
+                    mail.setNextAttemptAt(now.plus(backoff.multipliedBy(1L << (mail.getAttempts() - 1))));
+                    retried.increment();
+                }
+                mailOutboxRepository.save(mail);
+            });
+        });
+
+        sent.increment(sentIds.size());
+    }
+
+    private MimeMessage toMimeMessage(MailOutbox mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, Boolean.TRUE.equals(mail.getHtml()), "UTF-8");
+        helper.setTo(mail.getRecipient());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getBody(), Boolean.TRUE.equals(mail.getHtml()));
+        return message;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
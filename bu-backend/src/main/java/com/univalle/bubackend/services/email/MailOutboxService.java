@@ -0,0 +1,49 @@
+package com.univalle.bubackend.services.email;
+
+import com.univalle.bubackend.models.MailOutbox;
+import com.univalle.bubackend.repository.MailOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Encola correos en la tabla mail_outbox. Si hay una transacción activa, el correo se guarda
+ * con ella (solo existe si se confirma) y el despachador se despierta después del commit;
+ * ningún hilo de petición espera al servidor SMTP.
+ */
+@Service
+public class MailOutboxService {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailDispatcher mailDispatcher;
+
+    public MailOutboxService(MailOutboxRepository mailOutboxRepository, MailDispatcher mailDispatcher) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailDispatcher = mailDispatcher;
+    }
+
+    public void enqueue(String to, String subject, String body, boolean html) {
+        LocalDateTime now = LocalDateTime.now();
+        mailOutboxRepository.save(MailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .html(html)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mailDispatcher.wakeUp();
+                }
+            });
+        } else {
+            mailDispatcher.wakeUp();
+        }
+    }
+}
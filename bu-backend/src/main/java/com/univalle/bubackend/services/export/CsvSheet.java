@@ -0,0 +1,65 @@
+package com.univalle.bubackend.services.export;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Un encabezado y las filas, para que el archivo se pueda leer con cualquier herramienta de CSV.
+ * Los datos generales del informe van en el nombre del archivo.
+ */
+class CsvSheet implements ExportSheet {
+
+    private final CSVPrinter printer;
+    private boolean header;
+
+    CsvSheet(Writer writer) throws IOException {
+        this.printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
+    }
+
+    @Override
+    public boolean tabular() {
+        return true;
+    }
+
+    @Override
+    public void info(Object... labelsAndValues) {
+    }
+
+    @Override
+    public void title(String title) {
+    }
+
+    @Override
+    public void header(Object... columns) {
+        if (header) {
+            throw new IllegalStateException("Un CSV solo puede tener un encabezado");
+        }
+        header = true;
+        print(columns);
+    }
+
+    @Override
+    public void row(Object... values) {
+        print(values);
+    }
+
+    @Override
+    public void skip() {
+    }
+
+    void flush() throws IOException {
+        printer.flush();
+    }
+
+    private void print(Object... values) {
+        try {
+            printer.printRecord(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.univalle.bubackend.services.export;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Hoja que se escribe fila por fila sobre un {@link SXSSFWorkbook}: solo las últimas filas quedan
+ * en memoria y el resto se vuelca a un archivo temporal. Aplica los estilos que usan los informes.
+ */
+class ExcelSheet implements ExportSheet {
+
+    private final SXSSFSheet sheet;
+    private int rowNum;
+
+    private final CellStyle boldStyle;
+    private final CellStyle redBoldStyle;
+    private final CellStyle grayHeaderStyle;
+    private final CellStyle normalStyle;
+
+    ExcelSheet(SXSSFWorkbook workbook, String name, int[] columnWidths) {
+        this.sheet = workbook.createSheet(name);
+
+        // Anchos fijos en caracteres: autoSizeColumn necesitaría recorrer todas las filas
+        for (int i = 0; i < columnWidths.length; i++) {
+            sheet.setColumnWidth(i, columnWidths[i] * 256);
+        }
+
+        Font boldFont = workbook.createFont();
+        boldFont.setBold(true);
+        boldFont.setFontHeightInPoints((short) 12);
+
+        Font redBoldFont = workbook.createFont();
+        redBoldFont.setBold(true);
+        redBoldFont.setFontHeightInPoints((short) 12);
+        redBoldFont.setColor(IndexedColors.RED.getIndex());
+
+        Font normalFont = workbook.createFont();
+        normalFont.setFontHeightInPoints((short) 12);
+
+        boldStyle = workbook.createCellStyle();
+        boldStyle.setFont(boldFont);
+
+        redBoldStyle = workbook.createCellStyle();
+        redBoldStyle.setFont(redBoldFont);
+
+        grayHeaderStyle = workbook.createCellStyle();
+        grayHeaderStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        grayHeaderStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        grayHeaderStyle.setFont(boldFont);
+        grayHeaderStyle.setAlignment(HorizontalAlignment.CENTER);
+
+        normalStyle = workbook.createCellStyle();
+        normalStyle.setFont(normalFont);
+    }
+
+    @Override
+    public boolean tabular() {
+        return false;
+    }
+
+    @Override
+    public void info(Object... labelsAndValues) {
+        Row row = sheet.createRow(rowNum++);
+        for (int i = 0; i < labelsAndValues.length; i++) {
+            write(row, i, labelsAndValues[i], i % 2 == 0 ? boldStyle : normalStyle);
+        }
+    }
+
+    @Override
+    public void title(String title) {
+        write(sheet.createRow(rowNum++), 0, title, redBoldStyle);
+    }
+
+    @Override
+    public void header(Object... columns) {
+        write(columns, grayHeaderStyle);
+    }
+
+    @Override
+    public void row(Object... values) {
+        write(values, null);
+    }
+
+    @Override
+    public void skip() {
+        rowNum++;
+    }
+
+    private void write(Object[] values, CellStyle style) {
+        Row row = sheet.createRow(rowNum++);
+        for (int i = 0; i < values.length; i++) {
+            write(row, i, values[i], style);
+        }
+    }
+
+    private static void write(Row row, int column, Object value, CellStyle style) {
+        Cell cell = row.createCell(column);
+        if (value == null) {
+            cell.setBlank();
+        } else if (value instanceof Number number) {
+            cell.setCellValue(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            cell.setCellValue(bool);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+        if (style != null) {
+            cell.setCellStyle(style);
+        }
+    }
+}
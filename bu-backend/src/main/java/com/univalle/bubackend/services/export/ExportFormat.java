@@ -0,0 +1,52 @@
+package com.univalle.bubackend.services.export;
+
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public enum ExportFormat {
+    XLSX(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"), "xlsx"),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    public static final String XLSX_VALUE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    public static final String CSV_VALUE = "text/csv";
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Elige el formato según el encabezado Accept, respetando la calidad (q) de cada tipo.
+     * Si el cliente acepta cualquiera (o no envía Accept) se mantiene Excel.
+     */
+    public static ExportFormat negotiate(List<MediaType> accept) {
+        List<MediaType> ordered = new ArrayList<>(accept);
+        ordered.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+
+        for (MediaType mediaType : ordered) {
+            if (mediaType.isWildcardType()) {
+                return XLSX;
+            }
+            for (ExportFormat format : values()) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return XLSX;
+    }
+}
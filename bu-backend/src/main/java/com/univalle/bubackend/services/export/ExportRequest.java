@@ -0,0 +1,56 @@
+package com.univalle.bubackend.services.export;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * Formato negociado para una descarga y si el cuerpo se comprime con gzip
+ * (solo CSV: el xlsx ya es un zip).
+ */
+public record ExportRequest(ExportFormat format, boolean gzip) {
+
+    public static ExportRequest from(HttpHeaders headers) {
+        ExportFormat format = ExportFormat.negotiate(headers.getAccept());
+        boolean gzip = format == ExportFormat.CSV && acceptsGzip(headers.getValuesAsList(HttpHeaders.ACCEPT_ENCODING));
+        return new ExportRequest(format, gzip);
+    }
+
+    /**
+     * Según RFC 9110: gzip se acepta si aparece con q mayor que 0, o si no aparece y "*" tiene
+     * q mayor que 0. "gzip;q=0" lo rechaza aunque "*" lo permita.
+     */
+    static boolean acceptsGzip(List<String> codings) {
+        Double gzip = null;
+        Double any = null;
+        for (String coding : codings) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            double quality = quality(parts);
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    // Sin q, o con un valor que no se entiende, cuenta como 1
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,40 @@
+package com.univalle.bubackend.services.export;
+
+/**
+ * Destino de las filas de un informe, independiente del formato. En Excel los títulos y
+ * encabezados llevan estilo y puede haber varias tablas; en CSV hay un solo encabezado seguido de
+ * las filas, así que los datos generales, títulos y filas en blanco se omiten.
+ */
+public interface ExportSheet {
+
+    /**
+     * Si la hoja admite una sola tabla (CSV). Los informes con varias secciones las unen en una
+     * tabla o exportan solo la principal.
+     */
+    boolean tabular();
+
+    /**
+     * Fila de datos generales en pares etiqueta, valor: "Fecha", fecha, "Tipo de beca", beca...
+     */
+    void info(Object... labelsAndValues);
+
+    /**
+     * Título de una sección del informe.
+     */
+    void title(String title);
+
+    /**
+     * Encabezados de las columnas de una tabla. En una hoja tabular solo se permite uno.
+     */
+    void header(Object... columns);
+
+    /**
+     * Fila de datos. Los valores null quedan vacíos.
+     */
+    void row(Object... values);
+
+    /**
+     * Fila en blanco entre secciones.
+     */
+    void skip();
+}
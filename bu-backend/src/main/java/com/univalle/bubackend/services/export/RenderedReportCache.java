@@ -0,0 +1,232 @@
+package com.univalle.bubackend.services.export;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco local de informes ya generados. Los informes finalizados no cambian, así que el
+ * archivo se genera una vez por informe, formato y versión de datos y las descargas siguientes
+ * lo sirven desde disco sin consultar ni volver a generar. Los archivos se nombran por su SHA-256,
+ * que también es el ETag. Al superar el tamaño máximo se borran los menos usados recientemente.
+ * Un archivo que se está descargando no se borra hasta que termina la petición que lo lee.
+ */
+@Slf4j
+@Component
+public class RenderedReportCache {
+
+    // Sube cuando cambia el formato de los archivos, para no servir los generados antes
+    private static final int LAYOUT_VERSION = 2;
+
+    private final ReportArtifactStore store;
+    private final long maxSize;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    // En orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<String, CachedReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Claves por archivo, varias pueden compartir el mismo contenido
+    private final Map<String, Integer> references = new HashMap<>();
+    // Peticiones en curso por archivo: si se expulsa mientras tanto, se borra al terminar la última
+    private final Map<String, Integer> readers = new HashMap<>();
+    private final AtomicLong readerIds = new AtomicLong();
+    private long size;
+
+    private final ConcurrentHashMap<String, CompletableFuture<CachedReport>> rendering = new ConcurrentHashMap<>();
+
+    public RenderedReportCache(@Value("${report.cache.dir:${java.io.tmpdir}/bu-report-cache}") String directory,
+                               @Value("${report.cache.max-size:268435456}") long maxSize,
+                               MeterRegistry meterRegistry) throws IOException {
+        Path path = Files.createDirectories(Path.of(directory));
+        // El índice vive en memoria: lo que quedó de una ejecución anterior no se puede reutilizar
+        try (Stream<Path> files = Files.list(path)) {
+            files.forEach(file -> file.toFile().delete());
+        }
+        this.store = new ReportArtifactStore(directory);
+        this.maxSize = maxSize;
+        this.hits = meterRegistry.counter("report.cache.hits");
+        this.misses = meterRegistry.counter("report.cache.misses");
+        this.evictions = meterRegistry.counter("report.cache.evictions");
+    }
+
+    public record CachedReport(String key, Path path, String hash, long length, String filename, ExportRequest export) {
+    }
+
+    /**
+     * El archivo devuelto queda reservado hasta que termina la petición actual, para que una
+     * expulsión no lo borre mientras se envía. Fuera de una petición no se reserva.
+     *
+     * @param kind     tipo de informe, por ejemplo "report" o "nursing"
+     * @param version  datos que identifican el contenido del informe; si cambian, la entrada anterior no se usa
+     * @param filename nombre de la descarga, sin extensión
+     * @param render   genera el archivo si no está en caché
+     */
+    public CachedReport get(String kind, Integer id, String version, String filename, ExportRequest export,
+                            Supplier<StreamingResponseBody> render) {
+        String key = prefix(kind, id) + export.format() + ":" + export.gzip() + ":" + LAYOUT_VERSION + ":" + version;
+
+        CachedReport cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        // Una sola generación por clave: las descargas simultáneas esperan la misma
+        CompletableFuture<CachedReport> mine = new CompletableFuture<>();
+        CompletableFuture<CachedReport> running = rendering.putIfAbsent(key, mine);
+        if (running != null) {
+            CachedReport rendered = await(running);
+            // Si lo expulsaron antes de reservarlo, se vuelve a buscar o generar
+            return pin(rendered) ? rendered : get(kind, id, version, filename, export, render);
+        }
+
+        try {
+            misses.increment();
+            ReportArtifactStore.Artifact artifact = store.write(extension(export), render.get(), bytes -> {
+            });
+            CachedReport rendered = new CachedReport(key, store.resolve(artifact.hash(), extension(export)),
+                    artifact.hash(), artifact.length(), filename, export);
+            add(rendered);
+            mine.complete(rendered);
+            return rendered;
+        } catch (IOException e) {
+            mine.completeExceptionally(e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(key);
+        }
+    }
+
+    /**
+     * Quita todas las entradas del informe, en cualquier formato y versión.
+     */
+    public synchronized void invalidate(String kind, Integer id) {
+        String prefix = prefix(kind, id);
+        Iterator<CachedReport> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CachedReport entry = iterator.next();
+            if (entry.key().startsWith(prefix)) {
+                iterator.remove();
+                release(entry);
+            }
+        }
+    }
+
+    private synchronized CachedReport lookup(String key) {
+        CachedReport entry = entries.get(key);
+        if (entry != null && !Files.exists(entry.path())) {
+            entries.remove(key);
+            release(entry);
+            return null;
+        }
+        if (entry != null) {
+            pin(entry);
+        }
+        return entry;
+    }
+
+    private synchronized void add(CachedReport entry) {
+        if (references.merge(file(entry), 1, Integer::sum) == 1) {
+            size += entry.length();
+        }
+        pin(entry);
+        CachedReport previous = entries.put(entry.key(), entry);
+        if (previous != null) {
+            release(previous);
+        }
+
+        Iterator<CachedReport> eldest = entries.values().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            CachedReport evicted = eldest.next();
+            if (evicted == entry) {
+                break;
+            }
+            eldest.remove();
+            release(evicted);
+            evictions.increment();
+        }
+    }
+
+    // Borra el archivo cuando ninguna clave lo usa y nadie lo está descargando
+    private void release(CachedReport entry) {
+        Integer remaining = references.computeIfPresent(file(entry), (name, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            size -= entry.length();
+            if (!readers.containsKey(file(entry))) {
+                store.delete(entry.hash(), extension(entry.export()));
+            }
+        }
+    }
+
+    /**
+     * Reserva el archivo hasta que termina la petición actual. Devuelve false si ya no existe.
+     */
+    private synchronized boolean pin(CachedReport entry) {
+        if (!references.containsKey(file(entry))) {
+            return false;
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return true;
+        }
+        readers.merge(file(entry), 1, Integer::sum);
+        request.registerDestructionCallback(RenderedReportCache.class.getName() + ".reader." + readerIds.incrementAndGet(),
+                () -> unpin(entry), RequestAttributes.SCOPE_REQUEST);
+        return true;
+    }
+
+    private synchronized void unpin(CachedReport entry) {
+        Integer remaining = readers.computeIfPresent(file(entry), (name, count) -> count > 1 ? count - 1 : null);
+        // Se expulsó durante la descarga y ninguna clave lo volvió a usar
+        if (remaining == null && !references.containsKey(file(entry))) {
+            store.delete(entry.hash(), extension(entry.export()));
+        }
+    }
+
+    private static CachedReport await(CompletableFuture<CachedReport> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+
+    private static String prefix(String kind, Integer id) {
+        return kind + ":" + id + ":";
+    }
+
+    private static String file(CachedReport entry) {
+        return entry.hash() + "." + extension(entry.export());
+    }
+
+    private static String extension(ExportRequest export) {
+        return export.format().getExtension() + (export.gzip() ? ".gz" : "");
+    }
+}
@@ -0,0 +1,109 @@
+package com.univalle.bubackend.services.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.LongConsumer;
+
+/**
+ * Archivos de informes generados, guardados en disco local con su SHA-256 como nombre.
+ * Se escriben a un temporal mientras se calcula el hash y al terminar se mueven a su nombre
+ * definitivo, así que un archivo con nombre siempre está completo. Dos informes con el mismo
+ * contenido comparten el archivo.
+ */
+@Slf4j
+@Component
+public class ReportArtifactStore {
+
+    private final Path directory;
+
+    public ReportArtifactStore(@Value("${report.jobs.storage-dir:${java.io.tmpdir}/bu-reports}") String directory) throws IOException {
+        this.directory = Files.createDirectories(Path.of(directory));
+    }
+
+    public record Artifact(String hash, long length) {
+    }
+
+    /**
+     * @param progress recibe los bytes escritos hasta el momento
+     */
+    public Artifact write(String extension, StreamingResponseBody body, LongConsumer progress) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(directory, "render-", ".tmp");
+        try {
+            CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), progress);
+            try (OutputStream out = new DigestOutputStream(counter, digest)) {
+                body.writeTo(out);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(hash, extension);
+            if (Files.exists(target)) {
+                Files.delete(temp);
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new Artifact(hash, counter.count);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Path resolve(String hash, String extension) {
+        return directory.resolve(hash + "." + extension);
+    }
+
+    public void delete(String hash, String extension) {
+        try {
+            Files.deleteIfExists(resolve(hash, extension));
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el informe {}: {}", hash, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private final LongConsumer progress;
+        private long count;
+
+        CountingOutputStream(OutputStream out, LongConsumer progress) {
+            super(out);
+            this.progress = progress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+            progress.accept(count);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+            progress.accept(count);
+        }
+    }
+}
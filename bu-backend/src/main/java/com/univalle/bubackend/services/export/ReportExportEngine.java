@@ -0,0 +1,129 @@
+package com.univalle.bubackend.services.export;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exporta informes directo a la respuesta HTTP, en Excel o CSV. Las filas se leen de consultas que
+ * devuelven un Stream (cursor con fetch size) dentro de una transacción de solo lectura que dura
+ * lo que dura la escritura. Excel se escribe con SXSSF y CSV con commons-csv (con gzip si el
+ * cliente lo acepta), así que la memoria no crece con el número de filas.
+ */
+@Component
+public class ReportExportEngine {
+
+    // Filas que SXSSF mantiene en memoria antes de volcarlas al archivo temporal
+    private static final int WINDOW_SIZE = 100;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ReportExportEngine(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @param columnWidths anchos de columna en caracteres, solo se usan en Excel
+     */
+    public StreamingResponseBody stream(ExportRequest export, String sheetName, int[] columnWidths, Consumer<ExportSheet> content) {
+        return switch (export.format()) {
+            case XLSX -> out -> writeExcel(out, sheetName, columnWidths, content);
+            case CSV -> out -> writeCsv(out, export.gzip(), content);
+        };
+    }
+
+    public static ResponseEntity<StreamingResponseBody> download(String filename, ExportRequest export, StreamingResponseBody body) {
+        return attachment(filename, export).body(body);
+    }
+
+    /**
+     * Sirve un informe desde la caché. El hash del archivo es el ETag: Spring responde 304 si
+     * coincide con If-None-Match y 206 si la petición trae Range.
+     */
+    public static ResponseEntity<Resource> download(RenderedReportCache.CachedReport report) {
+        return attachment(report.filename(), report.export())
+                .eTag(report.hash())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new FileSystemResource(report.path()));
+    }
+
+    /**
+     * Nombre de archivo con los datos generales del informe, que en CSV no van dentro del archivo:
+     * ("informe_beca", 2024-05-02, "Almuerzo") -> "informe_beca_2024-05-02_Almuerzo".
+     */
+    public static String filename(Object... parts) {
+        StringBuilder name = new StringBuilder();
+        for (Object part : parts) {
+            if (part == null) {
+                continue;
+            }
+            if (!name.isEmpty()) {
+                name.append('_');
+            }
+            name.append(part);
+        }
+        // Solo caracteres seguros para Content-Disposition sin comillas
+        return name.toString().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    // NO_ASISTIO -> "No asistio"
+    public static String label(Enum<?> value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString().toLowerCase().replace("_", " ");
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private static ResponseEntity.BodyBuilder attachment(String filename, ExportRequest export) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename + "." + export.format().getExtension())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(export.format().getMediaType());
+        if (export.gzip()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response;
+    }
+
+    private void writeExcel(OutputStream out, String sheetName, int[] columnWidths, Consumer<ExportSheet> content) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW_SIZE);
+        workbook.setCompressTempFiles(true);
+        try {
+            ExcelSheet sheet = new ExcelSheet(workbook, sheetName, columnWidths);
+            readOnlyTransaction.executeWithoutResult(status -> content.accept(sheet));
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeCsv(OutputStream out, boolean gzip, Consumer<ExportSheet> content) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 8192) : null;
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip ? compressed : out, StandardCharsets.UTF_8));
+
+        CsvSheet sheet = new CsvSheet(writer);
+        readOnlyTransaction.executeWithoutResult(status -> content.accept(sheet));
+        sheet.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+    }
+}
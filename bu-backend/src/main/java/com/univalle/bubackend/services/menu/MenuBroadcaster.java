@@ -0,0 +1,38 @@
+package com.univalle.bubackend.services.menu;
+
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.cluster.ClusterEventType;
+import com.univalle.bubackend.websocket.WebSocketHandler;
+import com.univalle.bubackend.websocket.WebSocketTopics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Avisa a los suscriptores del tema del menú de todas las instancias que el menú cambió.
+ */
+@Component
+public class MenuBroadcaster {
+
+    private static final String MESSAGE = "{\"type\":\"menu\"}";
+
+    private final WebSocketHandler webSocketHandler;
+    private final ClusterEventBus clusterEventBus;
+
+    public MenuBroadcaster(WebSocketHandler webSocketHandler, ClusterEventBus clusterEventBus) {
+        this.webSocketHandler = webSocketHandler;
+        this.clusterEventBus = clusterEventBus;
+    }
+
+    public void menuChanged() {
+        clusterEventBus.menuChanged();
+    }
+
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        // Tras una resincronización no se sabe si el menú cambió: los clientes lo vuelven a pedir
+        if (event.type() == ClusterEventType.MENU_CHANGED || event.type() == ClusterEventType.RESYNC) {
+            webSocketHandler.publish(WebSocketTopics.MENU, MESSAGE);
+        }
+    }
+}
@@ -15,11 +15,13 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class MenuServiceImpl implements IMenuService{
     private MenuRepository menuRepository;
+    private MenuBroadcaster menuBroadcaster;
 
     @Override
     public CreateMenuRequest createMenu(CreateMenuRequest createMenuRequest) {
         Menu menu = new Menu(createMenuRequest);
         menuRepository.save(menu);
+        menuBroadcaster.menuChanged();
         return new CreateMenuRequest(menu.getId(), menu.getMainDish(), menu.getDrink(), menu.getDessert(), menu.getPrice(), menu.getNote(), menu.getLink());
 
     }
@@ -54,6 +56,7 @@ public class MenuServiceImpl implements IMenuService{
             menuExist.setNote(createMenuRequest.note());
             menuExist.setLink(createMenuRequest.link());
             menuRepository.save(menuExist);
+            menuBroadcaster.menuChanged();
             return createMenuRequest;
         } else {
             throw new MenuNotFound("Menu no encontrado");
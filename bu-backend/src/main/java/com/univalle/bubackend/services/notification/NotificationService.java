@@ -1,33 +1,18 @@
 package com.univalle.bubackend.services.notification;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import com.univalle.bubackend.services.email.MailOutboxService;
 import org.springframework.stereotype.Service;
 
 @Service
 public class NotificationService {
 
-    private JavaMailSender mailSender;
+    private final MailOutboxService mailOutboxService;
 
-    public NotificationService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public NotificationService(MailOutboxService mailOutboxService) {
+        this.mailOutboxService = mailOutboxService;
     }
 
     public void sendNotification(String to, String subject, String body) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(body, true);
-
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Error al enviar el correo: " + e.getMessage());
-        }
+        mailOutboxService.enqueue(to, subject, body, true);
     }
-}
\ No newline at end of file
+}
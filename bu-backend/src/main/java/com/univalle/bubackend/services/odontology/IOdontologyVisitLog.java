@@ -2,9 +2,10 @@ package com.univalle.bubackend.services.odontology;
 
 import com.univalle.bubackend.DTOs.odontology.*;
 import com.univalle.bubackend.models.VisitOdontologyLog;
+import com.univalle.bubackend.services.export.ExportRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -17,5 +18,5 @@ public interface IOdontologyVisitLog {
 
     VisitResponse getOdontologyVisit(Long id);
 
-    ByteArrayInputStream downloadOdontologyReport();
+    StreamingResponseBody downloadOdontologyReport(ExportRequest export);
 }
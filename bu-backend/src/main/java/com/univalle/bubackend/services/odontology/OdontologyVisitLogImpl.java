@@ -8,19 +8,16 @@ import com.univalle.bubackend.models.UserEntity;
 import com.univalle.bubackend.models.VisitOdontologyLog;
 import com.univalle.bubackend.repository.OdontologyVisitRepository;
 import com.univalle.bubackend.repository.UserEntityRepository;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ReportExportEngine;
 import com.univalle.bubackend.services.user.UserServiceImpl;
 import lombok.AllArgsConstructor;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -28,6 +25,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
@@ -37,6 +35,7 @@ public class OdontologyVisitLogImpl implements IOdontologyVisitLog {
     private final UserEntityRepository userEntityRepository;
     private final OdontologyVisitRepository odontologyVisitRepository;
     private final UserServiceImpl userService;
+    private final ReportExportEngine reportExportEngine;
 
     @Override
     public UserResponse findStudentsByUsername(String username) {
@@ -154,77 +153,28 @@ public class OdontologyVisitLogImpl implements IOdontologyVisitLog {
     }
 
     @Override
-    public ByteArrayInputStream downloadOdontologyReport() {
+    public StreamingResponseBody downloadOdontologyReport(ExportRequest export) {
         // Calcular el rango de fechas para el último año
         LocalDateTime endDate = LocalDateTime.now();
         LocalDateTime startDate = endDate.minusYears(1);
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-        // Obtener las visitas de odontología dentro del último año
-        List<VisitOdontologyLog> visitLogs = odontologyVisitRepository.findAllWithinLastYear(startDate, endDate);
-
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            XSSFSheet sheet = workbook.createSheet("Reporte de Odontología");
-
-            // Crear estilos
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerFont.setFontHeightInPoints((short) 12);
-            headerStyle.setFont(headerFont);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
-
-            CellStyle normalStyle = workbook.createCellStyle();
-            Font normalFont = workbook.createFont();
-            normalFont.setFontHeightInPoints((short) 12);
-            normalStyle.setFont(normalFont);
-
+        return reportExportEngine.stream(export, "Reporte de Odontología", new int[]{14, 16, 25, 25, 30, 25, 60}, sheet -> {
             // Encabezado de la tabla
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {"Fecha", "Codigo/CC", "Nombre", "Apellido", "Plan", "Motivo", "Descripción"};
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            // Llenar datos
-            int rowNum = 1;
-            for (VisitOdontologyLog visit : visitLogs) {
-                Row row = sheet.createRow(rowNum++);
-
-                // Fecha (formato legible)
-                row.createCell(0).setCellValue(visit.getDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-
-                // Datos del usuario
-                row.createCell(1).setCellValue(visit.getUser().getUsername());
-                row.createCell(2).setCellValue(visit.getUser().getName());
-                row.createCell(3).setCellValue(visit.getUser().getLastName());
-                row.createCell(4).setCellValue(visit.getUser().getPlan());
-
-                // Motivo (formateado)
-                String formattedReason = visit.getReason()
-                        .toString()
-                        .toLowerCase()
-                        .replace("_", " ");
-                formattedReason = Character.toUpperCase(formattedReason.charAt(0)) + formattedReason.substring(1);
-                row.createCell(5).setCellValue(formattedReason);
-
-                // Descripción
-                row.createCell(6).setCellValue(visit.getDescription());
-            }
-
-            // Ajustar ancho de columnas automáticamente
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+            sheet.header("Fecha", "Codigo/CC", "Nombre", "Apellido", "Plan", "Motivo", "Descripción");
+
+            // Visitas de odontología dentro del último año, leídas por cursor
+            try (Stream<VisitOdontologyRow> visits = odontologyVisitRepository.streamWithin(startDate, endDate)) {
+                visits.forEach(visit -> sheet.row(
+                        visit.date().format(dateFormatter),
+                        visit.username(),
+                        visit.name(),
+                        visit.lastName(),
+                        visit.plan(),
+                        ReportExportEngine.label(visit.reason()),
+                        visit.description()));
             }
-
-            // Escribir el archivo Excel
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
-        } catch (IOException e) {
-            throw new RuntimeException("Error al generar el archivo Excel", e);
-        }
+        });
     }
 
 
@@ -0,0 +1,61 @@
+package com.univalle.bubackend.services.report.allowance;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Migración única de user_allowance_counter a la clave con fin de semestre. Los contadores
+ * guardados con la clave anterior no dicen con qué rango se armaron, así que se borran y se vuelven
+ * a armar desde los informes diarios la próxima vez que se usan. Una vez aplicada, los arranques
+ * siguientes solo consultan el catálogo.
+ */
+@Slf4j
+@Component
+public class AllowanceCounterKeyMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AllowanceCounterKeyMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!isNullable()) {
+            return;
+        }
+
+        int deleted = jdbcTemplate.update("DELETE FROM user_allowance_counter");
+        jdbcTemplate.execute("ALTER TABLE user_allowance_counter ALTER COLUMN semester_end SET NOT NULL");
+
+        // Restricciones únicas sin semester_end: la clave anterior
+        List<String> stale = jdbcTemplate.queryForList("SELECT con.conname FROM pg_constraint con " +
+                "JOIN pg_class c ON c.oid = con.conrelid JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relname = 'user_allowance_counter' AND n.nspname = current_schema() " +
+                "AND con.contype = 'u' AND NOT EXISTS (SELECT 1 FROM pg_attribute a " +
+                "WHERE a.attrelid = c.oid AND a.attname = 'semester_end' AND a.attnum = ANY (con.conkey))", String.class);
+        stale.forEach(name -> jdbcTemplate.execute("ALTER TABLE user_allowance_counter DROP CONSTRAINT \"" + name + "\""));
+
+        Boolean present = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_constraint " +
+                "WHERE conname = 'uk_user_allowance_counter_semester')", Boolean.class);
+        if (!Boolean.TRUE.equals(present)) {
+            jdbcTemplate.execute("ALTER TABLE user_allowance_counter ADD CONSTRAINT uk_user_allowance_counter_semester " +
+                    "UNIQUE (user_id, beca, semester_start, semester_end)");
+        }
+        log.info("Contadores de beca con fin de semestre en la clave: {} contadores anteriores borrados", deleted);
+    }
+
+    private boolean isNullable() {
+        String nullable = jdbcTemplate.query("SELECT is_nullable FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'user_allowance_counter' AND column_name = 'semester_end'",
+                rs -> rs.next() ? rs.getString(1) : null);
+        return "YES".equals(nullable);
+    }
+}
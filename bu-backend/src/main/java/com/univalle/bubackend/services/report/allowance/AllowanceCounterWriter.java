@@ -0,0 +1,99 @@
+package com.univalle.bubackend.services.report.allowance;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contadores por usuario, beca y semestre (user_allowance_counter). Cada informe diario suma o
+ * resta uno a todos sus integrantes con una sola sentencia, así el informe semestral lee los
+ * conteos directamente en vez de recorrer todos los informes diarios.
+ *
+ * <p>El semestre es el par inicio, fin: si la configuración cambia cualquiera de los dos, los
+ * contadores anteriores dejan de usarse. Si un semestre aún no tiene contadores (primer informe
+ * después de configurarlo o de desplegar este cambio), se arman una vez a partir de los informes
+ * diarios ya guardados, con un bloqueo consultivo para que dos transacciones no lo hagan a la vez.</p>
+ *
+ * Debe llamarse dentro de la transacción que escribe o borra el informe.
+ */
+@Component
+public class AllowanceCounterWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AllowanceCounterWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Suma el informe diario, cuyos integrantes ya están en report_user.
+     */
+    public void increment(Integer reportId, String beca, LocalDate semesterStart, LocalDate semesterEnd) {
+        if (rebuildIfMissing(beca, semesterStart, semesterEnd)) {
+            // La reconstrucción ya contó este informe
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO user_allowance_counter (user_id, beca, semester_start, semester_end, appearances) " +
+                        "SELECT ru.user_id, ?, ?, ?, 1 FROM report_user ru WHERE ru.report_id = ? " +
+                        "ON CONFLICT (user_id, beca, semester_start, semester_end) " +
+                        "DO UPDATE SET appearances = user_allowance_counter.appearances + 1",
+                beca.toLowerCase(), semesterStart, semesterEnd, reportId);
+    }
+
+    /**
+     * Resta el informe diario. Se llama antes de borrarlo, mientras sus integrantes siguen en report_user.
+     */
+    public void decrement(Integer reportId, String beca, LocalDate semesterStart, LocalDate semesterEnd) {
+        jdbcTemplate.update("UPDATE user_allowance_counter c SET appearances = GREATEST(c.appearances - 1, 0) " +
+                        "FROM report_user ru " +
+                        "WHERE ru.report_id = ? AND c.user_id = ru.user_id AND c.beca = ? " +
+                        "AND c.semester_start = ? AND c.semester_end = ?",
+                reportId, beca.toLowerCase(), semesterStart, semesterEnd);
+    }
+
+    /**
+     * Conteos del semestre por id de usuario.
+     */
+    public Map<Integer, Integer> read(String beca, LocalDate semesterStart, LocalDate semesterEnd) {
+        rebuildIfMissing(beca, semesterStart, semesterEnd);
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, appearances FROM user_allowance_counter " +
+                        "WHERE beca = ? AND semester_start = ? AND semester_end = ?",
+                rs -> {
+                    counts.put(rs.getInt(1), rs.getInt(2));
+                }, beca.toLowerCase(), semesterStart, semesterEnd);
+        return counts;
+    }
+
+    private boolean rebuildIfMissing(String beca, LocalDate semesterStart, LocalDate semesterEnd) {
+        if (present(beca, semesterStart, semesterEnd)) {
+            return false;
+        }
+
+        // Quien llega segundo espera a que el primero confirme y ve sus contadores
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> {
+        }, "user_allowance_counter:" + beca.toLowerCase() + ":" + semesterStart + ":" + semesterEnd);
+        if (present(beca, semesterStart, semesterEnd)) {
+            return false;
+        }
+
+        jdbcTemplate.update("INSERT INTO user_allowance_counter (user_id, beca, semester_start, semester_end, appearances) " +
+                        "SELECT ru.user_id, ?, ?, ?, COUNT(*) FROM report_user ru JOIN report r ON r.id = ru.report_id " +
+                        "WHERE r.semester IS NULL AND LOWER(r.beca) = ? AND r.date BETWEEN ? AND ? " +
+                        "GROUP BY ru.user_id " +
+                        "ON CONFLICT (user_id, beca, semester_start, semester_end) DO NOTHING",
+                beca.toLowerCase(), semesterStart, semesterEnd, beca.toLowerCase(), semesterStart, semesterEnd);
+        return true;
+    }
+
+    private boolean present(String beca, LocalDate semesterStart, LocalDate semesterEnd) {
+        Boolean present = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM user_allowance_counter " +
+                        "WHERE beca = ? AND semester_start = ? AND semester_end = ?)",
+                Boolean.class, beca.toLowerCase(), semesterStart, semesterEnd);
+        return Boolean.TRUE.equals(present);
+    }
+}
@@ -0,0 +1,44 @@
+package com.univalle.bubackend.services.report.allowance;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escribe los integrantes de un informe (report_user) y sus conteos (report_user_report_count)
+ * con inserts por lotes de JDBC, sin cargar ni fusionar las entidades de usuario.
+ * Debe llamarse dentro de la transacción que guardó el informe.
+ */
+@Component
+public class ReportMembershipWriter {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReportMembershipWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertMembers(Integer reportId, Collection<Integer> userIds) {
+        jdbcTemplate.batchUpdate("INSERT INTO report_user (report_id, user_id) VALUES (?, ?)",
+                userIds, BATCH_SIZE, (ps, userId) -> {
+                    ps.setInt(1, reportId);
+                    ps.setInt(2, userId);
+                });
+    }
+
+    public void insertCounts(Integer reportId, Map<Integer, Integer> countsByUser) {
+        List<Map.Entry<Integer, Integer>> rows = new ArrayList<>(countsByUser.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO report_user_report_count (report_id, user_report_count_key, user_report_count) VALUES (?, ?, ?)",
+                rows, BATCH_SIZE, (ps, row) -> {
+                    ps.setInt(1, reportId);
+                    ps.setInt(2, row.getKey());
+                    ps.setInt(3, row.getValue());
+                });
+    }
+}
@@ -1,7 +1,11 @@
 package com.univalle.bubackend.services.report.allowance;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
+import com.univalle.bubackend.DTOs.KeysetCursor;
+import com.univalle.bubackend.DTOs.report.ReportMemberRow;
 import com.univalle.bubackend.DTOs.report.ReportRequest;
 import com.univalle.bubackend.DTOs.report.ReportResponse;
+import com.univalle.bubackend.DTOs.report.ReportSummary;
 import com.univalle.bubackend.DTOs.report.UserDTO;
 import com.univalle.bubackend.exceptions.report.ReportAlreadyExistsException;
 import com.univalle.bubackend.exceptions.users.InvalidFilter;
@@ -9,69 +13,61 @@ import com.univalle.bubackend.exceptions.setting.SettingNotFound;
 import com.univalle.bubackend.exceptions.report.BecaInvalid;
 import com.univalle.bubackend.exceptions.report.ReportNotFound;
 import com.univalle.bubackend.models.Report;
-import com.univalle.bubackend.models.Setting;
-import com.univalle.bubackend.models.UserEntity;
 import com.univalle.bubackend.repository.ReportRepository;
-import com.univalle.bubackend.repository.SettingRepository;
 import com.univalle.bubackend.repository.UserEntityRepository;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ExportSheet;
+import com.univalle.bubackend.services.export.RenderedReportCache;
+import com.univalle.bubackend.services.export.ReportExportEngine;
+import com.univalle.bubackend.services.setting.SettingSnapshot;
+import com.univalle.bubackend.services.setting.SettingSnapshotHolder;
 import lombok.AllArgsConstructor;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class ReportServiceImpl {
+    private static final String CACHE_KIND = "report";
+
     private final UserEntityRepository userEntityRepository;
     private final ReportRepository reportRepository;
-    private final SettingRepository settingRepository;
-
-    public Report generateReport(ReportRequest reportRequest) {
+    private final SettingSnapshotHolder settingHolder;
+    private final ReportMembershipWriter reportMembershipWriter;
+    private final AllowanceCounterWriter allowanceCounterWriter;
+    private final ReportExportEngine reportExportEngine;
+    private final RenderedReportCache renderedReportCache;
+
+    @Transactional
+    public ReportResponse generateReport(ReportRequest reportRequest) {
         LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.atTime(LocalTime.MAX);
 
         // Verificar si ya existe un reporte diario del mismo tipo para hoy
         if (reportRequest.semester() == null) {
-            boolean dailyReportExists = reportRepository.findAllByDate(today).stream()
-                    .anyMatch(r -> r.getBeca().equalsIgnoreCase(reportRequest.beca()) && r.getSemester() == null);
-            if (dailyReportExists) {
+            if (reportRepository.existsByDateAndSemesterIsNullAndBecaIgnoreCase(today, reportRequest.beca())) {
                 throw new ReportAlreadyExistsException("Ya existe un informe de " + reportRequest.beca() + " para la fecha de hoy");
             }
         } else {
             // Verificar si ya existe un reporte semestral del mismo tipo para el semestre especificado
-            boolean semesterReportExists = reportRepository.findBySemester(reportRequest.semester()).stream()
-                    .anyMatch(r -> r.getBeca().equalsIgnoreCase(reportRequest.beca()));
-            if (semesterReportExists) {
+            if (reportRepository.existsBySemesterAndBecaIgnoreCase(reportRequest.semester(), reportRequest.beca())) {
                 throw new ReportAlreadyExistsException("Ya existe el informe semestral de " + reportRequest.beca());
             }
         }
 
-        List<UserEntity> filterUsers;
-
-        // Filtrar usuarios según la beca
-        if ("almuerzo".equalsIgnoreCase(reportRequest.beca())) {
-            filterUsers = userEntityRepository.findUserLunchPaid(startOfDay, endOfDay);
-        } else if ("refrigerio".equalsIgnoreCase(reportRequest.beca())) {
-            filterUsers = userEntityRepository.findUserSnackPaid(startOfDay, endOfDay);
-        } else {
+        if (!"almuerzo".equalsIgnoreCase(reportRequest.beca()) && !"refrigerio".equalsIgnoreCase(reportRequest.beca())) {
             throw new BecaInvalid("Tipo de beca no válida");
         }
 
@@ -80,224 +76,175 @@ public class ReportServiceImpl {
         report.setDate(today);
         report.setBeca(reportRequest.beca());
         report.setSemester(reportRequest.semester()); // Si es null, será un reporte diario
-        report.setUserEntities(new HashSet<>(filterUsers));
 
-        Map<Integer, Integer> countReports = new HashMap<>();
+        if (reportRequest.semester() == null) {
+            // Filtrar usuarios según la beca, solo sus ids
+            List<Integer> filterUsers = "almuerzo".equalsIgnoreCase(reportRequest.beca())
+                    ? userEntityRepository.findIdsLunchPaid(today)
+                    : userEntityRepository.findIdsSnackPaid(today);
+
+            report = reportRepository.save(report);  // Guardar el reporte en la base de datos
+            reportMembershipWriter.insertMembers(report.getId(), filterUsers);
+
+            // Sumar el informe a los contadores del semestre en curso
+            Report daily = report;
+            settingHolder.get()
+                    .filter(setting -> inSemester(daily.getDate(), setting))
+                    .ifPresent(setting -> allowanceCounterWriter.increment(daily.getId(), daily.getBeca(),
+                            setting.getStartSemester(), setting.getEndSemester()));
+            return toSummary(report);
+        }
 
-        // Si el semestre no es null, estamos generando un reporte semestral
-        if (reportRequest.semester() != null) {
-            // Obtener la configuración del semestre (fechas de inicio y fin)
-            Setting setting = settingRepository.findTopByOrderByIdAsc()
-                    .orElseThrow(() -> new SettingNotFound("Ajuste no encontrado"));
-
-            LocalDate startSemester = setting.getStartSemester();
-            LocalDate endSemester = setting.getEndSemester();
-
-            // Obtener todos los usuarios con reservas dentro del rango del semestre
-            List<UserEntity> allUsersInSemester = userEntityRepository.findAllByReservationDateRange(startSemester.atStartOfDay(), endSemester.atTime(LocalTime.MAX));
-
-            // Filtrar y contar cuántas veces cada usuario apareció en reportes diarios dentro del semestre actual
-            for (UserEntity user : allUsersInSemester) {
-                long count = user.getReports().stream()
-                        .filter(r -> r.getBeca().equalsIgnoreCase(reportRequest.beca()) &&  // Tipo de beca coincide
-                                r.getSemester() == null &&                               // Solo reportes diarios (semestre null)
-                                !r.getDate().isBefore(startSemester) &&                  // Reporte dentro del rango del semestre
-                                !r.getDate().isAfter(endSemester))                       // Reporte dentro del rango del semestre
-                        .count();
-
-                // Almacenamos el conteo en el mapa solo para este semestre
-                countReports.put(user.getId(), (int) count);
-            }
+        // Reporte semestral: obtener la configuración del semestre (fechas de inicio y fin)
+        SettingSnapshot setting = settingHolder.get()
+                .orElseThrow(() -> new SettingNotFound("Ajuste no encontrado"));
 
-            // Guardar el conteo de reportes en el reporte semestral
-            report.setUserReportCount(countReports);
-            report.setUserEntities(new HashSet<>(allUsersInSemester));
-        }
+        LocalDate startSemester = setting.getStartSemester();
+        LocalDate endSemester = setting.getEndSemester();
 
-        report = reportRepository.save(report);  // Guardar el reporte en la base de datos
+        // Usuarios con reservas dentro del rango del semestre, solo sus ids
+        List<Integer> usersInSemester = userEntityRepository.findIdsByReservationDateRange(startSemester, endSemester);
 
-        // Guardar el reporte en la lista de reportes del usuario
-        for (UserEntity user : report.getUserEntities()) {
-            user.getReports().add(report);
-            userEntityRepository.save(user);
-        }
+        // Cuántas veces apareció cada usuario en los reportes diarios de la beca, leído de los contadores
+        Map<Integer, Integer> counters = allowanceCounterWriter.read(reportRequest.beca(), startSemester, endSemester);
+        Map<Integer, Integer> countReports = new HashMap<>();
+        usersInSemester.forEach(userId -> countReports.put(userId, counters.getOrDefault(userId, 0)));
+
+        report = reportRepository.save(report);
+        reportMembershipWriter.insertMembers(report.getId(), usersInSemester);
+        reportMembershipWriter.insertCounts(report.getId(), countReports);
 
-        return report;
+        return toSummary(report);
     }
 
+    private static boolean inSemester(LocalDate date, SettingSnapshot setting) {
+        return setting.getStartSemester() != null && setting.getEndSemester() != null
+                && !date.isBefore(setting.getStartSemester()) && !date.isAfter(setting.getEndSemester());
+    }
 
+    private ReportResponse toSummary(Report report) {
+        return new ReportResponse(report.getId(), report.getDate(), report.getSemester(), report.getBeca());
+    }
 
+    @Transactional
     public void deleteReport(Integer id) {
-        if (!reportRepository.existsById(id)) {
-            throw new ReportNotFound("Informe no encontrado");
+        Report report = reportRepository.findById(id)
+                .orElseThrow(() -> new ReportNotFound("Informe no encontrado"));
+
+        // Restar el informe diario de los contadores antes de borrar sus integrantes
+        if (report.getSemester() == null) {
+            settingHolder.get()
+                    .filter(setting -> inSemester(report.getDate(), setting))
+                    .ifPresent(setting -> allowanceCounterWriter.decrement(id, report.getBeca(),
+                            setting.getStartSemester(), setting.getEndSemester()));
         }
-        reportRepository.deleteById(id);
+        reportRepository.delete(report);
+        renderedReportCache.invalidate(CACHE_KIND, id);
     }
 
-    public ByteArrayInputStream generateExcelReport(Integer id) {
+    /**
+     * Descarga desde la caché de informes generados. El informe no cambia después de generado,
+     * así que sus datos de cabecera bastan como versión.
+     */
+    public RenderedReportCache.CachedReport downloadReport(Integer id, ExportRequest export) {
         Report report = reportRepository.findById(id)
                 .orElseThrow(() -> new ReportNotFound("Informe no encontrado"));
+        String version = report.getDate() + ":" + report.getBeca() + ":" + report.getSemester();
+        String filename = ReportExportEngine.filename("informe_beca", report.getDate(), report.getBeca(), report.getSemester());
+        return renderedReportCache.get(CACHE_KIND, id, version, filename, export, () -> generateExcelReport(id, export));
+    }
 
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            XSSFSheet sheet = workbook.createSheet("Informe");
-
-            // Crear estilos
-            CellStyle boldStyle = workbook.createCellStyle();
-            Font boldFont = workbook.createFont();
-            boldFont.setBold(true);
-            boldFont.setFontHeightInPoints((short) 12);
-            boldStyle.setFont(boldFont);
-
-            CellStyle redBoldStyle = workbook.createCellStyle();
-            Font redBoldFont = workbook.createFont();
-            redBoldFont.setBold(true);
-            redBoldFont.setFontHeightInPoints((short) 12);
-            redBoldFont.setColor(IndexedColors.RED.getIndex());
-            redBoldStyle.setFont(redBoldFont);
-
-            CellStyle grayHeaderStyle = workbook.createCellStyle();
-            grayHeaderStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            grayHeaderStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            grayHeaderStyle.setFont(boldFont);
-            grayHeaderStyle.setAlignment(HorizontalAlignment.CENTER);
-
-            CellStyle normalStyle = workbook.createCellStyle();
-            Font normalFont = workbook.createFont();
-            normalFont.setFontHeightInPoints((short) 12);
-            normalStyle.setFont(normalFont);
-
-            // Encabezado del informe
-            Row headerRow = sheet.createRow(0);
-            Cell cell = headerRow.createCell(0);
-            cell.setCellValue("Fecha");
-            cell.setCellStyle(boldStyle);
-
-            cell = headerRow.createCell(1);
-            cell.setCellValue(report.getDate().toString());
-            cell.setCellStyle(normalStyle);
-
-            cell = headerRow.createCell(2);
-            cell.setCellValue("Tipo de beca");
-            cell.setCellStyle(boldStyle);
-
-            cell = headerRow.createCell(3);
-            cell.setCellValue(report.getBeca());
-            cell.setCellStyle(normalStyle);
+    public StreamingResponseBody generateExcelReport(Integer id, ExportRequest export) {
+        Report report = reportRepository.findById(id)
+                .orElseThrow(() -> new ReportNotFound("Informe no encontrado"));
 
-            if (report.getSemester() != null) {
-                cell = headerRow.createCell(4);
-                cell.setCellValue("Semestre: " + report.getSemester());
-                cell.setCellStyle(normalStyle);
+        return reportExportEngine.stream(export, "Informe", new int[]{18, 35, 30, 35, 18}, sheet -> {
+            // CSV: una sola tabla, con el grupo como primera columna
+            if (sheet.tabular()) {
+                writeMembersTable(sheet, report);
+                return;
             }
 
-            int rowNum = 2; // Inicializamos la fila
-
-            // Encabezado de "Beneficiarios"
-            Row beneficiariesHeader = sheet.createRow(rowNum++);
-            Cell beneficiariesTitle = beneficiariesHeader.createCell(0);
-            beneficiariesTitle.setCellValue("Beneficiarios");
-            beneficiariesTitle.setCellStyle(redBoldStyle);
-
-            // Encabezado de columnas
-            Row userHeader = sheet.createRow(rowNum++);
-            userHeader.createCell(0).setCellValue("Codigo/Cedula");
-            userHeader.getCell(0).setCellStyle(grayHeaderStyle);
-
-            userHeader.createCell(1).setCellValue("Nombre");
-            userHeader.getCell(1).setCellStyle(grayHeaderStyle);
-
-            userHeader.createCell(2).setCellValue("Plan/Area");
-            userHeader.getCell(2).setCellStyle(grayHeaderStyle);
-
-            userHeader.createCell(3).setCellValue("Correo");
-            userHeader.getCell(3).setCellStyle(grayHeaderStyle);
-
-            int countCellIndex = 4;
+            // Encabezado del informe
             if (report.getSemester() != null) {
-                userHeader.createCell(countCellIndex).setCellValue("Cantidad de " + report.getBeca());
-                userHeader.getCell(countCellIndex).setCellStyle(grayHeaderStyle);
+                sheet.info("Fecha", report.getDate().toString(), "Tipo de beca", report.getBeca(), "Semestre: " + report.getSemester());
+            } else {
+                sheet.info("Fecha", report.getDate().toString(), "Tipo de beca", report.getBeca());
             }
+            sheet.skip();
 
-            // Beneficiarios
-            for (UserEntity user : report.getUserEntities()) {
-                if (user.getLunchBeneficiary() || user.getSnackBeneficiary()) {
-                    Row row = sheet.createRow(rowNum++);
-                    row.createCell(0).setCellValue(user.getUsername());
-                    row.createCell(1).setCellValue(user.getName() + " " + user.getLastName());
-                    row.createCell(2).setCellValue(user.getPlan());
-                    row.createCell(3).setCellValue(user.getEmail());
-
-                    if (report.getSemester() != null) {
-                        int count = report.getUserReportCount().getOrDefault(user.getId(), 0);
-                        row.createCell(countCellIndex).setCellValue(count);
-                    }
-                }
-            }
+            writeMembers(sheet, report, "Beneficiarios", true);
 
             // Espacio entre secciones
-            rowNum++;
-
-            // Encabezado de "Venta libre"
-            Row nonBeneficiariesHeader = sheet.createRow(rowNum++);
-            Cell nonBeneficiariesTitle = nonBeneficiariesHeader.createCell(0);
-            nonBeneficiariesTitle.setCellValue("Venta libre");
-            nonBeneficiariesTitle.setCellStyle(redBoldStyle);
+            sheet.skip();
 
-            // Encabezado de columnas (reutilizado)
-            userHeader = sheet.createRow(rowNum++);
-            userHeader.createCell(0).setCellValue("Codigo/Cedula");
-            userHeader.getCell(0).setCellStyle(grayHeaderStyle);
-
-            userHeader.createCell(1).setCellValue("Nombre");
-            userHeader.getCell(1).setCellStyle(grayHeaderStyle);
-
-            userHeader.createCell(2).setCellValue("Plan/Area");
-            userHeader.getCell(2).setCellStyle(grayHeaderStyle);
+            writeMembers(sheet, report, "Venta libre", false);
+        });
+    }
 
-            userHeader.createCell(3).setCellValue("Correo");
-            userHeader.getCell(3).setCellStyle(grayHeaderStyle);
+    private void writeMembersTable(ExportSheet sheet, Report report) {
+        boolean semester = report.getSemester() != null;
 
-            if (report.getSemester() != null) {
-                userHeader.createCell(countCellIndex).setCellValue("Cantidad de " + report.getBeca());
-                userHeader.getCell(countCellIndex).setCellStyle(grayHeaderStyle);
-            }
+        if (semester) {
+            sheet.header("Grupo", "Codigo/Cedula", "Nombre", "Plan/Area", "Correo", "Cantidad de " + report.getBeca());
+        } else {
+            sheet.header("Grupo", "Codigo/Cedula", "Nombre", "Plan/Area", "Correo");
+        }
 
-            // No beneficiarios
-            for (UserEntity user : report.getUserEntities()) {
-                if (!user.getLunchBeneficiary() && !user.getSnackBeneficiary()) {
-                    Row row = sheet.createRow(rowNum++);
-                    row.createCell(0).setCellValue(user.getUsername());
-                    row.createCell(1).setCellValue(user.getName() + " " + user.getLastName());
-                    row.createCell(2).setCellValue(user.getPlan());
-                    row.createCell(3).setCellValue(user.getEmail());
-
-                    if (report.getSemester() != null) {
-                        int count = report.getUserReportCount().getOrDefault(user.getId(), 0);
-                        row.createCell(countCellIndex).setCellValue(count);
+        for (boolean beneficiaries : new boolean[]{true, false}) {
+            String group = beneficiaries ? "Beneficiario" : "Venta libre";
+            try (Stream<ReportMemberRow> members = reportRepository.streamMembers(report.getId(), beneficiaries)) {
+                members.forEach(user -> {
+                    String name = user.getName() + " " + user.getLastName();
+                    if (semester) {
+                        sheet.row(group, user.getUsername(), name, user.getPlan(), user.getEmail(),
+                                user.getCount() != null ? user.getCount() : 0);
+                    } else {
+                        sheet.row(group, user.getUsername(), name, user.getPlan(), user.getEmail());
                     }
-                }
-            }
-            // Ajustar el ancho de las columnas automáticamente
-            for (int i = 0; i <= countCellIndex; i++) {
-                sheet.autoSizeColumn(i);
+                });
             }
+        }
+    }
+
+    private void writeMembers(ExportSheet sheet, Report report, String title, boolean beneficiaries) {
+        boolean semester = report.getSemester() != null;
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
+        sheet.title(title);
+        if (semester) {
+            sheet.header("Codigo/Cedula", "Nombre", "Plan/Area", "Correo", "Cantidad de " + report.getBeca());
+        } else {
+            sheet.header("Codigo/Cedula", "Nombre", "Plan/Area", "Correo");
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Error al generar el archivo Excel", e);
+        try (Stream<ReportMemberRow> members = reportRepository.streamMembers(report.getId(), beneficiaries)) {
+            members.forEach(user -> {
+                String name = user.getName() + " " + user.getLastName();
+                if (semester) {
+                    sheet.row(user.getUsername(), name, user.getPlan(), user.getEmail(),
+                            user.getCount() != null ? user.getCount() : 0);
+                } else {
+                    sheet.row(user.getUsername(), name, user.getPlan(), user.getEmail());
+                }
+            });
         }
     }
 
 
-    public List<Report> findReportsBySemester(String semester) {
-        return reportRepository.findBySemester(semester);
+    public List<ReportSummary> findReportsBySemester(String semester) {
+        return reportRepository.findSummariesBySemester(semester);
     }
 
-    public List<Report> findReportsByDate(LocalDate date) {
-        return reportRepository.findAllByDate(date);
+    public List<ReportSummary> findReportsByDate(LocalDate date) {
+        return reportRepository.findSummariesByDate(date);
+    }
+
+    // Integrantes del informe por páginas, ordenados por código
+    public Page<ReportMemberRow> findReportMembers(Integer id, Pageable pageable) {
+        if (!reportRepository.existsById(id)) {
+            throw new ReportNotFound("Informe no encontrado");
+        }
+        return reportRepository.findMembers(id, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
     }
 
     public ReportResponse viewReport(Integer id){
@@ -353,4 +300,18 @@ public class ReportServiceImpl {
 
     }
 
+    // Listado por cursor: solo las columnas del resumen y sin contar el total
+    public CursorSlice<ReportResponse> listReports(String filter, String cursor, int size) {
+        Integer beforeId = Optional.ofNullable(KeysetCursor.decode(cursor)).orElse(Integer.MAX_VALUE);
+        int limit = KeysetCursor.size(size);
+        Pageable firstRows = PageRequest.of(0, limit + 1);
+
+        List<ReportResponse> rows = switch (filter.toLowerCase()) {
+            case "diario" -> reportRepository.findDailyReportsBefore(beforeId, firstRows);
+            case "semester" -> reportRepository.findSemesterReportsBefore(beforeId, firstRows);
+            default -> throw new InvalidFilter("Filtro no válido");
+        };
+
+        return CursorSlice.of(rows, limit, ReportResponse::id);
+    }
 }
@@ -0,0 +1,60 @@
+package com.univalle.bubackend.services.report.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.DTOs.report.job.ReportJobProgress;
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.cluster.ClusterEventType;
+import com.univalle.bubackend.models.ReportJob;
+import com.univalle.bubackend.websocket.WebSocketHandler;
+import com.univalle.bubackend.websocket.WebSocketTopics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publica el avance de los trabajos de informe en /ws, en el canal del usuario que lo pidió y en
+ * el tema del trabajo. El aviso viaja por el bus del clúster porque la sesión del usuario puede
+ * estar abierta en otra instancia.
+ */
+@Slf4j
+@Component
+public class ReportJobBroadcaster {
+
+    private static final String MESSAGE_TYPE = "report-job";
+
+    private final WebSocketHandler webSocketHandler;
+    private final ClusterEventBus clusterEventBus;
+    private final ObjectMapper objectMapper;
+
+    public ReportJobBroadcaster(WebSocketHandler webSocketHandler, ClusterEventBus clusterEventBus, ObjectMapper objectMapper) {
+        this.webSocketHandler = webSocketHandler;
+        this.clusterEventBus = clusterEventBus;
+        this.objectMapper = objectMapper;
+    }
+
+    public void jobChanged(ReportJob job, long bytesWritten) {
+        try {
+            clusterEventBus.reportJobChanged(objectMapper.writeValueAsString(new ReportJobProgress(
+                    MESSAGE_TYPE, job.getId(), job.getUsername(), job.getStatus(), bytesWritten, job.getError())));
+        } catch (Exception e) {
+            log.warn("No se pudo avisar el avance del trabajo {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.type() != ClusterEventType.REPORT_JOB_CHANGED) {
+            return;
+        }
+        try {
+            ReportJobProgress progress = objectMapper.readValue(event.subject(), ReportJobProgress.class);
+            webSocketHandler.publish(List.of(WebSocketTopics.reportJob(progress.jobId()), WebSocketTopics.user(progress.username())),
+                    event.subject());
+        } catch (Exception e) {
+            log.warn("No se pudo publicar el avance del trabajo: {}", e.getMessage());
+        }
+    }
+}
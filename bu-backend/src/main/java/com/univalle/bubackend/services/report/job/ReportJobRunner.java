@@ -0,0 +1,155 @@
+package com.univalle.bubackend.services.report.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.DTOs.report.ReportRequest;
+import com.univalle.bubackend.DTOs.report.ReportResponse;
+import com.univalle.bubackend.models.ReportJob;
+import com.univalle.bubackend.models.ReportJobStatus;
+import com.univalle.bubackend.repository.ReportJobRepository;
+import com.univalle.bubackend.services.appointment.reservation.IAppointmentReservationService;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ReportArtifactStore;
+import com.univalle.bubackend.services.odontology.IOdontologyVisitLog;
+import com.univalle.bubackend.services.report.allowance.ReportServiceImpl;
+import com.univalle.bubackend.services.report.nursing.INursingReportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Ejecuta un trabajo de informe en el pool reportJobExecutor: genera el archivo con el mismo
+ * motor de exportación de las descargas directas, lo guarda en {@link ReportArtifactStore} y
+ * avisa el avance por /ws.
+ */
+@Slf4j
+@Component
+public class ReportJobRunner {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportArtifactStore reportArtifactStore;
+    private final ReportJobBroadcaster reportJobBroadcaster;
+    private final ReportServiceImpl reportService;
+    private final INursingReportService nursingReportService;
+    private final IOdontologyVisitLog odontologyVisitLog;
+    private final IAppointmentReservationService appointmentReservationService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transaction;
+    private final long progressInterval;
+
+    public ReportJobRunner(ReportJobRepository reportJobRepository,
+                           ReportArtifactStore reportArtifactStore,
+                           ReportJobBroadcaster reportJobBroadcaster,
+                           ReportServiceImpl reportService,
+                           INursingReportService nursingReportService,
+                           IOdontologyVisitLog odontologyVisitLog,
+                           IAppointmentReservationService appointmentReservationService,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${report.jobs.progress-interval:1000}") long progressInterval) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportArtifactStore = reportArtifactStore;
+        this.reportJobBroadcaster = reportJobBroadcaster;
+        this.reportService = reportService;
+        this.nursingReportService = nursingReportService;
+        this.odontologyVisitLog = odontologyVisitLog;
+        this.appointmentReservationService = appointmentReservationService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.progressInterval = progressInterval;
+    }
+
+    public void run(String jobId) {
+        ReportJob job = reportJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != ReportJobStatus.PENDING) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        job.setStatus(ReportJobStatus.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = reportJobRepository.save(job);
+        reportJobBroadcaster.jobChanged(job, 0);
+
+        try {
+            ExportRequest export = new ExportRequest(job.getFormat(), false);
+            // Las consultas previas al archivo (y la generación del informe) van en su propia transacción
+            ReportJob current = job;
+            StreamingResponseBody body = transaction.execute(status -> render(current, export));
+
+            ReportArtifactStore.Artifact artifact = reportArtifactStore.write(
+                    job.getFormat().getExtension(), body, new ProgressThrottle(current));
+
+            job.setContentHash(artifact.hash());
+            job.setContentLength(artifact.length());
+            job.setStatus(ReportJobStatus.COMPLETED);
+        } catch (Exception e) {
+            log.warn("Falló el trabajo de informe {} ({}): {}", job.getId(), job.getType(), e.getMessage());
+            job.setStatus(ReportJobStatus.FAILED);
+            job.setError(truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        }
+
+        job.setFinishedAt(LocalDateTime.now());
+        job = reportJobRepository.save(job);
+        reportJobBroadcaster.jobChanged(job, job.getContentLength() != null ? job.getContentLength() : 0);
+
+        meterRegistry.timer("report.jobs.duration", "type", job.getType().name(), "status", job.getStatus().name())
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private StreamingResponseBody render(ReportJob job, ExportRequest export) {
+        try {
+            return switch (job.getType()) {
+                case ALLOWANCE_GENERATE -> {
+                    ReportResponse report = reportService.generateReport(
+                            objectMapper.readValue(job.getParameters(), ReportRequest.class));
+                    job.setTargetId(report.id());
+                    yield reportService.generateExcelReport(report.id(), export);
+                }
+                case ALLOWANCE -> reportService.generateExcelReport(job.getTargetId(), export);
+                case NURSING -> nursingReportService.downloadNursingReport(job.getTargetId(), export);
+                case ODONTOLOGY -> odontologyVisitLog.downloadOdontologyReport(export);
+                case APPOINTMENT -> appointmentReservationService.downloadAppointmentReport(job.getTargetId(), export);
+            };
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Parámetros del trabajo no válidos", e);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    // Avisa el avance como mucho una vez por intervalo
+    private class ProgressThrottle implements LongConsumer {
+
+        private final ReportJob job;
+        private long lastPublished = System.currentTimeMillis();
+
+        ProgressThrottle(ReportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void accept(long bytesWritten) {
+            long now = System.currentTimeMillis();
+            if (now - lastPublished >= progressInterval) {
+                lastPublished = now;
+                reportJobBroadcaster.jobChanged(job, bytesWritten);
+            }
+        }
+    }
+}
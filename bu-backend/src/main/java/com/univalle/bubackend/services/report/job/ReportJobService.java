@@ -0,0 +1,193 @@
+package com.univalle.bubackend.services.report.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.DTOs.report.job.ReportJobRequest;
+import com.univalle.bubackend.DTOs.report.job.ReportJobResponse;
+import com.univalle.bubackend.exceptions.report.InvalidReportJob;
+import com.univalle.bubackend.exceptions.report.ReportJobNotFound;
+import com.univalle.bubackend.exceptions.report.ReportJobNotReady;
+import com.univalle.bubackend.exceptions.report.ReportJobQueueFull;
+import com.univalle.bubackend.models.ReportJob;
+import com.univalle.bubackend.models.ReportJobStatus;
+import com.univalle.bubackend.repository.ReportJobRepository;
+import com.univalle.bubackend.services.export.ExportFormat;
+import com.univalle.bubackend.services.export.ReportArtifactStore;
+import com.univalle.bubackend.services.export.ReportExportEngine;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Trabajos de informe en segundo plano. Enviar un trabajo solo lo registra y lo pone en la cola
+ * del pool reportJobExecutor; la petición responde de inmediato con el id. El archivo queda en
+ * disco y se descarga después, mientras el avance llega por /ws.
+ */
+@Service
+public class ReportJobService {
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportJobRunner reportJobRunner;
+    private final ReportArtifactStore reportArtifactStore;
+    private final ThreadPoolTaskExecutor reportJobExecutor;
+    private final ObjectMapper objectMapper;
+    private final long retention;
+    private final long staleAfter;
+
+    public ReportJobService(ReportJobRepository reportJobRepository,
+                            ReportJobRunner reportJobRunner,
+                            ReportArtifactStore reportArtifactStore,
+                            @Qualifier("reportJobExecutor") ThreadPoolTaskExecutor reportJobExecutor,
+                            ObjectMapper objectMapper,
+                            @Value("${report.jobs.retention:86400000}") long retention,
+                            @Value("${report.jobs.stale-after:3600000}") long staleAfter) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportJobRunner = reportJobRunner;
+        this.reportArtifactStore = reportArtifactStore;
+        this.reportJobExecutor = reportJobExecutor;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.staleAfter = staleAfter;
+    }
+
+    public record Download(Path path, String filename, ExportFormat format, String contentHash) {
+    }
+
+    public ReportJobResponse submit(ReportJobRequest request, String username) {
+        validate(request);
+        ExportFormat format = request.format() != null ? request.format() : ExportFormat.XLSX;
+
+        ReportJob job = reportJobRepository.save(ReportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .type(request.type())
+                .targetId(request.targetId())
+                .parameters(parameters(request))
+                .format(format)
+                .username(username)
+                .filename(filename(request) + "." + format.getExtension())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        try {
+            reportJobExecutor.execute(() -> reportJobRunner.run(job.getId()));
+        } catch (TaskRejectedException e) {
+            job.setStatus(ReportJobStatus.FAILED);
+            job.setError("Cola de informes llena");
+            job.setFinishedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+            throw new ReportJobQueueFull("Hay demasiados informes en proceso, intenta de nuevo en unos minutos");
+        }
+
+        return toResponse(job);
+    }
+
+    public ReportJobResponse findJob(String id, String username) {
+        return toResponse(find(id, username));
+    }
+
+    public Download download(String id, String username) {
+        ReportJob job = find(id, username);
+        if (job.getStatus() != ReportJobStatus.COMPLETED) {
+            throw new ReportJobNotReady("El informe aún no está listo");
+        }
+
+        Path path = reportArtifactStore.resolve(job.getContentHash(), job.getFormat().getExtension());
+        // El archivo está en el disco de la instancia que lo generó
+        if (!Files.exists(path)) {
+            throw new ReportJobNotFound("El archivo del informe ya no está disponible");
+        }
+        return new Download(path, job.getFilename(), job.getFormat(), job.getContentHash());
+    }
+
+    /**
+     * Borra los trabajos vencidos con sus archivos (si ningún otro trabajo los comparte) y da por
+     * fallidos los que quedaron pendientes de una instancia que se cayó.
+     */
+    @Scheduled(cron = "${report.jobs.cleanup-cron:0 0 * * * *}")
+    @Transactional
+    public void cleanup() {
+        LocalDateTime now = LocalDateTime.now();
+        reportJobRepository.failStale(now.minus(Duration.ofMillis(staleAfter)), now);
+
+        List<ReportJob> expired = reportJobRepository.findByFinishedAtBefore(now.minus(Duration.ofMillis(retention)));
+        reportJobRepository.deleteAll(expired);
+        reportJobRepository.flush();
+
+        expired.stream()
+                .filter(job -> job.getContentHash() != null)
+                .filter(job -> !reportJobRepository.existsByContentHash(job.getContentHash()))
+                .forEach(job -> reportArtifactStore.delete(job.getContentHash(), job.getFormat().getExtension()));
+    }
+
+    private ReportJob find(String id, String username) {
+        return reportJobRepository.findByIdAndUsername(id, username)
+                .orElseThrow(() -> new ReportJobNotFound("Trabajo de informe no encontrado"));
+    }
+
+    private static void validate(ReportJobRequest request) {
+        if (request.type() == null) {
+            throw new InvalidReportJob("Debes indicar el tipo de informe");
+        }
+        switch (request.type()) {
+            case ALLOWANCE_GENERATE -> {
+                if (request.report() == null) {
+                    throw new InvalidReportJob("Debes indicar el informe a generar");
+                }
+            }
+            case ALLOWANCE, NURSING, APPOINTMENT -> {
+                if (request.targetId() == null) {
+                    throw new InvalidReportJob("Debes indicar el id del informe o del profesional");
+                }
+            }
+            case ODONTOLOGY -> {
+            }
+        }
+    }
+
+    private String parameters(ReportJobRequest request) {
+        if (request.report() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(request.report());
+        } catch (JsonProcessingException e) {
+            throw new InvalidReportJob("Informe no válido");
+        }
+    }
+
+    private static String filename(ReportJobRequest request) {
+        String name = switch (request.type()) {
+            case ALLOWANCE_GENERATE, ALLOWANCE -> "informe_beca";
+            case NURSING -> "informe_enfermeria";
+            case ODONTOLOGY -> "odontologia";
+            case APPOINTMENT -> "informe_citas";
+        };
+        return ReportExportEngine.filename(name, request.targetId());
+    }
+
+    private static ReportJobResponse toResponse(ReportJob job) {
+        return ReportJobResponse.builder()
+                .id(job.getId())
+                .type(job.getType())
+                .targetId(job.getTargetId())
+                .format(job.getFormat())
+                .status(job.getStatus())
+                .filename(job.getFilename())
+                .contentLength(job.getContentLength())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
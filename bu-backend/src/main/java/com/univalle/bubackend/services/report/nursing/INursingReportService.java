@@ -2,10 +2,12 @@ package com.univalle.bubackend.services.report.nursing;
 
 import com.univalle.bubackend.DTOs.nursing.NursingReportRequest;
 import com.univalle.bubackend.DTOs.nursing.NursingReportResponse;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.RenderedReportCache;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
 import java.util.List;
 
 public interface INursingReportService {
@@ -13,6 +15,7 @@ public interface INursingReportService {
     NursingReportResponse getNursingReport(Integer id);
     void deleteNursingReport(Integer id);
     List<NursingReportResponse> findNursingReports(Integer year, Integer trimester);
-    ByteArrayInputStream downloadNursingReport(Integer id);
+    RenderedReportCache.CachedReport downloadCachedNursingReport(Integer id, ExportRequest export);
+    StreamingResponseBody downloadNursingReport(Integer id, ExportRequest export);
     Page<NursingReportResponse> listNursingReports(Pageable pageable);
 }
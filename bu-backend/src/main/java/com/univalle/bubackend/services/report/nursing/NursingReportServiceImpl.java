@@ -1,5 +1,6 @@
 package com.univalle.bubackend.services.report.nursing;
 
+import com.univalle.bubackend.DTOs.nursing.NursingActivityRow;
 import com.univalle.bubackend.DTOs.nursing.NursingReportRequest;
 import com.univalle.bubackend.DTOs.nursing.NursingReportResponse;
 import com.univalle.bubackend.exceptions.report.InvalidDateFormat;
@@ -11,19 +12,18 @@ import com.univalle.bubackend.models.NursingReport;
 import com.univalle.bubackend.models.NursingReportDetail;
 import com.univalle.bubackend.repository.NursingActivityRepository;
 import com.univalle.bubackend.repository.ReportNursingRepository;
+import com.univalle.bubackend.services.export.ExportRequest;
+import com.univalle.bubackend.services.export.ExportSheet;
+import com.univalle.bubackend.services.export.RenderedReportCache;
+import com.univalle.bubackend.services.export.ReportExportEngine;
 import lombok.AllArgsConstructor;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
@@ -32,13 +32,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class NursingReportServiceImpl implements INursingReportService {
 
+    private static final String CACHE_KIND = "nursing";
+
     private NursingActivityRepository nursingActivityRepository;
     private ReportNursingRepository reportNursingRepository;
+    private ReportExportEngine reportExportEngine;
+    private RenderedReportCache renderedReportCache;
 
     @Override
     public NursingReportResponse generateNursingReport(NursingReportRequest request) {
@@ -121,6 +126,7 @@ public class NursingReportServiceImpl implements INursingReportService {
             throw new ReportNotFound("Informe de enfermeria no encontrado");
         }
         reportNursingRepository.deleteById(id);
+        renderedReportCache.invalidate(CACHE_KIND, id);
     }
 
     @Override
@@ -149,132 +155,64 @@ public class NursingReportServiceImpl implements INursingReportService {
 
 
     @Override
-    public ByteArrayInputStream downloadNursingReport(Integer id) {
+    public RenderedReportCache.CachedReport downloadCachedNursingReport(Integer id, ExportRequest export) {
+        NursingReport nursingReport = reportNursingRepository.findById(id)
+                .orElseThrow(() -> new ReportNotFound("Informe de enfermería no encontrado"));
+        // El informe no cambia después de generado
+        String version = nursingReport.getDate() + ":" + nursingReport.getTotalActivities();
+        String filename = ReportExportEngine.filename("informe_enfermeria", nursingReport.getYear() + "-" + nursingReport.getTrimester());
+        return renderedReportCache.get(CACHE_KIND, id, version, filename, export, () -> downloadNursingReport(id, export));
+    }
+
+    @Override
+    public StreamingResponseBody downloadNursingReport(Integer id, ExportRequest export) {
         NursingReport nursingReport = reportNursingRepository.findById(id)
                 .orElseThrow(() -> new ReportNotFound("Informe de enfermería no encontrado"));
+        // Un renglón por diagnóstico: se copian antes de salir de la petición
+        List<NursingReportDetail> details = List.copyOf(nursingReport.getDiagnosticCount());
 
         // Formato para las fechas
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            XSSFSheet sheet = workbook.createSheet("Informe de enfermería");
-
-            // Crear estilos
-            CellStyle boldStyle = workbook.createCellStyle();
-            Font boldFont = workbook.createFont();
-            boldFont.setBold(true);
-            boldFont.setFontHeightInPoints((short) 12);
-            boldStyle.setFont(boldFont);
-
-            CellStyle grayHeaderStyle = workbook.createCellStyle();
-            grayHeaderStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            grayHeaderStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            grayHeaderStyle.setFont(boldFont);
-            grayHeaderStyle.setAlignment(HorizontalAlignment.CENTER);
-
-            CellStyle normalStyle = workbook.createCellStyle();
-            Font normalFont = workbook.createFont();
-            normalFont.setFontHeightInPoints((short) 12);
-            normalStyle.setFont(normalFont);
-
-            // Información del informe (encabezado)
-            Row headerRow = sheet.createRow(0);
-            Cell cell = headerRow.createCell(0);
-            cell.setCellValue("Fecha");
-            cell.setCellStyle(boldStyle);
-
-            cell = headerRow.createCell(1);
-            cell.setCellValue(nursingReport.getDate().toString());
-            cell.setCellStyle(normalStyle);
-
-            cell = headerRow.createCell(2);
-            cell.setCellValue("Informe");
-            cell.setCellStyle(boldStyle);
-
-            cell = headerRow.createCell(3);
-            cell.setCellValue(nursingReport.getYear() + "-" + nursingReport.getTrimester());
-            cell.setCellStyle(normalStyle);
-
-            // Espacio entre secciones
-            sheet.createRow(1);
-
-            // Tabla 1: Información de los diagnósticos
-            Row reportHeader = sheet.createRow(2);
-            Cell headerCell = reportHeader.createCell(0);
-            headerCell.setCellValue("Motivo");
-            headerCell.setCellStyle(grayHeaderStyle);
-
-            headerCell = reportHeader.createCell(1);
-            headerCell.setCellValue("Cantidad");
-            headerCell.setCellStyle(grayHeaderStyle);
-
-            int rowNum = 3;
-            for (NursingReportDetail detail : nursingReport.getDiagnosticCount()) {
-                Row row = sheet.createRow(rowNum++);
-
-                String formattedDiagnostic = detail.getDiagnostic()
-                        .toString()
-                        .toLowerCase()
-                        .replace("_", " ");
-                formattedDiagnostic = Character.toUpperCase(formattedDiagnostic.charAt(0)) + formattedDiagnostic.substring(1);
-
-                Cell diagnosticCell = row.createCell(0);
-                diagnosticCell.setCellValue(formattedDiagnostic);
-                diagnosticCell.setCellStyle(normalStyle);
-
-                Cell countCell = row.createCell(1);
-                countCell.setCellValue(detail.getCount());
-                countCell.setCellStyle(normalStyle);
+        return reportExportEngine.stream(export, "Informe de enfermería", new int[]{14, 16, 25, 25, 14, 30, 10, 12, 30, 50}, sheet -> {
+            // CSV: solo la tabla de actividades, los totales por diagnóstico salen de ella
+            if (!sheet.tabular()) {
+                writeSummary(sheet, nursingReport, details);
             }
 
-            // Espacio entre tablas
-            rowNum++;
-
-            // Tabla 2: Información de las actividades realizadas
-            Row activityHeader = sheet.createRow(rowNum++);
-            String[] activityHeaders = {
-                    "Fecha", "Codigo/CC", "Nombre", "Apellido", "Teléfono", "Plan", "Semestre", "Género", "Diagnóstico", "Conducta"
-            };
-
-            for (int i = 0; i < activityHeaders.length; i++) {
-                Cell activityHeaderCell = activityHeader.createCell(i);
-                activityHeaderCell.setCellValue(activityHeaders[i]);
-                activityHeaderCell.setCellStyle(grayHeaderStyle);
+            // Tabla 2: Información de las actividades realizadas, leídas por cursor
+            sheet.header("Fecha", "Codigo/CC", "Nombre", "Apellido", "Teléfono", "Plan", "Semestre", "Género", "Diagnóstico", "Conducta");
+            try (Stream<NursingActivityRow> activities = reportNursingRepository.streamActivities(id)) {
+                activities.forEach(activity -> sheet.row(
+                        activity.date().format(dateFormatter),
+                        activity.username(),
+                        activity.name(),
+                        activity.lastName(),
+                        activity.phone() != null ? activity.phone().toString() : "",
+                        activity.plan(),
+                        activity.semester(),
+                        activity.gender() != null ? activity.gender().name() : "",
+                        ReportExportEngine.label(activity.diagnostic()),
+                        activity.conduct()));
             }
+        });
+    }
 
-            // Poblar filas con actividades
-            for (NursingActivityLog activity : nursingReport.getActivities()) {
-                Row row = sheet.createRow(rowNum++);
-
-                row.createCell(0).setCellValue(activity.getDate().format(dateFormatter));
-                row.createCell(1).setCellValue(activity.getUser().getUsername());
-                row.createCell(2).setCellValue(activity.getUser().getName());
-                row.createCell(3).setCellValue(activity.getUser().getLastName());
-                row.createCell(4).setCellValue(activity.getUser().getPhone() != null ? activity.getUser().getPhone().toString() : "");
-                row.createCell(5).setCellValue(activity.getUser().getPlan());
-                row.createCell(6).setCellValue(activity.getUser().getSemester());
-                row.createCell(7).setCellValue(activity.getUser().getGender() != null ? activity.getUser().getGender().name() : "");
-                String formattedDiagnostic = activity.getDiagnostic()
-                        .toString()
-                        .toLowerCase()
-                        .replace("_", " ");
-                formattedDiagnostic = Character.toUpperCase(formattedDiagnostic.charAt(0)) + formattedDiagnostic.substring(1);
-                row.createCell(8).setCellValue(formattedDiagnostic);
-                row.createCell(9).setCellValue(activity.getConduct());
-            }
+    private static void writeSummary(ExportSheet sheet, NursingReport nursingReport, List<NursingReportDetail> details) {
+        // Información del informe (encabezado)
+        sheet.info("Fecha", nursingReport.getDate().toString(),
+                "Informe", nursingReport.getYear() + "-" + nursingReport.getTrimester());
 
-            // Ajustar ancho de columnas automáticamente
-            for (int i = 0; i < activityHeaders.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
+        // Espacio entre secciones
+        sheet.skip();
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
+        // Tabla 1: Información de los diagnósticos
+        sheet.header("Motivo", "Cantidad");
+        details.forEach(detail ->
+                sheet.row(ReportExportEngine.label(detail.getDiagnostic()), detail.getCount()));
 
-        } catch (IOException e) {
-            throw new RuntimeException("Error al generar el archivo Excel", e);
-        }
+        // Espacio entre tablas
+        sheet.skip();
     }
 
 
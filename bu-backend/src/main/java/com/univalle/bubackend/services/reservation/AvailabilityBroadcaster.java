@@ -0,0 +1,61 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.DTOs.reservation.AvailabilityResponse;
+import com.univalle.bubackend.websocket.WebSocketHandler;
+import com.univalle.bubackend.websocket.WebSocketTopics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Agrupa las actualizaciones de disponibilidad: en cada intervalo lee los contadores del día
+ * y solo transmite a los suscriptores del tema que cambió (almuerzo o refrigerio). El JSON se
+ * serializa una vez por cambio y queda como snapshot para las sesiones que se suscriben después.
+ */
+@Slf4j
+@Component
+public class AvailabilityBroadcaster {
+
+    private static final List<String> ALL_TOPICS = List.of(WebSocketTopics.AVAILABILITY_LUNCH, WebSocketTopics.AVAILABILITY_SNACK);
+
+    private final ReservationCapacityLedger capacityLedger;
+    private final WebSocketHandler webSocketHandler;
+    private final ObjectMapper objectMapper;
+
+    private AvailabilityResponse lastSent;
+
+    public AvailabilityBroadcaster(ReservationCapacityLedger capacityLedger, WebSocketHandler webSocketHandler, ObjectMapper objectMapper) {
+        this.capacityLedger = capacityLedger;
+        this.webSocketHandler = webSocketHandler;
+        this.objectMapper = objectMapper;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.availability.broadcast-interval:250}")
+    public void flush() {
+        AvailabilityResponse availability = capacityLedger.availability();
+        if (availability.equals(lastSent)) {
+            return;
+        }
+
+        List<String> changed = new ArrayList<>(2);
+        if (lastSent == null || !lastSent.remainingSlotsLunch().equals(availability.remainingSlotsLunch())) {
+            changed.add(WebSocketTopics.AVAILABILITY_LUNCH);
+        }
+        if (lastSent == null || !lastSent.remainingSlotsSnack().equals(availability.remainingSlotsSnack())) {
+            changed.add(WebSocketTopics.AVAILABILITY_SNACK);
+        }
+
+        try {
+            String message = objectMapper.writeValueAsString(availability);
+            webSocketHandler.updateSnapshot(ALL_TOPICS, message);
+            webSocketHandler.publish(changed, message);
+            lastSent = availability;
+        } catch (Exception e) {
+            log.warn("No se pudo transmitir la disponibilidad: {}", e.getMessage());
+        }
+    }
+}
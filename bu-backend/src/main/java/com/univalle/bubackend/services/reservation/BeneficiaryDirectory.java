@@ -0,0 +1,51 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.DTOs.user.ListUserRow;
+import com.univalle.bubackend.repository.UserEntityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Marcas de beneficiario de almuerzo y refrigerio en memoria, para que la sala de espera
+ * elija la fila sin consultar la base de datos en el hilo de la petición. Se recarga
+ * periódicamente; un cambio reciente solo afecta el orden en la fila, no la validación
+ * que hace la reserva.
+ */
+@Slf4j
+@Component
+public class BeneficiaryDirectory {
+
+    private static final int LUNCH = 1;
+    private static final int SNACK = 2;
+
+    private final UserEntityRepository userEntityRepository;
+
+    private volatile Map<String, Integer> beneficiaries = Map.of();
+
+    public BeneficiaryDirectory(UserEntityRepository userEntityRepository) {
+        this.userEntityRepository = userEntityRepository;
+    }
+
+    public boolean isBeneficiary(String username, boolean lunch, boolean snack) {
+        int flags = beneficiaries.getOrDefault(username, 0);
+        return (lunch && (flags & LUNCH) != 0) || (snack && (flags & SNACK) != 0);
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.beneficiaries.refresh-interval:60000}")
+    public void refresh() {
+        List<ListUserRow> rows = userEntityRepository.findBeneficiaryRows();
+        Map<String, Integer> loaded = new HashMap<>(rows.size() * 2);
+        for (ListUserRow row : rows) {
+            int flags = (Boolean.TRUE.equals(row.lunchBeneficiary()) ? LUNCH : 0)
+                    | (Boolean.TRUE.equals(row.snackBeneficiary()) ? SNACK : 0);
+            loaded.put(row.username(), flags);
+        }
+        beneficiaries = loaded;
+        log.debug("Directorio de beneficiarios cargado con {} usuarios", loaded.size());
+    }
+}
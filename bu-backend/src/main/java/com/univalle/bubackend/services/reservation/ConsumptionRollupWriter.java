@@ -0,0 +1,254 @@
+package com.univalle.bubackend.services.reservation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * Mantiene consumption_rollup: cada reserva creada, cancelada o pagada suma uno a su grupo
+ * (día, comida, hora, plan, beneficiario). Una reserva de almuerzo y refrigerio cuenta en las dos comidas.
+ *
+ * <p>Los grupos de una hora se comparten entre todas las reservas de esa hora, así que no se
+ * escriben dentro de la transacción de la reserva: ahí solo se leen los grupos de la reserva, y al
+ * confirmar se suman a un acumulado en memoria que se vuelca cada pocos segundos con un upsert por
+ * grupo. Si la instancia se cae se pierde lo que no se alcanzó a volcar, a lo sumo un intervalo.</p>
+ *
+ * <p>Hasta que termina {@link #backfill()} el acumulado no se vuelca: lo confirmado se guarda con el
+ * id de su transacción y, al terminar, se descarta lo que el historial ya contó según la instantánea
+ * con la que se leyó. Así una instancia que arranca a mitad del día no cuenta dos veces las reservas
+ * de hoy ni pierde las anteriores.</p>
+ *
+ * <p>Debe llamarse dentro de la transacción de la reserva y mientras la fila todavía exista
+ * (antes de que se borre al cancelar).</p>
+ */
+@Slf4j
+@Component
+public class ConsumptionRollupWriter {
+
+    private static final String ADD = "UPDATE SET reserved = consumption_rollup.reserved + EXCLUDED.reserved, " +
+            "cancelled = consumption_rollup.cancelled + EXCLUDED.cancelled, " +
+            "paid = consumption_rollup.paid + EXCLUDED.paid";
+
+    // Siempre en el mismo orden, para que dos instancias que vuelcan a la vez no se bloqueen mutuamente
+    private static final Comparator<Group> ORDER = Comparator.comparing(Group::serviceDate)
+            .thenComparing(Group::meal)
+            .thenComparingInt(Group::hour)
+            .thenComparing(Group::plan)
+            .thenComparing(Group::beneficiary);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+
+    private final ConcurrentHashMap<Group, Delta> pending = new ConcurrentHashMap<>();
+
+    // Lo confirmado antes de terminar el backfill, con la transacción que lo escribió
+    private final Object startup = new Object();
+    private List<Confirmed> early = new ArrayList<>();
+    private volatile boolean backfilled;
+
+    public ConsumptionRollupWriter(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // La instantánea y el conteo del historial deben ver exactamente las mismas transacciones
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    record Group(LocalDate serviceDate, String meal, int hour, String plan, boolean beneficiary) {
+    }
+
+    record Delta(long reserved, long cancelled, long paid) {
+
+        Delta plus(Delta other) {
+            return new Delta(reserved + other.reserved, cancelled + other.cancelled, paid + other.paid);
+        }
+    }
+
+    private record Confirmed(String xid, Map<Group, Delta> deltas) {
+    }
+
+    public void reserved(Integer reservationId) {
+        track(List.of(reservationId), count -> new Delta(count, 0, 0));
+    }
+
+    public void cancelled(Integer reservationId) {
+        track(List.of(reservationId), count -> new Delta(0, count, 0));
+    }
+
+    public void paid(Collection<Integer> reservationIds) {
+        if (!reservationIds.isEmpty()) {
+            track(reservationIds, count -> new Delta(0, 0, count));
+        }
+    }
+
+    /**
+     * Vuelca el acumulado en una transacción. Si falla, lo que se sacó vuelve al acumulado.
+     */
+    @Scheduled(fixedDelayString = "${reservation.rollup.flush-interval:5000}")
+    @PreDestroy
+    public void flush() {
+        if (!backfilled) {
+            return;
+        }
+        List<Map.Entry<Group, Delta>> drained = new ArrayList<>();
+        for (Group group : pending.keySet()) {
+            Delta delta = pending.remove(group);
+            if (delta != null) {
+                drained.add(Map.entry(group, delta));
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        drained.sort(Map.Entry.comparingByKey(ORDER));
+
+        SqlParameterSource[] batch = drained.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("serviceDate", entry.getKey().serviceDate())
+                        .addValue("meal", entry.getKey().meal())
+                        .addValue("hour", entry.getKey().hour())
+                        .addValue("plan", entry.getKey().plan())
+                        .addValue("beneficiary", entry.getKey().beneficiary())
+                        .addValue("reserved", entry.getValue().reserved())
+                        .addValue("cancelled", entry.getValue().cancelled())
+                        .addValue("paid", entry.getValue().paid()))
+                .toArray(SqlParameterSource[]::new);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "INSERT INTO consumption_rollup (service_date, meal, hour, plan, beneficiary, reserved, cancelled, paid) " +
+                            "VALUES (:serviceDate, :meal, :hour, :plan, :beneficiary, :reserved, :cancelled, :paid) " +
+                            "ON CONFLICT (service_date, meal, hour, plan, beneficiary) DO " + ADD, batch));
+        } catch (RuntimeException e) {
+            drained.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Delta::plus));
+            log.warn("No se pudieron volcar {} agregados de consumo, se reintenta: {}", drained.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Arma los agregados a partir del historial de reservas, hoy incluido, la primera vez que arranca
+     * con la tabla vacía, y después libera el volcado. De lo confirmado mientras tanto se descartan las
+     * reservas y pagos que la instantánea del historial ya veía; las cancelaciones se conservan porque
+     * el historial no las tiene: esas reservas se borraron y no se pueden recuperar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        String snapshot = null;
+        try {
+            snapshot = snapshotTemplate.execute(status -> {
+                // Primera sentencia de la transacción: fija la instantánea que usa el conteo
+                String taken = jdbcTemplate.getJdbcTemplate()
+                        .queryForObject("SELECT CAST(pg_current_snapshot() AS text)", String.class);
+                Boolean present = jdbcTemplate.getJdbcTemplate()
+                        .queryForObject("SELECT EXISTS (SELECT 1 FROM consumption_rollup)", Boolean.class);
+                if (Boolean.TRUE.equals(present)) {
+                    return null;
+                }
+                int groups = jdbcTemplate.update("INSERT INTO consumption_rollup " +
+                        "(service_date, meal, hour, plan, beneficiary, reserved, cancelled, paid) " +
+                        "SELECT service_date, meal, hour, plan, beneficiary, COUNT(*), 0, SUM(CASE WHEN paid THEN 1 ELSE 0 END) " +
+                        "FROM (" + groups("TRUE") + ") e " +
+                        "GROUP BY service_date, meal, hour, plan, beneficiary " +
+                        "ON CONFLICT (service_date, meal, hour, plan, beneficiary) DO NOTHING", new MapSqlParameterSource());
+                log.info("Agregados de consumo construidos desde el historial: {} grupos", groups);
+                return taken;
+            });
+        } catch (Exception e) {
+            log.warn("No se pudieron construir los agregados de consumo: {}", e.getMessage());
+        }
+
+        synchronized (startup) {
+            Set<String> counted = snapshot != null ? visible(early, snapshot) : Set.of();
+            for (Confirmed confirmed : early) {
+                boolean inHistory = counted.contains(confirmed.xid());
+                confirmed.deltas().forEach((group, delta) -> pending.merge(group,
+                        inHistory ? new Delta(0, delta.cancelled(), 0) : delta, Delta::plus));
+            }
+            early = null;
+            backfilled = true;
+        }
+    }
+
+    // Transacciones de la lista que ya estaban confirmadas cuando se tomó la instantánea
+    private Set<String> visible(List<Confirmed> confirmed, String snapshot) {
+        if (confirmed.isEmpty()) {
+            return Set.of();
+        }
+        List<String> xids = confirmed.stream().map(Confirmed::xid).distinct().toList();
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT x FROM unnest(ARRAY[:xids]) AS x " +
+                        "WHERE pg_visible_in_snapshot(CAST(x AS xid8), CAST(:snapshot AS pg_snapshot))",
+                new MapSqlParameterSource("xids", xids).addValue("snapshot", snapshot), String.class));
+    }
+
+    // Lee los grupos en la transacción de la reserva y los suma al acumulado cuando confirma
+    private void track(Collection<Integer> reservationIds, LongFunction<Delta> delta) {
+        String xid = backfilled ? null : jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT CAST(pg_current_xact_id() AS text)", String.class);
+        Map<Group, Delta> deltas = new HashMap<>();
+        jdbcTemplate.query("SELECT service_date, meal, hour, plan, beneficiary, COUNT(*) " +
+                        "FROM (" + groups("r.id IN (:ids)") + ") e " +
+                        "GROUP BY service_date, meal, hour, plan, beneficiary",
+                new MapSqlParameterSource("ids", reservationIds),
+                rs -> {
+                    deltas.put(new Group(rs.getObject(1, LocalDate.class), rs.getString(2), rs.getInt(3),
+                            rs.getString(4), rs.getBoolean(5)), delta.apply(rs.getLong(6)));
+                });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    confirmed(xid, deltas);
+                }
+            });
+        } else {
+            confirmed(xid, deltas);
+        }
+    }
+
+    private void confirmed(String xid, Map<Group, Delta> deltas) {
+        if (!backfilled) {
+            synchronized (startup) {
+                if (!backfilled) {
+                    early.add(new Confirmed(xid, deltas));
+                    return;
+                }
+            }
+        }
+        deltas.forEach((group, value) -> pending.merge(group, value, Delta::plus));
+    }
+
+    // Una fila por reserva y comida con su grupo
+    private static String groups(String filter) {
+        return "SELECT r.service_date, 'LUNCH' AS meal, CAST(EXTRACT(HOUR FROM r.time) AS INTEGER) AS hour, " +
+                "COALESCE(u.plan, '') AS plan, COALESCE(u.lunch_beneficiary, false) AS beneficiary, r.paid AS paid " +
+                "FROM reservation r JOIN user_entity u ON u.id = r.user_id WHERE r.lunch AND " + filter + " " +
+                "UNION ALL " +
+                "SELECT r.service_date, 'SNACK', CAST(EXTRACT(HOUR FROM r.time) AS INTEGER), " +
+                "COALESCE(u.plan, ''), COALESCE(u.snack_beneficiary, false), r.paid " +
+                "FROM reservation r JOIN user_entity u ON u.id = r.user_id WHERE r.snack AND " + filter;
+    }
+}
@@ -1,5 +1,8 @@
 package com.univalle.bubackend.services.reservation;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentRequest;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentResponse;
 import com.univalle.bubackend.DTOs.payment.ReservationPaymentRequest;
 import com.univalle.bubackend.DTOs.payment.ReservationPaymentResponse;
 import com.univalle.bubackend.DTOs.reservation.*;
@@ -30,5 +33,9 @@ public interface IReservationService {
 
     ReservationPaymentResponse registerPayment(ReservationPaymentRequest paymentRequest);
 
+    BatchPaymentResponse registerPayments(BatchPaymentRequest batchRequest);
+
     Page<ListReservationResponse> getActiveReservations(Pageable pageable);
+
+    CursorSlice<ListReservationResponse> getActiveReservations(String cursor, int size);
 }
\ No newline at end of file
@@ -0,0 +1,289 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.DTOs.reservation.AvailabilityResponse;
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.exceptions.reservation.NoSlotsAvailableException;
+import com.univalle.bubackend.repository.ReservationRepository;
+import com.univalle.bubackend.services.setting.SettingSnapshot;
+import com.univalle.bubackend.services.setting.SettingSnapshotHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Contadores en memoria de los cupos de almuerzo y refrigerio del día.
+ * Se inicializan desde la configuración y las reservas ya guardadas, y se concilian
+ * periódicamente con la base de datos, de modo que las consultas de disponibilidad no la tocan.
+ * Las reservas hechas en otras instancias llegan por el bus del clúster y se aplican como variaciones.
+ */
+@Slf4j
+@Component
+public class ReservationCapacityLedger {
+
+    private static final int RECONCILE_ATTEMPTS = 5;
+
+    private final ReservationRepository reservationRepository;
+    private final SettingSnapshotHolder settingHolder;
+    private final ClusterEventBus clusterEventBus;
+
+    private final AtomicReference<DailySlots> current = new AtomicReference<>();
+
+    public ReservationCapacityLedger(ReservationRepository reservationRepository, SettingSnapshotHolder settingHolder,
+                                     ClusterEventBus clusterEventBus) {
+        this.reservationRepository = reservationRepository;
+        this.settingHolder = settingHolder;
+        this.clusterEventBus = clusterEventBus;
+    }
+
+    public AvailabilityResponse availability() {
+        DailySlots slots = today();
+        return new AvailabilityResponse(slots.lunch.get(), slots.snack.get());
+    }
+
+    public int remainingLunch() {
+        return today().lunch.get();
+    }
+
+    public int remainingSnack() {
+        return today().snack.get();
+    }
+
+    /**
+     * Toma los cupos pedidos de forma atómica. Si la transacción actual no se confirma,
+     * los cupos se devuelven automáticamente.
+     */
+    public void acquire(boolean lunch, boolean snack) {
+        DailySlots slots = today();
+
+        slots.change(() -> {
+            if (lunch && !tryDecrement(slots.lunch)) {
+                throw new NoSlotsAvailableException("No quedan reservas de almuerzo disponibles para hoy.");
+            }
+            if (snack && !tryDecrement(slots.snack)) {
+                if (lunch) {
+                    slots.lunch.incrementAndGet();
+                }
+                throw new NoSlotsAvailableException("No quedan reservas de refrigerio disponibles para hoy.");
+            }
+
+            if (lunch) slots.pendingLunch.incrementAndGet();
+            if (snack) slots.pendingSnack.incrementAndGet();
+        });
+
+        afterCompletion(slots, committed -> {
+            if (lunch) slots.pendingLunch.decrementAndGet();
+            if (snack) slots.pendingSnack.decrementAndGet();
+            if (!committed) {
+                if (lunch) slots.lunch.incrementAndGet();
+                if (snack) slots.snack.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Devuelve los cupos de una reserva cancelada una vez se confirma la transacción.
+     */
+    public void release(LocalDate day, boolean lunch, boolean snack) {
+        DailySlots slots = current.get();
+        if (slots == null || !slots.day.equals(day)) {
+            return;
+        }
+        afterCompletion(slots, committed -> {
+            if (committed) {
+                if (lunch) slots.lunch.incrementAndGet();
+                if (snack) slots.snack.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Descarta los contadores actuales, por ejemplo cuando cambia la configuración.
+     */
+    public void reset() {
+        current.set(null);
+    }
+
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        switch (event.type()) {
+            case SETTING_CHANGED, RESYNC -> reset();
+            case RESERVATION_CHANGED -> {
+                // Los cambios propios ya se aplicaron en acquire/release
+                if (clusterEventBus.getNodeId().equals(event.origin())) {
+                    return;
+                }
+                DailySlots slots = current.get();
+                if (slots != null && slots.day.equals(event.day())) {
+                    slots.change(() -> {
+                        slots.lunch.addAndGet(event.lunch());
+                        slots.snack.addAndGet(event.snack());
+                    });
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.capacity.reconcile-interval:60000}")
+    public void reconcile() {
+        DailySlots slots = current.get();
+        if (slots == null || !slots.day.equals(LocalDate.now())) {
+            return;
+        }
+
+        SettingSnapshot setting = settingHolder.get().orElse(null);
+        if (setting == null) {
+            return;
+        }
+
+        int lunchDelta = 0;
+        int snackDelta = 0;
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            /*
+             * Contadores, pendientes y conteo de la base de datos deben corresponder al mismo
+             * instante: si entre la primera y la última lectura cambió la generación o hay una
+             * reserva confirmándose, el conteo puede incluirla o no, y se vuelve a intentar.
+             */
+            long generation = slots.generation.get();
+            int observedLunch = slots.lunch.get();
+            int observedSnack = slots.snack.get();
+            int pendingLunch = slots.pendingLunch.get();
+            int pendingSnack = slots.pendingSnack.get();
+            int lunchReserved = reservationRepository.countLunchReservationsForDay(slots.day);
+            int snackReserved = reservationRepository.countSnackReservationsForDay(slots.day);
+            if (slots.generation.get() != generation || slots.writers.get() != 0) {
+                continue;
+            }
+
+            // Si el contador cambió desde la lectura, la corrección ya no aplica y se recalcula
+            int expectedLunch = setting.getNumLunch() - lunchReserved - pendingLunch;
+            if (!slots.lunch.compareAndSet(observedLunch, expectedLunch)) {
+                continue;
+            }
+            lunchDelta += expectedLunch - observedLunch;
+
+            int expectedSnack = setting.getNumSnack() - snackReserved - pendingSnack;
+            if (!slots.snack.compareAndSet(observedSnack, expectedSnack)) {
+                continue;
+            }
+            snackDelta += expectedSnack - observedSnack;
+
+            if (lunchDelta != 0 || snackDelta != 0) {
+                log.info("Cupos conciliados: almuerzo {}, refrigerio {}", lunchDelta, snackDelta);
+            }
+            return;
+        }
+        log.debug("Conciliación de cupos aplazada: los contadores cambiaron durante {} intentos", RECONCILE_ATTEMPTS);
+    }
+
+    private DailySlots today() {
+        LocalDate today = LocalDate.now();
+        DailySlots slots = current.get();
+        if (slots != null && slots.day.equals(today)) {
+            return slots;
+        }
+
+        synchronized (this) {
+            slots = current.get();
+            if (slots == null || !slots.day.equals(today)) {
+                slots = seed(today);
+                current.set(slots);
+            }
+            return slots;
+        }
+    }
+
+    private DailySlots seed(LocalDate day) {
+        SettingSnapshot setting = settingHolder.get().orElse(null);
+        if (setting == null) {
+            return new DailySlots(day, 0, 0);
+        }
+
+        int lunch = setting.getNumLunch() - reservationRepository.countLunchReservationsForDay(day);
+        int snack = setting.getNumSnack() - reservationRepository.countSnackReservationsForDay(day);
+        return new DailySlots(day, lunch, snack);
+    }
+
+    private static boolean tryDecrement(AtomicInteger counter) {
+        int value;
+        do {
+            value = counter.get();
+            if (value <= 0) {
+                return false;
+            }
+        } while (!counter.compareAndSet(value, value - 1));
+        return true;
+    }
+
+    /*
+     * Desde antes del commit hasta aplicar el resultado la reserva cuenta como escritor: la base
+     * de datos ya puede reflejarla mientras los contadores todavía no.
+     */
+    private static void afterCompletion(DailySlots slots, CompletionCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            slots.change(() -> callback.completed(true));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committing;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                slots.writers.incrementAndGet();
+                committing = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    slots.change(() -> callback.completed(status == STATUS_COMMITTED));
+                } finally {
+                    if (committing) {
+                        slots.writers.decrementAndGet();
+                    }
+                }
+            }
+        });
+    }
+
+    private interface CompletionCallback {
+        void completed(boolean committed);
+    }
+
+    private static final class DailySlots {
+        private final LocalDate day;
+        private final AtomicInteger lunch;
+        private final AtomicInteger snack;
+        private final AtomicInteger pendingLunch = new AtomicInteger();
+        private final AtomicInteger pendingSnack = new AtomicInteger();
+        // Cambios terminados y cambios en curso, para que la conciliación lea un estado consistente
+        private final AtomicLong generation = new AtomicLong();
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private DailySlots(LocalDate day, int lunch, int snack) {
+            this.day = day;
+            this.lunch = new AtomicInteger(lunch);
+            this.snack = new AtomicInteger(snack);
+        }
+
+        private void change(Runnable change) {
+            writers.incrementAndGet();
+            try {
+                change.run();
+            } finally {
+                generation.incrementAndGet();
+                writers.decrementAndGet();
+            }
+        }
+    }
+}
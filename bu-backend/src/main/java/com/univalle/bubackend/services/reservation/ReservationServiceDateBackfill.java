@@ -0,0 +1,46 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.repository.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Migración única de la columna service_date: llena el día de servicio de las reservas guardadas
+ * antes de que existiera y la deja NOT NULL. Una vez aplicada, los arranques siguientes solo
+ * consultan el catálogo y no vuelven a recorrer la tabla.
+ */
+@Slf4j
+@Component
+public class ReservationServiceDateBackfill {
+
+    private final ReservationRepository reservationRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReservationServiceDateBackfill(ReservationRepository reservationRepository, JdbcTemplate jdbcTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!isNullable()) {
+            return;
+        }
+
+        int updated = reservationRepository.backfillServiceDate();
+        jdbcTemplate.execute("ALTER TABLE reservation ALTER COLUMN service_date SET NOT NULL");
+        log.info("Día de servicio asignado a {} reservas existentes; service_date queda NOT NULL", updated);
+    }
+
+    private boolean isNullable() {
+        String nullable = jdbcTemplate.query("SELECT is_nullable FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'reservation' AND column_name = 'service_date'",
+                rs -> rs.next() ? rs.getString(1) : null);
+        return "YES".equals(nullable);
+    }
+}
@@ -1,25 +1,30 @@
 package com.univalle.bubackend.services.reservation;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.DTOs.CursorSlice;
+import com.univalle.bubackend.DTOs.KeysetCursor;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentItem;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentRequest;
+import com.univalle.bubackend.DTOs.payment.BatchPaymentResponse;
 import com.univalle.bubackend.DTOs.payment.ReservationPaymentRequest;
 import com.univalle.bubackend.DTOs.payment.ReservationPaymentResponse;
 import com.univalle.bubackend.DTOs.reservation.*;
 import com.univalle.bubackend.DTOs.user.UserRequest;
-import com.univalle.bubackend.exceptions.reservation.NoSlotsAvailableException;
 import com.univalle.bubackend.exceptions.ResourceNotFoundException;
 import com.univalle.bubackend.exceptions.reservation.UnauthorizedException;
 import com.univalle.bubackend.models.Reservation;
 import com.univalle.bubackend.models.RoleName;
-import com.univalle.bubackend.models.Setting;
 import com.univalle.bubackend.models.UserEntity;
 import com.univalle.bubackend.repository.ReservationRepository;
-import com.univalle.bubackend.repository.SettingRepository;
 import com.univalle.bubackend.repository.UserEntityRepository;
+import com.univalle.bubackend.services.reservation.UnpaidReservationIndex.UnpaidReservation;
+import com.univalle.bubackend.services.setting.SettingSnapshot;
+import com.univalle.bubackend.services.setting.SettingSnapshotHolder;
 import com.univalle.bubackend.services.user.UserServiceImpl;
 import com.univalle.bubackend.services.email.EmailServiceImpl;
-import com.univalle.bubackend.websocket.WebSocketHandler;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,27 +33,35 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 @Transactional
 public class ReservationServiceImpl implements IReservationService {
 
+    private static final int MAX_PAYMENT_BATCH = 200;
+
     private final ReservationRepository reservationRepository;
     private final UserEntityRepository userEntityRepository;
-    private final SettingRepository settingRepository;
+    private final SettingSnapshotHolder settingHolder;
     private final UserServiceImpl userService;
     private final EmailServiceImpl emailService;
-    private final WebSocketHandler webSocketHandler;
-    private final ObjectMapper objectMapper;
+    private final ReservationCapacityLedger capacityLedger;
+    private final ReservationSlotAllocator slotAllocator;
+    private final ClusterEventBus clusterEventBus;
+    private final UnpaidReservationIndex unpaidIndex;
+    private final ConsumptionRollupWriter consumptionRollupWriter;
 
     @Override
     public ReservationUserResponse createReservation(UserEntity user, boolean lunch, boolean snack) {
 
-        LocalTime now = LocalTime.now();
+        long now = LocalTime.now().toNanoOfDay();
         LocalDate today = LocalDate.now();
 
-        Setting setting = settingRepository.findSettingById(1)
+        SettingSnapshot setting = settingHolder.get()
                 .orElseThrow(() -> new ResourceNotFoundException("Configuración no encontrada"));
 
 
@@ -56,52 +69,42 @@ public class ReservationServiceImpl implements IReservationService {
         List<Reservation> snackReservation = reservationRepository.findSnackReservationByUser(user.getUsername(), today);
 
         // Inicio reserva de almuerzo a beneficiarios
-        if (lunch && user.getLunchBeneficiary() && now.isBefore(setting.getStartBeneficiaryLunch())) {
+        if (lunch && user.getLunchBeneficiary() && setting.isBeforeLunchSale(now, true)) {
             throw new UnauthorizedException("No tienes acceso a reservar almuerzo. Todavía no inicia la venta.");
         }
         // Inicio reserva de almuerzo a venta libre
-        if (lunch && !user.getLunchBeneficiary() && now.isBefore(setting.getStartLunch())) {
+        if (lunch && !user.getLunchBeneficiary() && setting.isBeforeLunchSale(now, false)) {
             throw new UnauthorizedException("No tienes acceso a reservar almuerzo. Espera a venta libre.");
         }
         // Finalización de reserva de almuerzos
-        if (lunch && now.isAfter(setting.getEndLunch())) {
+        if (lunch && setting.isAfterLunchSale(now)) {
             throw new UnauthorizedException("No tienes acceso a reservar almuerzo. La venta ya finalizó.");
         }
 
         // Inicio reserva de refrigerio a beneficiarios
-        if (snack && user.getSnackBeneficiary() && now.isBefore(setting.getStartBeneficiarySnack())) {
+        if (snack && user.getSnackBeneficiary() && setting.isBeforeSnackSale(now, true)) {
             throw new UnauthorizedException("No tienes acceso a reservar refrigerio. Todavía no inicia la venta.");
         }
         // Inicio reserva de refrigerio a venta libre
-        if (snack && !user.getSnackBeneficiary() && now.isBefore(setting.getStartSnack())) {
+        if (snack && !user.getSnackBeneficiary() && setting.isBeforeSnackSale(now, false)) {
             throw new UnauthorizedException("No tienes acceso a reservar refrigerio. Espera a venta libre.");
         }
         // Finalización de reserva de refrigerio
-        if (snack && now.isAfter(setting.getEndSnack())) {
+        if (snack && setting.isAfterSnackSale(now)) {
             throw new UnauthorizedException("No tienes acceso a reservar refrigerio. La venta ya finalizó.");
         }
 
-        // Llamar a getAvailability para obtener los slots restantes
-        AvailabilityResponse availability = getAvailability();
-
-        // Validación de slots disponibles para almuerzo
-        if (lunch && availability.remainingSlotsLunch() <= 0) {
-            throw new NoSlotsAvailableException("No quedan reservas de almuerzo disponibles para hoy.");
-        }
-
-        // Validación de slots disponibles para refrigerio
-        if (snack && availability.remainingSlotsSnack() <= 0) {
-            throw new NoSlotsAvailableException("No quedan reservas de refrigerio disponibles para hoy.");
-        }
-
-        if (!lunchReservation.isEmpty() && now.isAfter(setting.getStartBeneficiaryLunch()) && now.isBefore(setting.getEndLunch())) {
+        if (!lunchReservation.isEmpty() && setting.isLunchSaleOpen(now)) {
             throw new UnauthorizedException("El usuario ya realizó una reserva el día de hoy");
         }
 
-        if (!snackReservation.isEmpty() && now.isAfter(setting.getStartBeneficiarySnack()) && now.isBefore(setting.getEndSnack())) {
+        if (!snackReservation.isEmpty() && setting.isSnackSaleOpen(now)) {
             throw new UnauthorizedException("El usuario ya realizó una reserva el día de hoy");
         }
 
+        // Tomar los cupos del contador diario; se devuelven si la transacción no se confirma
+        capacityLedger.acquire(lunch, snack);
+
         // Crear la reserva
         Reservation reservation = Reservation.builder()
                 .userEntity(user)
@@ -109,14 +112,17 @@ public class ReservationServiceImpl implements IReservationService {
                 .snack(snack)
                 .data(LocalDateTime.now())
                 .time(LocalTime.now())
+                .serviceDate(today)
                 .paid(false)
                 .build();
 
         reservationRepository.save(reservation);
 
-        // Transmitir la disponibilidad actualizada
-        AvailabilityResponse availabilityResponse = getAvailability();
-        broadcastAvailability(availabilityResponse);
+        // Reclamar la ficha de cupo en la misma transacción; si no hay, se revierte el insert
+        slotAllocator.claim(reservation, setting);
+        consumptionRollupWriter.reserved(reservation.getId());
+        clusterEventBus.reservationChanged(today, lunch ? -1 : 0, snack ? -1 : 0, reservation.getId());
+        unpaidIndex.added(reservation);
 
         return new ReservationUserResponse(
                 "Reserva realizada con éxito.",
@@ -218,72 +224,31 @@ public class ReservationServiceImpl implements IReservationService {
     @Override
     public AvailabilityResponse getAvailability() {
 
-        LocalDate today = LocalDate.now();
-
-        Optional<Setting> setting = settingRepository.findSettingById(1);
-
-        if (setting.isEmpty()) {
-            AvailabilityResponse emptyResponse = new AvailabilityResponse(0, 0);
-            broadcastAvailability(emptyResponse); // Transmite la respuesta vacía
-            return emptyResponse;
-        }
-
-        int maxLunchSlots = setting.get().getNumLunch();
-        int currentLunchReservations = reservationRepository.countLunchReservationsForDay(today);
-        int remainingSlotsLunch = maxLunchSlots - currentLunchReservations;
-
-        int maxSnackSlots = setting.get().getNumSnack();
-        int currentSnackReservations = reservationRepository.countSnackReservationsForDay(today);
-        int remainingSlotsSnack = maxSnackSlots - currentSnackReservations;
-
-        AvailabilityResponse availabilityResponse = new AvailabilityResponse(
-                remainingSlotsLunch,
-                remainingSlotsSnack
-        );
-
-        // Envía la actualización de disponibilidad a los clientes conectados
-        broadcastAvailability(availabilityResponse);
-
-        return availabilityResponse;
-    }
-
-    /**
-     * Método para transmitir la disponibilidad actual a los clientes conectados mediante WebSockets.
-     */
-    public void broadcastAvailability(AvailabilityResponse availabilityResponse) {
-        try {
-            String message = objectMapper.writeValueAsString(availabilityResponse);
-            webSocketHandler.broadcast(message); // Envía el mensaje a los clientes conectados
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // Los cupos restantes salen del contador diario, sin consultar la base de datos.
+        // La transmisión a los clientes la hace AvailabilityBroadcaster cuando cambian.
+        return capacityLedger.availability();
     }
 
     @Override
     public AvailabilityPerHourResponse getAvailabilityPerHour() {
 
-        LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
+        long now = LocalTime.now().toNanoOfDay();
         int availability = 0;
         LocalTime start = LocalTime.MIN;
         LocalTime end = LocalTime.MAX;
         String type = "";
 
-        Optional<Setting> setting = settingRepository.findSettingById(1);
+        Optional<SettingSnapshot> setting = settingHolder.get();
 
-        if (setting.isPresent() && now.isAfter(setting.get().getStartBeneficiaryLunch()) && now.isBefore(setting.get().getStartBeneficiarySnack())) {
-            int maxSlots = setting.get().getNumLunch();
-            int currentReservations = reservationRepository.countLunchReservationsForDay(today);
-            availability = maxSlots - currentReservations;
+        if (setting.isPresent() && setting.get().isLunchPeriod(now)) {
+            availability = capacityLedger.remainingLunch();
             start = setting.get().getStartBeneficiaryLunch();
             end = setting.get().getStartBeneficiarySnack();
             type = "Almuerzo";
 
         }
-        if (setting.isPresent() && now.isAfter(setting.get().getStartBeneficiarySnack())){
-            int maxSlots = setting.get().getNumSnack();
-            int currentReservations = reservationRepository.countSnackReservationsForDay(today);
-            availability = maxSlots - currentReservations;
+        if (setting.isPresent() && setting.get().isSnackPeriod(now)){
+            availability = capacityLedger.remainingSnack();
             start = setting.get().getStartBeneficiarySnack();
             end = setting.get().getStartBeneficiaryLunch();
             type = "Refrigerio";
@@ -296,10 +261,6 @@ public class ReservationServiceImpl implements IReservationService {
                 type
         );
 
-        // Transmitir la disponibilidad actualizada
-        AvailabilityResponse availabilityResponse = getAvailability();
-        broadcastAvailability(availabilityResponse);
-
 
         return response;
     }
@@ -345,24 +306,26 @@ public class ReservationServiceImpl implements IReservationService {
         LocalDate today = LocalDate.now();
         LocalTime now = LocalTime.now();
         String type = "";
-        Optional<Setting> setting = settingRepository.findSettingById(1);
+        SettingSnapshot setting = settingHolder.get()
+                .orElseThrow(() -> new ResourceNotFoundException("Configuración no encontrada"));
+        long nanoOfDay = now.toNanoOfDay();
 
         Reservation reservation = new Reservation();
 
-        if (setting.isEmpty()) {
-            throw new ResourceNotFoundException("Configuración no encontrada");
-        }
-
-        if (now.isBefore(setting.get().getStartBeneficiarySnack()) && now.isAfter(setting.get().getStartBeneficiaryLunch())) {
+        if (setting.isLunchPeriod(nanoOfDay)) {
             type = "almuerzo";
             reservation = reservationRepository.findLunchReservationById(reservationId, today)
                     .orElseThrow(() -> new ResourceNotFoundException("El usuario no tiene una reserva de almuerzo para cancelar el día de hoy"));
         }
-        if (now.isAfter(setting.get().getStartBeneficiarySnack())){
+        if (setting.isSnackPeriod(nanoOfDay)){
             type = "Refrigerio";
             reservation = reservationRepository.findSnackReservationById(reservationId, today)
                     .orElseThrow(() -> new ResourceNotFoundException("El usuario no tiene una reserva de refrigerio para cancelar el día de hoy"));
         }
+        // Fuera de las dos franjas no se buscó ninguna reserva; no se registra nada ni se borra
+        if (reservation.getId() == null) {
+            throw new UnauthorizedException("No se pueden cancelar reservas fuera de las franjas de almuerzo y refrigerio.");
+        }
 
         Integer id = reservation.getId();
         LocalDateTime date = reservation.getData();
@@ -374,13 +337,13 @@ public class ReservationServiceImpl implements IReservationService {
         String name = reservation.getUserEntity().getName();
         String lastName = reservation.getUserEntity().getLastName();
 
+        consumptionRollupWriter.cancelled(id);
         reservationRepository.delete(reservation);
+        capacityLedger.release(reservation.getServiceDate(), lunch, snack);
+        clusterEventBus.reservationChanged(reservation.getServiceDate(), lunch ? 1 : 0, snack ? 1 : 0, id);
+        unpaidIndex.removed(id);
         emailService.sendReservationCancellationEmail(type, reservation, today, now);
 
-        // Transmitir la disponibilidad actualizada
-        AvailabilityResponse availabilityResponse = getAvailability();
-        broadcastAvailability(availabilityResponse);
-
         return new ReservationResponse(
                 "Reserva cancelada con éxito.",
                 id,
@@ -398,23 +361,38 @@ public class ReservationServiceImpl implements IReservationService {
     //buscar la reserva con el codigo del usuario
     @Override
     public ReservationResponse findReservationByUsername(String username) {
-        LocalTime now = LocalTime.now();
+        long now = LocalTime.now().toNanoOfDay();
         LocalDate today = LocalDate.now();
         List<Reservation> reservations = new ArrayList<>();
 
-        Optional<Setting> setting = settingRepository.findSettingById(1);
+        SettingSnapshot setting = settingHolder.get()
+                .orElseThrow(() -> new ResourceNotFoundException("Configuración no encontrada"));
 
-        if (setting.isEmpty()) {
-            throw new ResourceNotFoundException("Configuración no encontrada");
+        // Camino rápido: la reserva está en el índice en memoria de caja
+        Optional<UnpaidReservation> indexed = findIndexedReservation(setting, now, username);
+        if (indexed.isPresent()) {
+            UnpaidReservation reservation = indexed.get();
+            return new ReservationResponse(
+                    "Reserva encontrada.",
+                    reservation.id(),
+                    reservation.data(),
+                    reservation.time(),
+                    false,
+                    reservation.lunch(),
+                    reservation.snack(),
+                    reservation.username(),
+                    reservation.name(),
+                    reservation.lastName()
+            );
         }
 
         UserEntity user = userEntityRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
-        if (now.isBefore(setting.get().getStartBeneficiarySnack()) && now.isAfter(setting.get().getStartBeneficiaryLunch())) {
+        if (setting.isLunchPeriod(now)) {
             reservations = reservationRepository.findByUserEntityLunchPaidFalse(user, today);
         }
-        if (now.isAfter(setting.get().getStartBeneficiarySnack())){
+        if (setting.isSnackPeriod(now)){
             reservations = reservationRepository.findByUserEntitySnackPaidFalse(user, today);
         }
 
@@ -444,30 +422,42 @@ public class ReservationServiceImpl implements IReservationService {
     @Override
     public ReservationPaymentResponse registerPayment(ReservationPaymentRequest paymentRequest) {
         LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
+        long now = LocalTime.now().toNanoOfDay();
+
+        Optional<SettingSnapshot> setting = settingHolder.get();
+
+        // Camino rápido: se paga directamente la reserva del índice, sin cargarla
+        Optional<UnpaidReservation> indexed = setting.flatMap(value -> findIndexedReservation(value, now, paymentRequest.username()));
+        if (indexed.isPresent()) {
+            Integer reservationId = indexed.get().id();
+            if (!paymentRequest.paid() || reservationRepository.updatePaid(reservationId) == 1) {
+                paymentRegistered(today, reservationId, paymentRequest.paid());
+                return new ReservationPaymentResponse("Pago registrado con éxito.", reservationId);
+            }
+            // El índice estaba desactualizado (pagada o cancelada en otra caja): se busca en la base de datos
+            unpaidIndex.discard(reservationId);
+        }
 
         UserEntity user = userEntityRepository.findByUsername(paymentRequest.username())
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
 
-        Optional<Setting> setting = settingRepository.findSettingById(1);
-
         List<Reservation> reservations = new ArrayList<>();
         List<Reservation> lunchReservations = reservationRepository.findByUserEntityLunchPaidFalse(user, today);
         List<Reservation> snackReservations = reservationRepository.findByUserEntitySnackPaidFalse(user, today);
 
-        if (setting.isPresent() && lunchReservations.isEmpty() && now.isAfter(setting.get().getStartBeneficiaryLunch()) && now.isBefore(setting.get().getStartBeneficiarySnack())) {
+        if (setting.isPresent() && lunchReservations.isEmpty() && setting.get().isLunchPeriod(now)) {
             throw new ResourceNotFoundException("No se encontraron reservas de almuerzo pendientes para este usuario.");
         }
 
-        if (setting.isPresent() && snackReservations.isEmpty() && now.isAfter(setting.get().getStartBeneficiarySnack())) {
+        if (setting.isPresent() && snackReservations.isEmpty() && setting.get().isSnackPeriod(now)) {
             throw new ResourceNotFoundException("No se encontraron reservas de refrigerio pendientes para este usuario.");
         }
 
-        if (setting.isPresent() && now.isAfter(setting.get().getStartBeneficiaryLunch()) && now.isBefore(setting.get().getStartBeneficiarySnack())) {
+        if (setting.isPresent() && setting.get().isLunchPeriod(now)) {
             reservations = lunchReservations;
         }
 
-        if (setting.isPresent() && now.isAfter(setting.get().getStartBeneficiarySnack())) {
+        if (setting.isPresent() && setting.get().isSnackPeriod(now)) {
             reservations = snackReservations;
         }
 
@@ -475,29 +465,136 @@ public class ReservationServiceImpl implements IReservationService {
                 .max(Comparator.comparing(Reservation::getData))
                 .orElseThrow(() -> new ResourceNotFoundException("No se encontró la reserva más reciente."));
 
-        lastReservation.setPaid(paymentRequest.paid());
-        reservationRepository.save(lastReservation);
-
-        // Transmitir la disponibilidad actualizada
-        AvailabilityResponse availabilityResponse = getAvailability();
-        broadcastAvailability(availabilityResponse);
+        // Solo cuenta el pago si esta petición fue la que cambió la reserva a pagada
+        if (paymentRequest.paid() && reservationRepository.updatePaid(lastReservation.getId()) == 0) {
+            throw new ResourceNotFoundException("La reserva ya fue pagada o cancelada.");
+        }
+        paymentRegistered(today, lastReservation.getId(), paymentRequest.paid());
 
         return new ReservationPaymentResponse("Pago registrado con éxito.", lastReservation.getId());
     }
 
+    //registrar pagos por lotes
+    @Override
+    public BatchPaymentResponse registerPayments(BatchPaymentRequest batchRequest) {
+        List<String> usernames = batchRequest.usernames() == null ? List.of() : batchRequest.usernames();
+        List<Integer> reservationIds = batchRequest.reservationIds() == null ? List.of() : batchRequest.reservationIds();
+
+        if (usernames.size() + reservationIds.size() > MAX_PAYMENT_BATCH) {
+            throw new IllegalArgumentException("Se pueden registrar máximo " + MAX_PAYMENT_BATCH + " pagos por lote.");
+        }
+        if (usernames.isEmpty() && reservationIds.isEmpty()) {
+            return new BatchPaymentResponse("No se enviaron pagos.", 0, List.of());
+        }
+
+        LocalDate today = LocalDate.now();
+        long now = LocalTime.now().toNanoOfDay();
+        Optional<SettingSnapshot> setting = settingHolder.get();
+        boolean lunchPeriod = setting.isPresent() && setting.get().isLunchPeriod(now);
+        boolean snackPeriod = setting.isPresent() && setting.get().isSnackPeriod(now);
+
+        // Una sola consulta para todo el lote; las listas vacías se reemplazan por un valor que no coincide
+        List<Reservation> found = reservationRepository.findForPayment(today,
+                usernames.isEmpty() ? List.of("") : usernames,
+                reservationIds.isEmpty() ? List.of(-1) : reservationIds);
+
+        Map<Integer, Reservation> byId = found.stream()
+                .collect(Collectors.toMap(Reservation::getId, Function.identity()));
+        // Por usuario se paga la reserva pendiente más reciente de la franja actual, como en el pago individual
+        Map<String, Reservation> latestByUser = found.stream()
+                .filter(reservation -> !Boolean.TRUE.equals(reservation.getPaid()))
+                .filter(reservation -> isInPeriod(reservation, lunchPeriod, snackPeriod))
+                .collect(Collectors.toMap(reservation -> reservation.getUserEntity().getUsername(), Function.identity(),
+                        BinaryOperator.maxBy(Comparator.comparing(Reservation::getData))));
+
+        Set<Integer> toPay = new LinkedHashSet<>();
+        List<BatchPaymentItem> results = new ArrayList<>(usernames.size() + reservationIds.size());
+
+        for (String username : usernames) {
+            Reservation reservation = latestByUser.get(username);
+            if (reservation == null) {
+                results.add(new BatchPaymentItem(username, null, false, "No se encontraron reservas pendientes para este usuario."));
+            } else {
+                results.add(paymentItem(username, reservation.getId(), toPay));
+            }
+        }
+        for (Integer reservationId : reservationIds) {
+            Reservation reservation = byId.get(reservationId);
+            if (reservation == null) {
+                results.add(new BatchPaymentItem(null, reservationId, false, "No se encontró la reserva para el día de hoy."));
+            } else if (Boolean.TRUE.equals(reservation.getPaid())) {
+                results.add(new BatchPaymentItem(reservation.getUserEntity().getUsername(), reservationId, false, "La reserva ya estaba pagada."));
+            } else if (!isInPeriod(reservation, lunchPeriod, snackPeriod)) {
+                // Igual que en el pago individual, solo se paga la comida de la franja actual
+                results.add(new BatchPaymentItem(reservation.getUserEntity().getUsername(), reservationId, false, "La reserva no corresponde a la franja actual."));
+            } else {
+                results.add(paymentItem(reservation.getUserEntity().getUsername(), reservationId, toPay));
+            }
+        }
+
+        if (toPay.isEmpty()) {
+            return new BatchPaymentResponse("Pagos registrados con éxito.", 0, results);
+        }
+
+        // Solo se cuentan las reservas que este lote bloqueó sin pagar; otra caja pudo pagarlas o cancelarlas antes
+        Set<Integer> paid = new LinkedHashSet<>(reservationRepository.lockUnpaid(toPay));
+        if (!paid.isEmpty()) {
+            reservationRepository.markPaid(paid);
+            consumptionRollupWriter.paid(paid);
+            paid.forEach(unpaidIndex::removed);
+            clusterEventBus.reservationsPaid(today, paid);
+        }
+
+        List<BatchPaymentItem> confirmed = results.stream()
+                .map(item -> item.paid() && !paid.contains(item.reservationId())
+                        ? new BatchPaymentItem(item.username(), item.reservationId(), false, "La reserva ya fue pagada o cancelada.")
+                        : item)
+                .toList();
+
+        return new BatchPaymentResponse("Pagos registrados con éxito.", paid.size(), confirmed);
+    }
+
+    private static boolean isInPeriod(Reservation reservation, boolean lunchPeriod, boolean snackPeriod) {
+        return lunchPeriod ? Boolean.TRUE.equals(reservation.getLunch())
+                : snackPeriod && Boolean.TRUE.equals(reservation.getSnack());
+    }
+
+    private BatchPaymentItem paymentItem(String username, Integer reservationId, Set<Integer> toPay) {
+        if (!toPay.add(reservationId)) {
+            return new BatchPaymentItem(username, reservationId, false, "La reserva está repetida en el lote.");
+        }
+        return new BatchPaymentItem(username, reservationId, true, "Pago registrado con éxito.");
+    }
+
+    private Optional<UnpaidReservation> findIndexedReservation(SettingSnapshot setting, long now, String username) {
+        boolean lunchPeriod = setting.isLunchPeriod(now);
+        if (!lunchPeriod && !setting.isSnackPeriod(now)) {
+            return Optional.empty();
+        }
+        return unpaidIndex.latest(username, lunchPeriod);
+    }
+
+    private void paymentRegistered(LocalDate day, Integer reservationId, boolean paid) {
+        if (paid) {
+            consumptionRollupWriter.paid(List.of(reservationId));
+            unpaidIndex.removed(reservationId);
+            clusterEventBus.reservationsPaid(day, List.of(reservationId));
+        }
+    }
+
     //tabla
     @Override
     public Page<ListReservationResponse> getActiveReservations(Pageable pageable) {
         LocalDate date = LocalDate.now();
-        LocalTime now = LocalTime.now();
+        long now = LocalTime.now().toNanoOfDay();
 
-        Optional<Setting> setting = settingRepository.findSettingById(1);
+        Optional<SettingSnapshot> setting = settingHolder.get();
 
 
         Page<ListReservationResponse> responses = Page.empty();
 
         // Verifcar en qué rango de tiempo estamos, según los ajustes en "setting"
-        if (setting.isPresent() && now.isAfter(setting.get().getStartBeneficiaryLunch()) && now.isBefore(setting.get().getStartBeneficiarySnack())) {
+        if (setting.isPresent() && setting.get().isLunchPeriod(now)) {
             // Caso para reservas de almuerzo no pagadas
             responses = reservationRepository.findAllLunchByPaidFalse(pageable, date)
                     .map(reservation -> new ListReservationResponse(
@@ -513,7 +610,7 @@ public class ReservationServiceImpl implements IReservationService {
                     ));
         }
 
-        if (setting.isPresent() && now.isAfter(setting.get().getStartBeneficiarySnack())) {
+        if (setting.isPresent() && setting.get().isSnackPeriod(now)) {
             // Caso para reservas de refrigerio no pagadas
             responses = reservationRepository.findAllSnackByPaidFalse(pageable, date)
                     .map(reservation -> new ListReservationResponse(
@@ -532,5 +629,25 @@ public class ReservationServiceImpl implements IReservationService {
         return responses;
     }
 
+    //tabla por cursor: solo las columnas del listado y sin contar el total
+    @Override
+    public CursorSlice<ListReservationResponse> getActiveReservations(String cursor, int size) {
+        LocalDate date = LocalDate.now();
+        long now = LocalTime.now().toNanoOfDay();
+        Integer afterId = Optional.ofNullable(KeysetCursor.decode(cursor)).orElse(0);
+        int limit = KeysetCursor.size(size);
+        Pageable firstRows = PageRequest.of(0, limit + 1);
+
+        Optional<SettingSnapshot> setting = settingHolder.get();
+        List<ListReservationResponse> rows = List.of();
 
+        if (setting.isPresent() && setting.get().isLunchPeriod(now)) {
+            rows = reservationRepository.findUnpaidLunchAfter(date, afterId, firstRows);
+        }
+        if (setting.isPresent() && setting.get().isSnackPeriod(now)) {
+            rows = reservationRepository.findUnpaidSnackAfter(date, afterId, firstRows);
+        }
+
+        return CursorSlice.of(rows, limit, ListReservationResponse::id);
+    }
 }
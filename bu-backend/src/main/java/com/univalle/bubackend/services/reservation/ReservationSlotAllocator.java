@@ -0,0 +1,139 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventType;
+import com.univalle.bubackend.exceptions.reservation.NoSlotsAvailableException;
+import com.univalle.bubackend.models.MealType;
+import com.univalle.bubackend.models.Reservation;
+import com.univalle.bubackend.repository.ReservationSlotRepository;
+import com.univalle.bubackend.services.setting.SettingSnapshot;
+import com.univalle.bubackend.services.setting.SettingSnapshotHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cupos persistidos por día: se generan tantas fichas como cupos haya en la configuración
+ * y cada reserva reclama una con FOR UPDATE SKIP LOCKED en la misma transacción del insert.
+ * Las reservas concurrentes toman fichas distintas sin esperarse entre sí y nunca se
+ * confirman más reservas que fichas.
+ * <p>
+ * Las fichas de hoy y de mañana se generan en una tarea programada, en una transacción corta
+ * propia, de modo que la primera ráfaga del día no hace cola detrás del bloqueo de generación.
+ */
+@Slf4j
+@Component
+public class ReservationSlotAllocator {
+
+    // Ninguna reserva tiene id 0; la tarea programada no excluye ninguna del conteo
+    private static final int NO_RESERVATION = 0;
+
+    private final ReservationSlotRepository reservationSlotRepository;
+    private final SettingSnapshotHolder settingHolder;
+    private final TaskScheduler taskScheduler;
+    private final TransactionTemplate transaction;
+
+    // Última configuración con la que se generaron las fichas de cada día en este nodo
+    private final Map<LocalDate, Allocation> allocated = new ConcurrentHashMap<>();
+
+    public ReservationSlotAllocator(ReservationSlotRepository reservationSlotRepository,
+                                    SettingSnapshotHolder settingHolder, TaskScheduler taskScheduler,
+                                    PlatformTransactionManager transactionManager) {
+        this.reservationSlotRepository = reservationSlotRepository;
+        this.settingHolder = settingHolder;
+        this.taskScheduler = taskScheduler;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional
+    public void claim(Reservation reservation, SettingSnapshot setting) {
+        Allocation allocation = new Allocation(setting.getNumLunch(), setting.getNumSnack());
+
+        if (Boolean.TRUE.equals(reservation.getLunch())
+                && !claim(reservation, MealType.LUNCH, allocation.lunch(), allocation)) {
+            throw new NoSlotsAvailableException("No quedan reservas de almuerzo disponibles para hoy.");
+        }
+        if (Boolean.TRUE.equals(reservation.getSnack())
+                && !claim(reservation, MealType.SNACK, allocation.snack(), allocation)) {
+            throw new NoSlotsAvailableException("No quedan reservas de refrigerio disponibles para hoy.");
+        }
+    }
+
+    /**
+     * Reclama una ficha libre. Solo si no hay y las fichas del día no se han generado con esta
+     * configuración (la tarea aún no corre tras un cambio) se generan aquí, dentro de la
+     * transacción de la reserva, y se vuelve a intentar.
+     */
+    private boolean claim(Reservation reservation, MealType mealType, int total, Allocation allocation) {
+        LocalDate day = reservation.getServiceDate();
+        if (reservationSlotRepository.claim(day, mealType.name(), reservation.getId()) > 0) {
+            return true;
+        }
+        if (allocation.equals(allocated.get(day))) {
+            return false;
+        }
+        adjust(day, mealType, total, reservation.getId());
+        return reservationSlotRepository.claim(day, mealType.name(), reservation.getId()) > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.slots.preallocate-interval:60000}")
+    public void preallocate() {
+        SettingSnapshot setting = settingHolder.get().orElse(null);
+        if (setting == null) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        allocated.keySet().removeIf(day -> day.isBefore(today));
+        try {
+            preallocate(today, setting);
+            preallocate(today.plusDays(1), setting);
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron generar las fichas de cupo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Genera (o ajusta) las fichas del día en su propia transacción, que solo dura lo que tarda
+     * el ajuste. Es idempotente entre nodos gracias al bloqueo consultivo por día y comida.
+     */
+    public void preallocate(LocalDate day, SettingSnapshot setting) {
+        Allocation allocation = new Allocation(setting.getNumLunch(), setting.getNumSnack());
+        if (allocation.equals(allocated.get(day))) {
+            return;
+        }
+        transaction.executeWithoutResult(status -> {
+            adjust(day, MealType.LUNCH, allocation.lunch(), NO_RESERVATION);
+            adjust(day, MealType.SNACK, allocation.snack(), NO_RESERVATION);
+        });
+        allocated.put(day, allocation);
+    }
+
+    // Fuera del hilo del bus, que no debe esperar a la base de datos
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.type() == ClusterEventType.SETTING_CHANGED || event.type() == ClusterEventType.RESYNC) {
+            taskScheduler.schedule(this::preallocate, Instant.now());
+        }
+    }
+
+    // Las fichas libres quedan en "cupos - reservas del día", sin importar cuántas existían antes
+    private void adjust(LocalDate day, MealType mealType, int total, Integer reservationId) {
+        reservationSlotRepository.lockAllocation(day, mealType.name());
+        reservationSlotRepository.allocate(day, mealType.name(), total, reservationId);
+        reservationSlotRepository.trim(day, mealType.name(), total, reservationId);
+    }
+
+    private record Allocation(int lunch, int snack) {
+    }
+}
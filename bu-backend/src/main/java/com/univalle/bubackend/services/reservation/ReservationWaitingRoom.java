@@ -0,0 +1,227 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.DTOs.reservation.QueuePositionResponse;
+import com.univalle.bubackend.DTOs.reservation.ReservationResponse;
+import com.univalle.bubackend.DTOs.reservation.ReservationStudentRequest;
+import com.univalle.bubackend.exceptions.reservation.WaitingRoomFullException;
+import com.univalle.bubackend.websocket.WebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sala de espera para la apertura de reservas. Cada solicitud recibe un turno y se admite
+ * a un ritmo configurable; los beneficiarios del servicio pedido van en una fila prioritaria.
+ * La posición en la fila se envía por /ws al canal del usuario autenticado con su JWT.
+ */
+@Slf4j
+@Component
+public class ReservationWaitingRoom {
+
+    private final IReservationService reservationService;
+    private final BeneficiaryDirectory beneficiaryDirectory;
+    private final ThreadPoolTaskExecutor admissionExecutor;
+    private final WebSocketHandler webSocketHandler;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final double admitPerSecond;
+    private final int capacity;
+    private final long maxWaitMillis;
+    private final int maxInFlight;
+
+    private final Queue<Ticket> priorityLane = new ConcurrentLinkedQueue<>();
+    private final Queue<Ticket> regularLane = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong ticketSequence = new AtomicLong();
+
+    private double admissionTokens;
+    private long lastRefill = System.nanoTime();
+
+    public ReservationWaitingRoom(IReservationService reservationService,
+                                  BeneficiaryDirectory beneficiaryDirectory,
+                                  @Qualifier("reservationAdmissionExecutor") ThreadPoolTaskExecutor admissionExecutor,
+                                  WebSocketHandler webSocketHandler,
+                                  ObjectMapper objectMapper,
+                                  @Value("${reservation.waiting-room.enabled:true}") boolean enabled,
+                                  @Value("${reservation.waiting-room.admit-per-second:20}") double admitPerSecond,
+                                  @Value("${reservation.waiting-room.capacity:5000}") int capacity,
+                                  @Value("${reservation.waiting-room.max-wait:60000}") long maxWaitMillis,
+                                  @Value("${reservation.waiting-room.workers:10}") int maxInFlight) {
+        this.reservationService = reservationService;
+        this.beneficiaryDirectory = beneficiaryDirectory;
+        this.admissionExecutor = admissionExecutor;
+        this.webSocketHandler = webSocketHandler;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.admitPerSecond = admitPerSecond;
+        this.capacity = capacity;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public CompletableFuture<ReservationResponse> enter(ReservationStudentRequest request) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(reservationService.createStudentReservation(request));
+        }
+
+        if (waiting.incrementAndGet() > capacity) {
+            waiting.decrementAndGet();
+            throw new WaitingRoomFullException("La sala de espera está llena, intenta de nuevo en unos minutos.");
+        }
+
+        Ticket ticket = new Ticket(ticketSequence.incrementAndGet(), request);
+        if (isBeneficiary(request)) {
+            priorityLane.add(ticket);
+        } else {
+            regularLane.add(ticket);
+        }
+
+        return ticket.result;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.waiting-room.tick:100}")
+    public void admit() {
+        if (waiting.get() == 0) {
+            lastRefill = System.nanoTime();
+            return;
+        }
+
+        long now = System.nanoTime();
+        admissionTokens = Math.min(admitPerSecond, admissionTokens + admitPerSecond * (now - lastRefill) / 1_000_000_000d);
+        lastRefill = now;
+
+        while (admissionTokens >= 1 && inFlight.get() < maxInFlight) {
+            Ticket ticket = next();
+            if (ticket == null) {
+                break;
+            }
+            admissionTokens--;
+            dispatch(ticket);
+        }
+    }
+
+    /**
+     * Envía a cada turno en espera su posición si cambió. Corre como tarea propia para que recorrer
+     * las filas y serializar miles de mensajes no retrase la admisión; las filas admiten recorrerse
+     * mientras se admiten turnos y cada turno solo lo saca de la fila quien gana su cambio de estado.
+     */
+    @Scheduled(fixedDelayString = "${reservation.waiting-room.position-interval:1000}")
+    public void pushPositions() {
+        int total = waiting.get();
+        if (total == 0) {
+            return;
+        }
+        int position = pushPositions(priorityLane.iterator(), 1, total);
+        pushPositions(regularLane.iterator(), position, total);
+    }
+
+    private Ticket next() {
+        Ticket ticket;
+        while ((ticket = priorityLane.poll()) != null || (ticket = regularLane.poll()) != null) {
+            if (expire(ticket)) {
+                continue;
+            }
+            if (ticket.admit()) {
+                waiting.decrementAndGet();
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    private void dispatch(Ticket ticket) {
+        inFlight.incrementAndGet();
+        admissionExecutor.execute(() -> {
+            try {
+                ticket.result.complete(reservationService.createStudentReservation(ticket.request));
+            } catch (Exception e) {
+                ticket.result.completeExceptionally(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private int pushPositions(Iterator<Ticket> lane, int position, int total) {
+        while (lane.hasNext()) {
+            Ticket ticket = lane.next();
+            if (expire(ticket) || !ticket.isWaiting()) {
+                lane.remove();
+                continue;
+            }
+            if (ticket.lastPosition != position) {
+                ticket.lastPosition = position;
+                try {
+                    String message = objectMapper.writeValueAsString(
+                            new QueuePositionResponse("queue", ticket.id, position, total));
+                    webSocketHandler.sendToUser(ticket.request.username(), message);
+                } catch (Exception e) {
+                    log.warn("No se pudo enviar la posición en la fila: {}", e.getMessage());
+                }
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Saca de la fila los turnos que superaron la espera máxima sin ser admitidos.
+     */
+    private boolean expire(Ticket ticket) {
+        if (System.nanoTime() - ticket.enqueuedAt < TimeUnit.MILLISECONDS.toNanos(maxWaitMillis) || !ticket.cancel()) {
+            return false;
+        }
+        waiting.decrementAndGet();
+        ticket.result.completeExceptionally(
+                new WaitingRoomFullException("Se agotó el tiempo de espera en la fila, intenta de nuevo."));
+        return true;
+    }
+
+    private boolean isBeneficiary(ReservationStudentRequest request) {
+        return beneficiaryDirectory.isBeneficiary(request.username(), request.lunch(), request.snack());
+    }
+
+    private static final class Ticket {
+        private static final int WAITING = 0;
+        private static final int ADMITTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final long id;
+        private final ReservationStudentRequest request;
+        private final CompletableFuture<ReservationResponse> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final long enqueuedAt = System.nanoTime();
+        private int lastPosition;
+
+        private Ticket(long id, ReservationStudentRequest request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        private boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+
+        private boolean admit() {
+            return state.compareAndSet(WAITING, ADMITTED);
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+    }
+}
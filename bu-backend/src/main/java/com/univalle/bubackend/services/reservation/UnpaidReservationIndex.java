@@ -0,0 +1,257 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.cluster.ClusterEventType;
+import com.univalle.bubackend.models.Reservation;
+import com.univalle.bubackend.repository.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Índice en memoria de las reservas sin pagar del día, por usuario, para que caja encuentre
+ * la reserva de un estudiante sin consultar la base de datos. Se mantiene con las reservas,
+ * pagos y cancelaciones confirmados en esta instancia y con los eventos del clúster de las demás,
+ * y se reconstruye periódicamente por si se perdió algún evento. Mientras se reconstruye, los cambios
+ * se aplican también al índice nuevo, así no se pierden los que llegan durante la carga.
+ */
+@Slf4j
+@Component
+public class UnpaidReservationIndex {
+
+    private final ReservationRepository reservationRepository;
+    private final ClusterEventBus clusterEventBus;
+
+    private final AtomicReference<DailyIndex> current = new AtomicReference<>();
+    // Índice que se está cargando, si hay una reconstrucción en curso
+    private final AtomicReference<DailyIndex> loading = new AtomicReference<>();
+
+    public UnpaidReservationIndex(ReservationRepository reservationRepository, ClusterEventBus clusterEventBus) {
+        this.reservationRepository = reservationRepository;
+        this.clusterEventBus = clusterEventBus;
+    }
+
+    /**
+     * Reserva sin pagar más reciente del usuario para el almuerzo o el refrigerio de hoy.
+     */
+    public Optional<UnpaidReservation> latest(String username, boolean lunch) {
+        List<UnpaidReservation> reservations = today().byUser.get(username);
+        if (reservations == null) {
+            return Optional.empty();
+        }
+        return reservations.stream()
+                .filter(reservation -> lunch ? reservation.lunch() : reservation.snack())
+                .max(Comparator.comparing(UnpaidReservation::data));
+    }
+
+    /**
+     * Agrega la reserva al índice cuando se confirma la transacción actual.
+     */
+    public void added(Reservation reservation) {
+        UnpaidReservation entry = UnpaidReservation.of(reservation);
+        afterCommit(() -> apply(reservation.getServiceDate(), index -> index.add(entry)));
+    }
+
+    /**
+     * Quita la reserva del índice (pagada o cancelada) cuando se confirma la transacción actual.
+     */
+    public void removed(Integer reservationId) {
+        afterCommit(() -> discard(reservationId));
+    }
+
+    /**
+     * Quita la reserva de inmediato, cuando se descubre que el índice estaba desactualizado.
+     */
+    public void discard(Integer reservationId) {
+        apply(null, index -> index.remove(reservationId));
+    }
+
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.type() == ClusterEventType.RESYNC) {
+            refresh();
+            return;
+        }
+        // Los cambios propios ya se aplicaron al confirmarse
+        if (clusterEventBus.getNodeId().equals(event.origin()) || event.subject() == null || event.day() == null) {
+            return;
+        }
+
+        switch (event.type()) {
+            case RESERVATION_CHANGED -> {
+                Integer reservationId = Integer.valueOf(event.subject());
+                if (event.lunch() < 0 || event.snack() < 0) {
+                    if (tracks(event.day())) {
+                        reservationRepository.findById(reservationId)
+                                .filter(reservation -> !Boolean.TRUE.equals(reservation.getPaid()))
+                                .map(UnpaidReservation::of)
+                                .ifPresent(entry -> apply(event.day(), index -> index.add(entry)));
+                    }
+                } else {
+                    apply(event.day(), index -> index.remove(reservationId));
+                }
+            }
+            // Un pago por lotes llega como un solo evento con los ids separados por comas
+            case RESERVATION_PAID -> Arrays.stream(event.subject().split(","))
+                    .map(Integer::valueOf)
+                    .forEach(reservationId -> apply(event.day(), index -> index.remove(reservationId)));
+            default -> {
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.unpaid-index.refresh-interval:300000}")
+    public void refresh() {
+        DailyIndex index = current.get();
+        if (index != null && index.day.equals(LocalDate.now())) {
+            synchronized (this) {
+                rebuild(index.day);
+            }
+        }
+    }
+
+    private DailyIndex today() {
+        LocalDate today = LocalDate.now();
+        DailyIndex index = current.get();
+        if (index != null && index.day.equals(today)) {
+            return index;
+        }
+
+        synchronized (this) {
+            index = current.get();
+            if (index == null || !index.day.equals(today)) {
+                index = rebuild(today);
+            }
+            return index;
+        }
+    }
+
+    /*
+     * El índice nuevo se publica en "loading" antes de consultar: todo cambio confirmado después
+     * se le aplica aunque la consulta no lo vea, y los confirmados antes ya vienen en la consulta.
+     * Se reemplaza el índice actual antes de dejar de publicarlo, para no abrir un hueco entre ambos.
+     */
+    private DailyIndex rebuild(LocalDate day) {
+        DailyIndex index = new DailyIndex(day);
+        loading.set(index);
+        try {
+            List<Reservation> unpaid = reservationRepository.findUnpaidForDay(day);
+            unpaid.forEach(reservation -> index.add(UnpaidReservation.of(reservation)));
+            current.set(index);
+            log.debug("Índice de reservas sin pagar del {} cargado con {} reservas", day, unpaid.size());
+            return index;
+        } finally {
+            loading.compareAndSet(index, null);
+        }
+    }
+
+    // Se lee primero el índice en carga y después el actual, así un cambio nunca queda fuera de ambos
+    private void apply(LocalDate day, Consumer<DailyIndex> change) {
+        DailyIndex next = loading.get();
+        DailyIndex index = current.get();
+        if (next != null && next != index && (day == null || next.day.equals(day))) {
+            change.accept(next);
+        }
+        if (index != null && (day == null || index.day.equals(day))) {
+            change.accept(index);
+        }
+    }
+
+    private boolean tracks(LocalDate day) {
+        DailyIndex next = loading.get();
+        DailyIndex index = current.get();
+        return (next != null && next.day.equals(day)) || (index != null && index.day.equals(day));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public record UnpaidReservation(
+            Integer id,
+            LocalDateTime data,
+            LocalTime time,
+            boolean lunch,
+            boolean snack,
+            String username,
+            String name,
+            String lastName
+    ) {
+        static UnpaidReservation of(Reservation reservation) {
+            return new UnpaidReservation(
+                    reservation.getId(),
+                    reservation.getData(),
+                    reservation.getTime(),
+                    Boolean.TRUE.equals(reservation.getLunch()),
+                    Boolean.TRUE.equals(reservation.getSnack()),
+                    reservation.getUserEntity().getUsername(),
+                    reservation.getUserEntity().getName(),
+                    reservation.getUserEntity().getLastName()
+            );
+        }
+    }
+
+    private static final class DailyIndex {
+        private final LocalDate day;
+        private final Map<String, List<UnpaidReservation>> byUser = new ConcurrentHashMap<>();
+        private final Map<Integer, String> usernames = new ConcurrentHashMap<>();
+        // Reservas quitadas, para no volver a agregarlas si llega tarde un evento de creación
+        private final Set<Integer> removed = ConcurrentHashMap.newKeySet();
+
+        private DailyIndex(LocalDate day) {
+            this.day = day;
+        }
+
+        private void add(UnpaidReservation reservation) {
+            if (removed.contains(reservation.id()) || usernames.putIfAbsent(reservation.id(), reservation.username()) != null) {
+                return;
+            }
+            byUser.compute(reservation.username(), (username, reservations) -> {
+                List<UnpaidReservation> updated = reservations == null ? new ArrayList<>(2) : new ArrayList<>(reservations);
+                updated.add(reservation);
+                return List.copyOf(updated);
+            });
+        }
+
+        private void remove(Integer reservationId) {
+            removed.add(reservationId);
+            String username = usernames.remove(reservationId);
+            if (username == null) {
+                return;
+            }
+            byUser.computeIfPresent(username, (key, reservations) -> {
+                List<UnpaidReservation> updated = reservations.stream()
+                        .filter(reservation -> !reservation.id().equals(reservationId))
+                        .toList();
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package com.univalle.bubackend.services.setting;
 
-import com.univalle.bubackend.DTOs.reservation.AvailabilityResponse;
+import com.univalle.bubackend.cluster.ClusterEventBus;
 import com.univalle.bubackend.DTOs.setting.SettingRequest;
 import com.univalle.bubackend.DTOs.setting.SettingResponse;
 import com.univalle.bubackend.exceptions.setting.InvalidTimeException;
 import com.univalle.bubackend.exceptions.setting.SettingNotFound;
 import com.univalle.bubackend.models.Setting;
 import com.univalle.bubackend.repository.SettingRepository;
-import com.univalle.bubackend.services.reservation.ReservationServiceImpl;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -20,7 +19,8 @@ import java.util.Optional;
 public class SettingServiceImpl implements ISettingService {
 
     private SettingRepository settingRepository;
-    private ReservationServiceImpl reservationService;
+    private SettingSnapshotHolder settingHolder;
+    private ClusterEventBus clusterEventBus;
 
     @Override
     public SettingResponse createSetting(SettingRequest settingRequest) {
@@ -43,12 +43,8 @@ public class SettingServiceImpl implements ISettingService {
                 .build();
 
         settingRepository.save(setting);
-
-        // Obtener la disponibilidad actual después de crear el ajuste
-        AvailabilityResponse availabilityResponse = reservationService.getAvailability();
-
-        // Transmitir la disponibilidad actual a los clientes conectados
-        reservationService.broadcastAvailability(availabilityResponse);
+        // Cada instancia reemplaza su copia de la configuración y recalcula sus contadores
+        clusterEventBus.settingChanged();
 
         return new SettingResponse(setting.getId(), "Ajustes creados exitosamente", settingRequest);
     }
@@ -95,10 +91,10 @@ public class SettingServiceImpl implements ISettingService {
 
     @Override
     public List<SettingResponse> getSetting() {
-        Optional<Setting> optionalSetting = settingRepository.findTopByOrderByIdAsc();
+        Optional<SettingSnapshot> optionalSetting = settingHolder.get();
 
         if (optionalSetting.isPresent()) {
-            Setting setting = optionalSetting.get();
+            SettingSnapshot setting = optionalSetting.get();
             SettingRequest settingRequest = new SettingRequest(
                     setting.getId(),
                     setting.getStartSemester(),
@@ -142,6 +138,7 @@ public class SettingServiceImpl implements ISettingService {
             setting.setEndSnack(settingRequest.endSnack());
 
             settingRepository.save(setting);
+            clusterEventBus.settingChanged();
 
             return new SettingResponse(setting.getId(), "Ajustes actualizados exitosamente", settingRequest);
         }
@@ -0,0 +1,104 @@
+package com.univalle.bubackend.services.setting;
+
+import com.univalle.bubackend.models.Setting;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Copia inmutable de la configuración vigente. Los límites de las ventanas del día se guardan
+ * también como nanosegundos del día, así las validaciones de horario son comparaciones de enteros.
+ */
+@Getter
+public final class SettingSnapshot {
+
+    private final long version;
+    private final Integer id;
+    private final LocalDate startSemester;
+    private final LocalDate endSemester;
+    private final int numLunch;
+    private final int numSnack;
+
+    private final LocalTime startBeneficiaryLunch;
+    private final LocalTime endBeneficiaryLunch;
+    private final LocalTime startLunch;
+    private final LocalTime endLunch;
+    private final LocalTime startBeneficiarySnack;
+    private final LocalTime endBeneficiarySnack;
+    private final LocalTime startSnack;
+    private final LocalTime endSnack;
+
+    // Límites en nanosegundos del día
+    private final long startBeneficiaryLunchNanos;
+    private final long startLunchNanos;
+    private final long endLunchNanos;
+    private final long startBeneficiarySnackNanos;
+    private final long startSnackNanos;
+    private final long endSnackNanos;
+
+    public SettingSnapshot(long version, Setting setting) {
+        this.version = version;
+        this.id = setting.getId();
+        this.startSemester = setting.getStartSemester();
+        this.endSemester = setting.getEndSemester();
+        this.numLunch = setting.getNumLunch();
+        this.numSnack = setting.getNumSnack();
+        this.startBeneficiaryLunch = setting.getStartBeneficiaryLunch();
+        this.endBeneficiaryLunch = setting.getEndBeneficiaryLunch();
+        this.startLunch = setting.getStartLunch();
+        this.endLunch = setting.getEndLunch();
+        this.startBeneficiarySnack = setting.getStartBeneficiarySnack();
+        this.endBeneficiarySnack = setting.getEndBeneficiarySnack();
+        this.startSnack = setting.getStartSnack();
+        this.endSnack = setting.getEndSnack();
+
+        this.startBeneficiaryLunchNanos = startBeneficiaryLunch.toNanoOfDay();
+        this.startLunchNanos = startLunch.toNanoOfDay();
+        this.endLunchNanos = endLunch.toNanoOfDay();
+        this.startBeneficiarySnackNanos = startBeneficiarySnack.toNanoOfDay();
+        this.startSnackNanos = startSnack.toNanoOfDay();
+        this.endSnackNanos = endSnack.toNanoOfDay();
+    }
+
+    /**
+     * Franja de almuerzo: desde el inicio para beneficiarios hasta el inicio de refrigerio para beneficiarios.
+     */
+    public boolean isLunchPeriod(long nanoOfDay) {
+        return nanoOfDay > startBeneficiaryLunchNanos && nanoOfDay < startBeneficiarySnackNanos;
+    }
+
+    /**
+     * Franja de refrigerio: después del inicio de refrigerio para beneficiarios.
+     */
+    public boolean isSnackPeriod(long nanoOfDay) {
+        return nanoOfDay > startBeneficiarySnackNanos;
+    }
+
+    public boolean isBeforeLunchSale(long nanoOfDay, boolean beneficiary) {
+        return nanoOfDay < (beneficiary ? startBeneficiaryLunchNanos : startLunchNanos);
+    }
+
+    public boolean isAfterLunchSale(long nanoOfDay) {
+        return nanoOfDay > endLunchNanos;
+    }
+
+    public boolean isBeforeSnackSale(long nanoOfDay, boolean beneficiary) {
+        return nanoOfDay < (beneficiary ? startBeneficiarySnackNanos : startSnackNanos);
+    }
+
+    public boolean isAfterSnackSale(long nanoOfDay) {
+        return nanoOfDay > endSnackNanos;
+    }
+
+    /**
+     * Venta de almuerzo abierta para alguien (beneficiario o no), usado para detectar reservas repetidas.
+     */
+    public boolean isLunchSaleOpen(long nanoOfDay) {
+        return nanoOfDay > startBeneficiaryLunchNanos && nanoOfDay < endLunchNanos;
+    }
+
+    public boolean isSnackSaleOpen(long nanoOfDay) {
+        return nanoOfDay > startBeneficiarySnackNanos && nanoOfDay < endSnackNanos;
+    }
+}
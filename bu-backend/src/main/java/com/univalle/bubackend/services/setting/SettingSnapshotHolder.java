@@ -0,0 +1,60 @@
+package com.univalle.bubackend.services.setting;
+
+import com.univalle.bubackend.cluster.ClusterEvent;
+import com.univalle.bubackend.cluster.ClusterEventType;
+import com.univalle.bubackend.repository.SettingRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la configuración vigente en memoria. Se carga una vez y se reemplaza de forma atómica
+ * cuando se crea o edita la configuración en cualquier instancia, en lugar de consultarla en cada petición.
+ */
+@Component
+public class SettingSnapshotHolder {
+
+    private final SettingRepository settingRepository;
+
+    private final AtomicReference<Loaded> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    public SettingSnapshotHolder(SettingRepository settingRepository) {
+        this.settingRepository = settingRepository;
+    }
+
+    public Optional<SettingSnapshot> get() {
+        Loaded loaded = current.get();
+        return loaded != null ? loaded.snapshot() : reload();
+    }
+
+    /**
+     * Vuelve a leer la configuración y reemplaza la copia en memoria. La versión se toma antes de
+     * leer, así entre recargas concurrentes gana la que empezó la lectura más tarde aunque termine antes.
+     */
+    public Optional<SettingSnapshot> reload() {
+        long version = versions.incrementAndGet();
+        Optional<SettingSnapshot> snapshot = settingRepository.findTopByOrderByIdAsc()
+                .map(setting -> new SettingSnapshot(version, setting));
+        Loaded loaded = new Loaded(version, snapshot);
+        return current.updateAndGet(previous -> previous == null || previous.version() < version ? loaded : previous)
+                .snapshot();
+    }
+
+    // Antes que los demás oyentes, para que recalculen con la configuración nueva
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.type() == ClusterEventType.SETTING_CHANGED || event.type() == ClusterEventType.RESYNC) {
+            reload();
+        }
+    }
+
+    private record Loaded(long version, Optional<SettingSnapshot> snapshot) {
+    }
+}
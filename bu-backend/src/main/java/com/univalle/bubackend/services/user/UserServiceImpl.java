@@ -1,5 +1,7 @@
 package com.univalle.bubackend.services.user;
 
+import com.univalle.bubackend.DTOs.CursorSlice;
+import com.univalle.bubackend.DTOs.KeysetCursor;
 import com.univalle.bubackend.DTOs.user.*;
 
 import com.univalle.bubackend.exceptions.report.CSVFieldException;
@@ -410,6 +412,47 @@ public class UserServiceImpl {
         );
     }
 
+    // Listado por cursor: una consulta de columnas y otra para los roles de la página, sin contar el total
+    public CursorSlice<ListUser> listUsers(String filter, String cursor, int size) {
+        Integer beforeId = Optional.ofNullable(KeysetCursor.decode(cursor)).orElse(Integer.MAX_VALUE);
+        int limit = KeysetCursor.size(size);
+        Pageable firstRows = PageRequest.of(0, limit + 1);
+
+        List<ListUserRow> rows = switch (filter.toLowerCase()) {
+            case "beneficiarios" -> userEntityRepository.findBeneficiaryRowsBefore(beforeId, firstRows);
+            case "funcionarios" -> userEntityRepository.findNonStudentRowsBefore(beforeId, firstRows);
+            case "estudiantes" -> userEntityRepository.findStudentRowsBefore(beforeId, firstRows);
+            default -> throw new InvalidFilter("Filtro no válido");
+        };
+
+        CursorSlice<ListUserRow> slice = CursorSlice.of(rows, limit, ListUserRow::id);
+
+        Map<Integer, Set<Role>> roles = new HashMap<>();
+        if (!slice.content().isEmpty()) {
+            List<Integer> ids = slice.content().stream().map(ListUserRow::id).toList();
+            for (Object[] row : userEntityRepository.findRolesByUserIds(ids)) {
+                roles.computeIfAbsent((Integer) row[0], id -> new HashSet<>()).add((Role) row[1]);
+            }
+        }
+
+        List<ListUser> users = slice.content().stream()
+                .map(user -> ListUser.builder()
+                        .id(user.id())
+                        .snackBeneficiary(user.snackBeneficiary())
+                        .lunchBeneficiary(user.lunchBeneficiary())
+                        .roles(roles.getOrDefault(user.id(), Set.of()))
+                        .plan(user.plan())
+                        .email(user.email())
+                        .lastName(user.lastName())
+                        .username(user.username())
+                        .isActive(user.isActive())
+                        .name(user.name())
+                        .build())
+                .toList();
+
+        return new CursorSlice<>(users, slice.nextCursor(), slice.hasNext());
+    }
+
     public void deleteBeneficiaries() {
         List<UserEntity> beneficiaries = userEntityRepository.findByLunchBeneficiaryTrueOrSnackBeneficiaryTrue();
 
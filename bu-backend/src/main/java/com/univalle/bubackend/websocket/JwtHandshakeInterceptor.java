@@ -0,0 +1,64 @@
+package com.univalle.bubackend.websocket;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.univalle.bubackend.security.utils.JwtUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Identifica al usuario de /ws con el mismo JWT de la API. Los navegadores no pueden enviar
+ * cabeceras en el handshake, así que también se acepta como /ws?token=... Sin token la sesión
+ * queda anónima y solo puede escuchar temas públicos; con un token inválido se rechaza.
+ */
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String USERNAME_ATTRIBUTE = "username";
+
+    private static final String TOKEN_PARAMETER = "token";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtUtils jwtUtils;
+
+    public JwtHandshakeInterceptor(JwtUtils jwtUtils) {
+        this.jwtUtils = jwtUtils;
+    }
+
+    @Override
+    public boolean beforeHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                                   @NonNull WebSocketHandler wsHandler, @NonNull Map<String, Object> attributes) {
+        String token = token(request);
+        if (token == null) {
+            return true;
+        }
+
+        try {
+            attributes.put(USERNAME_ATTRIBUTE, jwtUtils.validateToken(token).getSubject());
+            return true;
+        } catch (JWTVerificationException e) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                               @NonNull WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static String token(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return header.substring(BEARER_PREFIX.length());
+        }
+        String parameter = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst(TOKEN_PARAMETER);
+        return parameter == null || parameter.isBlank() ? null : parameter;
+    }
+}
@@ -0,0 +1,152 @@
+package com.univalle.bubackend.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envío asíncrono de mensajes a las sesiones WebSocket, para que quien publica (una petición HTTP,
+ * el planificador de la sala de espera) nunca espere a un cliente. Cada sesión se asigna siempre
+ * al mismo carril, un hilo con una cola acotada, así sus mensajes llegan en orden mientras los
+ * carriles envían en paralelo. Un cliente lento retiene su carril como máximo el tiempo límite de
+ * envío, después se desconecta; si la cola de un carril se llena, los mensajes se descartan y se cuentan.
+ */
+@Slf4j
+@Component
+public class WebSocketFanOut {
+
+    // Tiempo máximo que Tomcat bloquea un envío sobre la sesión nativa
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final ThreadPoolExecutor[] lanes;
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter evicted;
+
+    public WebSocketFanOut(MeterRegistry meterRegistry,
+                           @Value("${websocket.send.time-limit:5000}") int sendTimeLimit,
+                           @Value("${websocket.send.buffer-size-limit:524288}") int bufferSizeLimit,
+                           @Value("${websocket.send.workers:4}") int workers,
+                           @Value("${websocket.send.queue-capacity:1000}") int queueCapacity) {
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.lanes = new ThreadPoolExecutor[Math.max(1, workers)];
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("WebSocketSend-");
+        threadFactory.setDaemon(true);
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity), threadFactory);
+        }
+        this.sent = meterRegistry.counter("websocket.messages.sent");
+        this.dropped = meterRegistry.counter("websocket.messages.dropped");
+        this.evicted = meterRegistry.counter("websocket.sessions.evicted");
+    }
+
+    public WebSocketSession decorate(WebSocketSession session) {
+        if (session instanceof StandardWebSocketSession standard && standard.getNativeSession() != null) {
+            standard.getNativeSession().getUserProperties().put(BLOCKING_SEND_TIMEOUT, (long) sendTimeLimit);
+        }
+        return new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+    }
+
+    public void send(WebSocketSession session, String message) {
+        TextMessage textMessage = new TextMessage(message);
+        submit(laneIndex(session), List.of(session), () -> deliver(session, textMessage));
+    }
+
+    public void sendAll(Collection<WebSocketSession> sessions, String message) {
+        sendAll(sessions, new TextMessage(message));
+    }
+
+    public void sendAll(Collection<WebSocketSession> sessions, WebSocketMessage<?> message) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        List<List<WebSocketSession>> slices = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (WebSocketSession session : sessions) {
+            slices.get(laneIndex(session)).add(session);
+        }
+
+        for (int i = 0; i < lanes.length; i++) {
+            List<WebSocketSession> slice = slices.get(i);
+            if (!slice.isEmpty()) {
+                submit(i, slice, () -> slice.forEach(session -> deliver(session, message)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    private void submit(int lane, List<WebSocketSession> sessions, Runnable task) {
+        try {
+            lanes[lane].execute(task);
+        } catch (RejectedExecutionException e) {
+            dropped.increment(sessions.size());
+            log.debug("Carril de envío {} lleno, {} mensajes descartados", lane, sessions.size());
+        }
+    }
+
+    private int laneIndex(WebSocketSession session) {
+        return Math.floorMod(session.getId().hashCode(), lanes.length);
+    }
+
+    private void deliver(WebSocketSession session, WebSocketMessage<?> message) {
+        if (!session.isOpen()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            session.sendMessage(message);
+            sent.increment();
+        } catch (SessionLimitExceededException e) {
+            // El decorador solo marca el límite: la sesión sigue abierta hasta cerrarla aquí,
+            // y afterConnectionClosed la quita del registro
+            evicted.increment();
+            log.debug("Sesión {} desconectada por superar sus límites de envío: {}", session.getId(), e.getMessage());
+            close(session);
+        } catch (Exception e) {
+            dropped.increment();
+            close(session);
+        }
+    }
+
+    private void close(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception ignored) {
+            // La sesión ya estaba cerrada
+        }
+    }
+}
@@ -1,42 +1,169 @@
 package com.univalle.bubackend.websocket;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univalle.bubackend.websocket.WebSocketSessionRegistry.RegisteredSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 
+@Slf4j
 @Component
 public class WebSocketHandler extends TextWebSocketHandler {
 
-    private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+    // Temas a los que queda suscrita toda sesión nueva, para los clientes que no envían suscripciones
+    private static final List<String> DEFAULT_TOPICS = List.of(WebSocketTopics.AVAILABILITY_LUNCH, WebSocketTopics.AVAILABILITY_SNACK);
+
+    private final WebSocketFanOut fanOut;
+    private final WebSocketSessionRegistry registry;
+    private final ObjectMapper objectMapper;
+    private final long idleTimeout;
+
+    // Último mensaje publicado por tema, se envía al suscribirse sin consultar la base de datos
+    private final Map<String, String> snapshots = new ConcurrentHashMap<>();
+
+    public WebSocketHandler(WebSocketFanOut fanOut,
+                            WebSocketSessionRegistry registry,
+                            ObjectMapper objectMapper,
+                            @Value("${websocket.idle-timeout:90000}") long idleTimeout) {
+        this.fanOut = fanOut;
+        this.registry = registry;
+        this.objectMapper = objectMapper;
+        this.idleTimeout = idleTimeout;
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.add(session);
+        // El usuario viene del JWT validado en el handshake; las sesiones anónimas no tienen canal propio
+        String username = (String) session.getAttributes().get(JwtHandshakeInterceptor.USERNAME_ATTRIBUTE);
+        RegisteredSession registered = registry.register(fanOut.decorate(session), username);
+
+        List<String> topics = new ArrayList<>(DEFAULT_TOPICS);
+        if (registered.getUsername() != null) {
+            topics.add(WebSocketTopics.user(registered.getUsername()));
+        }
+        subscribe(registered, topics);
     }
 
 
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
-        // Aquí puedes manejar los mensajes recibidos del cliente si es necesario
+        RegisteredSession registered = registry.find(session.getId());
+        if (registered == null) {
+            return;
+        }
+        registered.touch();
+
+        try {
+            JsonNode command = objectMapper.readTree(message.getPayload());
+            String action = command.path("action").asText();
+            String topic = command.path("topic").asText();
+
+            if (topic.isBlank()) {
+                return;
+            }
+            if ("subscribe".equals(action)) {
+                if (!WebSocketTopics.canSubscribe(topic, registered.getUsername())) {
+                    log.debug("Suscripción rechazada al tema {} de la sesión {}", topic, session.getId());
+                    return;
+                }
+                subscribe(registered, List.of(topic));
+            } else if ("unsubscribe".equals(action)) {
+                registry.unsubscribe(registered, topic);
+            }
+        } catch (Exception e) {
+            log.debug("Mensaje de WebSocket ignorado: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        RegisteredSession registered = registry.find(session.getId());
+        if (registered != null) {
+            registered.touch();
+        }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        sessions.remove(session);
+        registry.unregister(session.getId());
+    }
+
+    /**
+     * Envía un ping a las sesiones activas y cierra las que no respondieron dentro del tiempo límite.
+     */
+    @Scheduled(fixedDelayString = "${websocket.heartbeat-interval:30000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        List<WebSocketSession> alive = new ArrayList<>();
+
+        registry.forEach(registered -> {
+            if (now - registered.getLastSeen() > idleTimeout) {
+                close(registered.getSession());
+            } else {
+                alive.add(registered.getSession());
+            }
+        });
+
+        fanOut.sendAll(alive, new PingMessage());
+    }
+
+    public void publish(String topic, String message) {
+        publish(List.of(topic), message);
+    }
+
+    public void publish(Collection<String> topics, String message) {
+        fanOut.sendAll(registry.subscribers(topics), message);
+    }
+
+    /**
+     * Guarda el mensaje como el estado actual de los temas, para las sesiones que se suscriban después.
+     */
+    public void updateSnapshot(Collection<String> topics, String message) {
+        topics.forEach(topic -> snapshots.put(topic, message));
     }
 
     public void broadcast(String message) {
-        for (WebSocketSession session : sessions) {
-            try {
-                session.sendMessage(new TextMessage(message));
-            } catch (Exception e) {
-                e.printStackTrace();
+        fanOut.sendAll(registry.all(), message);
+    }
+
+    public void sendToUser(String username, String message) {
+        publish(WebSocketTopics.user(username), message);
+    }
+
+    private void subscribe(RegisteredSession registered, Collection<String> topics) {
+        Set<String> pending = new LinkedHashSet<>();
+        for (String topic : topics) {
+            if (registry.subscribe(registered, topic)) {
+                String snapshot = snapshots.get(topic);
+                if (snapshot != null) {
+                    pending.add(snapshot);
+                }
             }
         }
+        pending.forEach(snapshot -> fanOut.send(registered.getSession(), snapshot));
+    }
+
+    private void close(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception ignored) {
+            // La sesión ya estaba cerrada
+        }
     }
 }
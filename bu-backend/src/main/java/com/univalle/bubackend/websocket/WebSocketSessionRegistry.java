@@ -0,0 +1,137 @@
+package com.univalle.bubackend.websocket;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Registro de sesiones WebSocket repartido en fragmentos por id de sesión, con un índice
+ * de suscriptores por tema. Conectar o desconectar una sesión cuesta O(temas de la sesión)
+ * y cada publicación solo recorre a los suscriptores del tema.
+ */
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final int SHARDS = 16;
+
+    private final List<Map<String, RegisteredSession>> shards = new ArrayList<>(SHARDS);
+    private final Map<String, Set<RegisteredSession>> subscribers = new ConcurrentHashMap<>();
+
+    public WebSocketSessionRegistry() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    public RegisteredSession register(WebSocketSession session, String username) {
+        RegisteredSession registered = new RegisteredSession(session, username);
+        shard(session.getId()).put(session.getId(), registered);
+        return registered;
+    }
+
+    public RegisteredSession unregister(String sessionId) {
+        RegisteredSession registered = shard(sessionId).remove(sessionId);
+        if (registered != null) {
+            registered.topics.forEach(topic -> removeSubscriber(topic, registered));
+        }
+        return registered;
+    }
+
+    public RegisteredSession find(String sessionId) {
+        return shard(sessionId).get(sessionId);
+    }
+
+    public boolean subscribe(RegisteredSession registered, String topic) {
+        if (!registered.topics.add(topic)) {
+            return false;
+        }
+        subscribers.compute(topic, (key, topicSubscribers) -> {
+            Set<RegisteredSession> updated = topicSubscribers == null ? ConcurrentHashMap.newKeySet() : topicSubscribers;
+            updated.add(registered);
+            return updated;
+        });
+        return true;
+    }
+
+    public void unsubscribe(RegisteredSession registered, String topic) {
+        if (registered.topics.remove(topic)) {
+            removeSubscriber(topic, registered);
+        }
+    }
+
+    /**
+     * Sesiones suscritas a cualquiera de los temas, sin repetir.
+     */
+    public Collection<WebSocketSession> subscribers(Collection<String> topics) {
+        if (topics.size() == 1) {
+            Set<RegisteredSession> topicSubscribers = subscribers.get(topics.iterator().next());
+            return topicSubscribers == null ? List.of() : topicSubscribers.stream().map(RegisteredSession::getSession).toList();
+        }
+
+        Set<WebSocketSession> result = new HashSet<>();
+        for (String topic : topics) {
+            Set<RegisteredSession> topicSubscribers = subscribers.get(topic);
+            if (topicSubscribers != null) {
+                topicSubscribers.forEach(registered -> result.add(registered.session));
+            }
+        }
+        return result;
+    }
+
+    public Collection<WebSocketSession> all() {
+        List<WebSocketSession> result = new ArrayList<>();
+        forEach(registered -> result.add(registered.session));
+        return result;
+    }
+
+    public void forEach(Consumer<RegisteredSession> action) {
+        for (Map<String, RegisteredSession> shard : shards) {
+            shard.values().forEach(action);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, RegisteredSession> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private void removeSubscriber(String topic, RegisteredSession registered) {
+        subscribers.computeIfPresent(topic, (key, topicSubscribers) -> {
+            topicSubscribers.remove(registered);
+            return topicSubscribers.isEmpty() ? null : topicSubscribers;
+        });
+    }
+
+    private Map<String, RegisteredSession> shard(String sessionId) {
+        return shards.get(Math.floorMod(sessionId.hashCode(), SHARDS));
+    }
+
+    @Getter
+    public static final class RegisteredSession {
+        private final WebSocketSession session;
+        private final String username;
+        private final Set<String> topics = ConcurrentHashMap.newKeySet();
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        private RegisteredSession(WebSocketSession session, String username) {
+            this.session = session;
+            this.username = username;
+        }
+
+        public void touch() {
+            lastSeen = System.currentTimeMillis();
+        }
+    }
+}
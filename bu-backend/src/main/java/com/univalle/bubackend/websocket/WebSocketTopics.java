@@ -0,0 +1,64 @@
+package com.univalle.bubackend.websocket;
+
+import com.univalle.bubackend.models.TypeAppointment;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Temas a los que se puede suscribir un cliente de /ws enviando
+ * {"action": "subscribe", "topic": "..."} o {"action": "unsubscribe", "topic": "..."}.
+ */
+public final class WebSocketTopics {
+
+    public static final String AVAILABILITY_LUNCH = "availability.lunch";
+    public static final String AVAILABILITY_SNACK = "availability.snack";
+    public static final String MENU = "menu";
+
+    private static final String APPOINTMENTS_PREFIX = "appointments.";
+    private static final String USER_PREFIX = "user.";
+    private static final String REPORT_JOB_PREFIX = "report-jobs.";
+
+    private static final Set<String> PUBLIC_TOPICS = publicTopics();
+
+    private WebSocketTopics() {
+    }
+
+    private static Set<String> publicTopics() {
+        Set<String> topics = new HashSet<>(List.of(AVAILABILITY_LUNCH, AVAILABILITY_SNACK, MENU));
+        for (TypeAppointment typeAppointment : TypeAppointment.values()) {
+            topics.add(appointments(typeAppointment));
+        }
+        return Set.copyOf(topics);
+    }
+
+    public static String appointments(TypeAppointment typeAppointment) {
+        return APPOINTMENTS_PREFIX + typeAppointment.name().toLowerCase();
+    }
+
+    public static String user(String username) {
+        return USER_PREFIX + username;
+    }
+
+    public static String reportJob(String jobId) {
+        return REPORT_JOB_PREFIX + jobId;
+    }
+
+    /**
+     * Temas conocidos que puede escuchar la sesión: los públicos para cualquiera, el canal propio y
+     * el progreso de trabajos de informe solo para sesiones autenticadas. El resto se rechaza.
+     */
+    public static boolean canSubscribe(String topic, String username) {
+        if (PUBLIC_TOPICS.contains(topic)) {
+            return true;
+        }
+        if (username == null) {
+            return false;
+        }
+        if (topic.startsWith(USER_PREFIX)) {
+            return topic.equals(user(username));
+        }
+        return topic.startsWith(REPORT_JOB_PREFIX) && topic.length() > REPORT_JOB_PREFIX.length();
+    }
+}
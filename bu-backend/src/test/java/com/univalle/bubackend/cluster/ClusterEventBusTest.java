@@ -0,0 +1,145 @@
+package com.univalle.bubackend.cluster;
+
+import com.univalle.bubackend.support.PostgresContainerTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Dos instancias de la aplicación sobre la misma base de datos: lo que publica una debe llegarle
+ * a la otra por LISTEN/NOTIFY, y solo si la transacción que lo publicó se confirma.
+ */
+class ClusterEventBusTest {
+
+    private static final BlockingQueue<ClusterEvent> RECEIVED_BY_B = new LinkedBlockingQueue<>();
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = start();
+        nodeB = start(RECEIVED_BY_B);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeA != null) nodeA.close();
+        if (nodeB != null) nodeB.close();
+    }
+
+    @BeforeEach
+    void waitUntilListening() throws InterruptedException {
+        // El LISTEN de cada nodo se abre en su propio hilo; se publica hasta que B empiece a recibir
+        ClusterEventBus bus = nodeA.getBean(ClusterEventBus.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            bus.settingChanged();
+            if (RECEIVED_BY_B.poll(200, TimeUnit.MILLISECONDS) != null) {
+                break;
+            }
+        }
+        Thread.sleep(500);
+        RECEIVED_BY_B.clear();
+    }
+
+    @Test
+    void eventsPublishedOnOneNodeReachTheOther() throws InterruptedException {
+        ClusterEventBus bus = nodeA.getBean(ClusterEventBus.class);
+
+        bus.appointmentsChanged("ENFERMERIA");
+
+        ClusterEvent event = RECEIVED_BY_B.poll(10, TimeUnit.SECONDS);
+        assertThat(event).isNotNull();
+        assertThat(event.type()).isEqualTo(ClusterEventType.APPOINTMENTS_CHANGED);
+        assertThat(event.origin()).isEqualTo(bus.getNodeId());
+        assertThat(event.subject()).isEqualTo("ENFERMERIA");
+    }
+
+    @Test
+    void rolledBackTransactionsDoNotNotify() throws InterruptedException {
+        ClusterEventBus bus = nodeA.getBean(ClusterEventBus.class);
+        TransactionTemplate transaction = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+
+        transaction.executeWithoutResult(status -> {
+            bus.menuChanged();
+            status.setRollbackOnly();
+        });
+        assertThat(RECEIVED_BY_B.poll(2, TimeUnit.SECONDS)).isNull();
+
+        transaction.executeWithoutResult(status -> bus.menuChanged());
+        ClusterEvent event = RECEIVED_BY_B.poll(10, TimeUnit.SECONDS);
+        assertThat(event).isNotNull();
+        assertThat(event.type()).isEqualTo(ClusterEventType.MENU_CHANGED);
+    }
+
+    @Test
+    void ownEventsAreNotDeliveredTwice() throws InterruptedException {
+        BlockingQueue<ClusterEvent> receivedByA = new LinkedBlockingQueue<>();
+        nodeA.addApplicationListener(new ClusterEventCollector(receivedByA));
+
+        nodeA.getBean(ClusterEventBus.class).menuChanged();
+
+        assertThat(receivedByA.poll(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(receivedByA.poll(2, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void reconnectingListenerResyncsLocalState() throws InterruptedException {
+        // Corta las conexiones de LISTEN de los dos nodos; al reconectarse, B se despacha RESYNC
+        new JdbcTemplate(nodeA.getBean(DataSource.class)).queryForList(
+                "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query LIKE 'LISTEN %'");
+
+        ClusterEvent event = RECEIVED_BY_B.poll(30, TimeUnit.SECONDS);
+        while (event != null && event.type() != ClusterEventType.RESYNC) {
+            event = RECEIVED_BY_B.poll(30, TimeUnit.SECONDS);
+        }
+        assertThat(event).isNotNull();
+        assertThat(event.origin()).isEqualTo(nodeB.getBean(ClusterEventBus.class).getNodeId());
+    }
+
+    @Test
+    void channelNamesAreValidated() {
+        assertThatThrownBy(() -> new ClusterEventBus(null, null, null, null, true, "bu_events; DROP TABLE reservation"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return start(null);
+    }
+
+    private static ConfigurableApplicationContext start(BlockingQueue<ClusterEvent> received) {
+        SpringApplicationBuilder builder = PostgresContainerTest.node();
+        if (received != null) {
+            builder.listeners(new ClusterEventCollector(received));
+        }
+        return builder.run();
+    }
+
+    private record ClusterEventCollector(BlockingQueue<ClusterEvent> received) implements ApplicationListener<ApplicationEvent> {
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            if (event instanceof PayloadApplicationEvent<?> payload && payload.getPayload() instanceof ClusterEvent clusterEvent) {
+                received.add(clusterEvent);
+            }
+        }
+    }
+}
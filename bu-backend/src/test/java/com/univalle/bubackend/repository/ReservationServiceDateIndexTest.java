@@ -0,0 +1,132 @@
+package com.univalle.bubackend.repository;
+
+import com.univalle.bubackend.models.UserEntity;
+import com.univalle.bubackend.support.PostgresContainerTest;
+import com.univalle.bubackend.support.SqlCapture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba con EXPLAIN que las consultas de los repositorios por día de servicio usan los índices
+ * compuestos de reservation, y que la migración de service_date funciona sobre una tabla con filas.
+ * El SQL es el que genera Hibernate para cada consulta, tomado con {@link SqlCapture}, y el plan es
+ * el genérico (EXPLAIN (GENERIC_PLAN), PostgreSQL 16) para no depender de los valores. Con una tabla
+ * casi vacía el planificador prefiere el recorrido secuencial, así que se desactiva dentro de la
+ * transacción para ver si el índice es utilizable.
+ */
+class ReservationServiceDateIndexTest extends PostgresContainerTest {
+
+    private static final LocalDate DAY = LocalDate.now();
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private UserEntityRepository userEntityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        user = userEntityRepository.findByUsername("index-tester").orElseGet(() -> userEntityRepository.save(UserEntity.builder()
+                .username("index-tester")
+                .password("contraseña-de-prueba")
+                .name("Prueba")
+                .lastName("Índices")
+                .plan("0000")
+                .build()));
+    }
+
+    @Test
+    void lunchLookupsUseTheLunchIndex() {
+        assertThat(plan(() -> reservationRepository.countLunchReservationsForDay(DAY)))
+                .contains("idx_reservation_day_lunch");
+        assertThat(plan(() -> reservationRepository.findByUserEntityLunchPaidFalse(user, DAY)))
+                .contains("idx_reservation_day_lunch");
+        assertThat(plan(() -> userEntityRepository.findIdsLunchPaid(DAY)))
+                .contains("idx_reservation_day_lunch");
+    }
+
+    @Test
+    void snackLookupsUseTheSnackIndex() {
+        assertThat(plan(() -> reservationRepository.countSnackReservationsForDay(DAY)))
+                .contains("idx_reservation_day_snack");
+        assertThat(plan(() -> reservationRepository.findByUserEntitySnackPaidFalse(user, DAY)))
+                .contains("idx_reservation_day_snack");
+        assertThat(plan(() -> userEntityRepository.findIdsSnackPaid(DAY)))
+                .contains("idx_reservation_day_snack");
+    }
+
+    @Test
+    void dayLookupsUseAnIndexOnServiceDate() {
+        assertThat(plan(() -> reservationRepository.findUnpaidForDay(DAY)))
+                .contains("idx_reservation_day_")
+                .doesNotContain("Seq Scan on reservation");
+        assertThat(plan(() -> userEntityRepository.findIdsByReservationDateRange(DAY.minusDays(7), DAY)))
+                .contains("idx_reservation_day_")
+                .doesNotContain("Seq Scan on reservation");
+    }
+
+    /**
+     * Arranca otra instancia sobre una tabla con reservas y sin la columna, como al actualizar:
+     * Hibernate debe agregarla y la migración llenarla y dejarla NOT NULL.
+     */
+    @Test
+    void migrationAddsFillsAndConstrainsServiceDateOnAPopulatedTable() {
+        jdbcTemplate.execute("ALTER TABLE reservation DROP COLUMN service_date");
+        jdbcTemplate.update("INSERT INTO reservation (data, time, paid, lunch, snack) " +
+                "VALUES (TIMESTAMP '2024-03-05 12:30:00', TIME '12:30:00', false, true, false)");
+
+        try (ConfigurableApplicationContext upgraded = node().run()) {
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation WHERE service_date IS NULL", Integer.class))
+                    .isZero();
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation WHERE service_date = DATE '2024-03-05'", Integer.class))
+                    .isPositive();
+            assertThat(jdbcTemplate.queryForObject("SELECT is_nullable FROM information_schema.columns " +
+                    "WHERE table_name = 'reservation' AND column_name = 'service_date'", String.class))
+                    .isEqualTo("NO");
+            assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'reservation'", String.class))
+                    .contains("idx_reservation_day_lunch", "idx_reservation_day_snack");
+        }
+    }
+
+    private String plan(Runnable query) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            SqlCapture.clear();
+            query.run();
+            List<String> lines = jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered(SqlCapture.first()), String.class);
+            return String.join("\n", lines);
+        });
+    }
+
+    // Los ? de JDBC pasan a $1, $2... para pedir el plan genérico
+    private static String numbered(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+}
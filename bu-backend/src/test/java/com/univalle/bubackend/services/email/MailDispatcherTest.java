@@ -0,0 +1,170 @@
+package com.univalle.bubackend.services.email;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.univalle.bubackend.models.MailOutbox;
+import com.univalle.bubackend.models.MailStatus;
+import com.univalle.bubackend.repository.MailOutboxRepository;
+import com.univalle.bubackend.support.PostgresContainerTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.within;
+
+class MailDispatcherTest extends PostgresContainerTest {
+
+    private static final long BACKOFF = 30_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @RegisterExtension
+    static final GreenMailExtension GREEN_MAIL = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        mailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void sendsTheWholeBatchAndMarksItSent() throws Exception {
+        List<MailOutbox> queued = List.of(enqueue("uno@correounivalle.edu.co"),
+                enqueue("dos@correounivalle.edu.co"),
+                enqueue("tres@correounivalle.edu.co"));
+
+        dispatcher(GREEN_MAIL.getSmtp().getPort()).drain();
+
+        assertThat(GREEN_MAIL.waitForIncomingEmail(5000, 3)).isTrue();
+        MimeMessage[] received = GREEN_MAIL.getReceivedMessages();
+        assertThat(received).extracting(MimeMessage::getSubject).containsOnly("Reserva confirmada");
+        assertThat(received).extracting(message -> message.getAllRecipients()[0].toString())
+                .containsExactlyInAnyOrder("uno@correounivalle.edu.co", "dos@correounivalle.edu.co", "tres@correounivalle.edu.co");
+
+        for (MailOutbox mail : queued) {
+            MailOutbox stored = mailOutboxRepository.findById(mail.getId()).orElseThrow();
+            assertThat(stored.getStatus()).isEqualTo(MailStatus.SENT);
+            assertThat(stored.getSentAt()).isNotNull();
+        }
+    }
+
+    @Test
+    void batchesLargerThanTheLimitAreSentInSeveralRounds() {
+        for (int i = 0; i < 7; i++) {
+            enqueue("lote" + i + "@correounivalle.edu.co");
+        }
+
+        dispatcher(GREEN_MAIL.getSmtp().getPort()).drain();
+
+        assertThat(GREEN_MAIL.waitForIncomingEmail(5000, 7)).isTrue();
+        assertThat(mailOutboxRepository.countByStatusIn(List.of(MailStatus.SENT))).isEqualTo(7);
+    }
+
+    @Test
+    void failedSendsAreRetriedWithExponentialBackoff() {
+        MailOutbox mail = enqueue("reintento@correounivalle.edu.co");
+        MailDispatcher dispatcher = dispatcher(unusedPort());
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.drain();
+        MailOutbox first = mailOutboxRepository.findById(mail.getId()).orElseThrow();
+        assertThat(first.getStatus()).isEqualTo(MailStatus.PENDING);
+        assertThat(first.getAttempts()).isEqualTo(1);
+        assertThat(first.getLastError()).isNotBlank();
+        assertThat(Duration.between(before, first.getNextAttemptAt()).toMillis()).isCloseTo(BACKOFF, within(5_000L));
+
+        // Antes de que venza la espera no se vuelve a intentar
+        dispatcher.drain();
+        assertThat(mailOutboxRepository.findById(mail.getId()).orElseThrow().getAttempts()).isEqualTo(1);
+
+        makeDue(mail.getId());
+        before = LocalDateTime.now();
+        dispatcher.drain();
+        MailOutbox second = mailOutboxRepository.findById(mail.getId()).orElseThrow();
+        assertThat(second.getAttempts()).isEqualTo(2);
+        assertThat(Duration.between(before, second.getNextAttemptAt()).toMillis()).isCloseTo(2 * BACKOFF, within(5_000L));
+
+        // Cuando el servidor vuelve, el reintento sale
+        makeDue(mail.getId());
+        dispatcher(GREEN_MAIL.getSmtp().getPort()).drain();
+        assertThat(GREEN_MAIL.waitForIncomingEmail(5000, 1)).isTrue();
+        assertThat(mailOutboxRepository.findById(mail.getId()).orElseThrow().getStatus()).isEqualTo(MailStatus.SENT);
+    }
+
+    @Test
+    void mailIsMarkedFailedAfterMaxAttempts() {
+        MailOutbox mail = enqueue("fallido@correounivalle.edu.co");
+        MailDispatcher dispatcher = dispatcher(unusedPort());
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            makeDue(mail.getId());
+            dispatcher.drain();
+        }
+
+        MailOutbox failed = mailOutboxRepository.findById(mail.getId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(MailStatus.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+
+        // Un correo fallido ya no se toma aunque su fecha de reintento haya pasado
+        makeDue(mail.getId());
+        assertThatCode(dispatcher::drain).doesNotThrowAnyException();
+        assertThat(mailOutboxRepository.findById(mail.getId()).orElseThrow().getAttempts()).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    private MailDispatcher dispatcher(int smtpPort) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpPort);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+
+        return new MailDispatcher(mailOutboxRepository, mailSender, executor, transactionManager,
+                new SimpleMeterRegistry(), 5, MAX_ATTEMPTS, BACKOFF, 300_000);
+    }
+
+    private MailOutbox enqueue(String recipient) {
+        LocalDateTime now = LocalDateTime.now();
+        return mailOutboxRepository.save(MailOutbox.builder()
+                .recipient(recipient)
+                .subject("Reserva confirmada")
+                .body("Tu reserva quedó registrada.")
+                .nextAttemptAt(now.minusSeconds(1))
+                .createdAt(now)
+                .build());
+    }
+
+    private void makeDue(Long id) {
+        MailOutbox mail = mailOutboxRepository.findById(id).orElseThrow();
+        mail.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        mailOutboxRepository.save(mail);
+    }
+
+    private static int unusedPort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.univalle.bubackend.services.export;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportRequestTest {
+
+    @Test
+    void gzipOnlyForCsvWithPositiveQuality() {
+        assertThat(request("gzip, deflate").gzip()).isTrue();
+        assertThat(request("gzip;q=0.5, br").gzip()).isTrue();
+        assertThat(request("*").gzip()).isTrue();
+
+        assertThat(request("gzip;q=0").gzip()).isFalse();
+        assertThat(request("gzip; q=0.0, *").gzip()).isFalse();
+        assertThat(request("*;q=0").gzip()).isFalse();
+        assertThat(request("deflate, br").gzip()).isFalse();
+        assertThat(request(null).gzip()).isFalse();
+    }
+
+    @Test
+    void excelIsNeverCompressed() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, ExportFormat.XLSX_VALUE);
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        assertThat(ExportRequest.from(headers)).isEqualTo(new ExportRequest(ExportFormat.XLSX, false));
+    }
+
+    private static ExportRequest request(String acceptEncoding) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, ExportFormat.CSV_VALUE);
+        if (acceptEncoding != null) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return ExportRequest.from(headers);
+    }
+}
@@ -0,0 +1,67 @@
+package com.univalle.bubackend.services.export;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenderedReportCacheTest {
+
+    private static final ExportRequest CSV = new ExportRequest(ExportFormat.CSV, false);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void evictedFileSurvivesUntilTheDownloadFinishes() throws Exception {
+        // Cabe un solo informe: el segundo expulsa al primero
+        RenderedReportCache cache = new RenderedReportCache(directory.toString(), 1, new SimpleMeterRegistry());
+
+        ServletRequestAttributes download = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(download);
+        RenderedReportCache.CachedReport first = cache.get("report", 1, "v1", "informe_1", CSV, () -> body("uno"));
+        RequestContextHolder.resetRequestAttributes();
+
+        cache.get("report", 2, "v1", "informe_2", CSV, () -> body("dos"));
+        assertThat(Files.exists(first.path())).isTrue();
+
+        download.requestCompleted();
+        assertThat(Files.exists(first.path())).isFalse();
+    }
+
+    @Test
+    void fileReusedByAnotherKeyIsKeptAfterTheDownload() throws Exception {
+        RenderedReportCache cache = new RenderedReportCache(directory.toString(), 1, new SimpleMeterRegistry());
+
+        ServletRequestAttributes download = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(download);
+        RenderedReportCache.CachedReport first = cache.get("report", 1, "v1", "informe_1", CSV, () -> body("uno"));
+        RequestContextHolder.resetRequestAttributes();
+
+        cache.get("report", 2, "v1", "informe_2", CSV, () -> body("dos"));
+        // Mismo contenido con otra clave: vuelve a usar el archivo reservado
+        cache.get("report", 3, "v1", "informe_3", CSV, () -> body("uno"));
+
+        download.requestCompleted();
+        assertThat(Files.exists(first.path())).isTrue();
+    }
+
+    private static StreamingResponseBody body(String content) {
+        return out -> out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,214 @@
+package com.univalle.bubackend.services.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exporta 100k filas del tamaño de las del informe de enfermería y mide el tiempo y cuánto crece
+ * la memoria en uso. La memoria se mide después de un GC cada 10k filas y cada 4 MB escritos, así que
+ * es lo que el exportador retiene, también mientras escribe el archivo, y no la basura pendiente;
+ * con SXSSF y CSV no debe depender del número de filas. La línea base es el camino anterior
+ * (XSSFWorkbook, autoSizeColumn y ByteArrayOutputStream) y solo se registra, sin límites.
+ * <p>
+ * Tarda varios minutos, por eso no corre con {@code mvn test}; se ejecuta con {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+class ReportExportEngineBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int SAMPLE_EVERY = 10_000;
+    private static final int SAMPLE_BYTES = 4 * 1024 * 1024;
+    private static final String[] HEADER = {"Fecha", "Codigo/CC", "Nombre", "Apellido", "Teléfono", "Plan", "Semestre", "Género", "Diagnóstico", "Conducta"};
+    private static final long MAX_RETAINED = 32L * 1024 * 1024;
+    private static final Duration MAX_DURATION = Duration.ofSeconds(60);
+
+    private ReportExportEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ReportExportEngine(new NoOpTransactionManager());
+    }
+
+    @Test
+    void baselineExcel() throws Exception {
+        long baseline = usedAfterGc();
+        long[] peak = {0};
+        Runnable sample = () -> peak[0] = Math.max(peak[0], usedAfterGc() - baseline);
+
+        CountingOutputStream response = new CountingOutputStream();
+        long start = System.nanoTime();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Informe");
+            Row header = sheet.createRow(0);
+            for (int c = 0; c < HEADER.length; c++) {
+                header.createCell(c).setCellValue(HEADER[c]);
+            }
+            for (int i = 0; i < ROWS; i++) {
+                Row row = sheet.createRow(i + 1);
+                String[] values = row(i);
+                for (int c = 0; c < values.length; c++) {
+                    row.createCell(c).setCellValue(values[c]);
+                }
+                if ((i + 1) % SAMPLE_EVERY == 0) {
+                    sample.run();
+                }
+            }
+            for (int c = 0; c < HEADER.length; c++) {
+                sheet.autoSizeColumn(c);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(new SamplingOutputStream(out, sample));
+            response.write(out.toByteArray());
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        log.info("{} filas en XLSX sin streaming (línea base): {} ms, {} KB escritos, {} KB retenidos como máximo",
+                ROWS, elapsed.toMillis(), response.count / 1024, peak[0] / 1024);
+
+        assertThat(response.count).isPositive();
+    }
+
+    @Test
+    void excel() throws Exception {
+        measure(new ExportRequest(ExportFormat.XLSX, false));
+    }
+
+    @Test
+    void csv() throws Exception {
+        measure(new ExportRequest(ExportFormat.CSV, false));
+    }
+
+    @Test
+    void gzippedCsv() throws Exception {
+        measure(new ExportRequest(ExportFormat.CSV, true));
+    }
+
+    private void measure(ExportRequest export) throws Exception {
+        long baseline = usedAfterGc();
+        long[] peak = {0};
+        Runnable sample = () -> peak[0] = Math.max(peak[0], usedAfterGc() - baseline);
+
+        StreamingResponseBody body = engine.stream(export, "Informe", new int[]{14, 16, 25, 25, 14, 30, 10, 12, 30, 50}, sheet -> {
+            sheet.header((Object[]) HEADER);
+            for (int i = 0; i < ROWS; i++) {
+                sheet.row((Object[]) row(i));
+                if ((i + 1) % SAMPLE_EVERY == 0) {
+                    sample.run();
+                }
+            }
+        });
+
+        // Con SXSSF el archivo se arma al final, al escribir; se muestrea también durante esa escritura
+        CountingOutputStream out = new CountingOutputStream();
+        long start = System.nanoTime();
+        body.writeTo(new SamplingOutputStream(out, sample));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        log.info("{} filas en {}{}: {} ms, {} KB escritos, {} KB retenidos como máximo", ROWS, export.format(),
+                export.gzip() ? " (gzip)" : "", elapsed.toMillis(), out.count / 1024, peak[0] / 1024);
+
+        assertThat(out.count).isPositive();
+        assertThat(peak[0]).isLessThan(MAX_RETAINED);
+        assertThat(elapsed).isLessThan(MAX_DURATION);
+    }
+
+    private static String[] row(int i) {
+        return new String[]{LocalDate.of(2024, 1, 1).plusDays(i % 365).toString(), String.valueOf(2_000_000 + i),
+                "Nombre " + i, "Apellido " + i, String.valueOf(3_000_000_000L + i), "Ingeniería de Sistemas",
+                String.valueOf(i % 10 + 1), i % 2 == 0 ? "FEMENINO" : "MASCULINO", "Dolor de cabeza",
+                "Se entrega acetaminofén y se recomienda reposo"};
+    }
+
+    private static long usedAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static class SamplingOutputStream extends FilterOutputStream {
+
+        private final Runnable sample;
+        private long sinceSample;
+
+        SamplingOutputStream(OutputStream out, Runnable sample) {
+            super(out);
+            this.sample = sample;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written(len);
+        }
+
+        private void written(int len) {
+            sinceSample += len;
+            if (sinceSample >= SAMPLE_BYTES) {
+                sinceSample = 0;
+                sample.run();
+            }
+        }
+    }
+
+    // El motor abre una transacción de solo lectura; aquí no hay base de datos detrás
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
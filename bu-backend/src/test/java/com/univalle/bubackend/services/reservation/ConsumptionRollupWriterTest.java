@@ -0,0 +1,164 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.models.Reservation;
+import com.univalle.bubackend.models.UserEntity;
+import com.univalle.bubackend.repository.ReservationRepository;
+import com.univalle.bubackend.repository.UserEntityRepository;
+import com.univalle.bubackend.support.PostgresContainerTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsumptionRollupWriterTest extends PostgresContainerTest {
+
+    private static final AtomicInteger DAYS = new AtomicInteger();
+
+    @Autowired
+    private ConsumptionRollupWriter consumptionRollupWriter;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private UserEntityRepository userEntityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private UserEntity user;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        // Cada prueba usa su propio día para no compartir grupos con las demás
+        day = LocalDate.now().plusYears(2).plusDays(DAYS.incrementAndGet());
+        user = userEntityRepository.findByUsername("rollup-tester").orElseGet(() -> userEntityRepository.save(UserEntity.builder()
+                .username("rollup-tester")
+                .password("contraseña-de-prueba")
+                .name("Prueba")
+                .lastName("Consumo")
+                .plan("0000")
+                .build()));
+    }
+
+    @Test
+    void countsAreWrittenByTheFlushNotByTheReservation() {
+        Integer id = transaction.execute(status -> {
+            Reservation reservation = reserve(true, true);
+            consumptionRollupWriter.reserved(reservation.getId());
+            // Dentro de la transacción de la reserva no se toca consumption_rollup
+            assertThat(rollup("LUNCH")).isEmpty();
+            return reservation.getId();
+        });
+        transaction.executeWithoutResult(status -> {
+            reservationRepository.updatePaid(id);
+            consumptionRollupWriter.paid(List.of(id));
+        });
+
+        consumptionRollupWriter.flush();
+
+        assertThat(rollup("LUNCH")).containsExactly(1, 0, 1);
+        assertThat(rollup("SNACK")).containsExactly(1, 0, 1);
+    }
+
+    @Test
+    void rolledBackReservationsAreNotCounted() {
+        transaction.executeWithoutResult(status -> {
+            Reservation reservation = reserve(true, false);
+            consumptionRollupWriter.reserved(reservation.getId());
+            status.setRollbackOnly();
+        });
+
+        consumptionRollupWriter.flush();
+
+        assertThat(rollup("LUNCH")).isEmpty();
+    }
+
+    @Test
+    void flushesAddToExistingGroups() {
+        for (int i = 0; i < 3; i++) {
+            transaction.executeWithoutResult(status -> consumptionRollupWriter.reserved(reserve(true, false).getId()));
+            consumptionRollupWriter.flush();
+        }
+        transaction.executeWithoutResult(status -> {
+            Reservation reservation = reserve(true, false);
+            consumptionRollupWriter.reserved(reservation.getId());
+            consumptionRollupWriter.cancelled(reservation.getId());
+            reservationRepository.delete(reservation);
+        });
+        consumptionRollupWriter.flush();
+
+        assertThat(rollup("LUNCH")).containsExactly(4, 1, 0);
+    }
+
+    @Test
+    void backfillAfterAMidDayStartCountsEachReservationOnce() {
+        ConsumptionRollupWriter starting = new ConsumptionRollupWriter(namedJdbcTemplate, transactionManager);
+        jdbcTemplate.update("DELETE FROM consumption_rollup");
+
+        // Confirmadas antes de que termine el arranque: el historial ya las ve
+        Integer paidId = transaction.execute(status -> {
+            Reservation reservation = reserve(true, false);
+            starting.reserved(reservation.getId());
+            return reservation.getId();
+        });
+        transaction.executeWithoutResult(status -> {
+            reservationRepository.updatePaid(paidId);
+            starting.paid(List.of(paidId));
+        });
+        transaction.executeWithoutResult(status -> {
+            Reservation reservation = reserve(true, false);
+            starting.reserved(reservation.getId());
+            starting.cancelled(reservation.getId());
+            reservationRepository.delete(reservation);
+        });
+
+        // El volcado espera al backfill
+        starting.flush();
+        assertThat(rollup("LUNCH")).isEmpty();
+
+        starting.backfill();
+        transaction.executeWithoutResult(status -> starting.reserved(reserve(true, false).getId()));
+        starting.flush();
+
+        // La reserva cancelada antes del backfill ya no existe: solo queda su cancelación
+        assertThat(rollup("LUNCH")).containsExactly(2, 1, 1);
+    }
+
+    private Reservation reserve(boolean lunch, boolean snack) {
+        return reservationRepository.save(Reservation.builder()
+                .userEntity(user)
+                .lunch(lunch)
+                .snack(snack)
+                .data(day.atTime(LocalTime.NOON))
+                .time(LocalTime.NOON)
+                .serviceDate(day)
+                .paid(false)
+                .build());
+    }
+
+    // reserved, cancelled, paid del grupo del día de la prueba
+    private List<Integer> rollup(String meal) {
+        return jdbcTemplate.query("SELECT reserved, cancelled, paid FROM consumption_rollup WHERE service_date = ? AND meal = ?",
+                rs -> rs.next() ? List.of(rs.getInt(1), rs.getInt(2), rs.getInt(3)) : List.of(), day, meal);
+    }
+}
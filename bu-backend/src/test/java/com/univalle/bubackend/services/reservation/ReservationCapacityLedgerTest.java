@@ -0,0 +1,81 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.cluster.ClusterEventBus;
+import com.univalle.bubackend.models.Setting;
+import com.univalle.bubackend.repository.ReservationRepository;
+import com.univalle.bubackend.services.setting.SettingSnapshot;
+import com.univalle.bubackend.services.setting.SettingSnapshotHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReservationCapacityLedgerTest {
+
+    private final ReservationRepository reservationRepository = mock(ReservationRepository.class);
+    private final SettingSnapshotHolder settingHolder = mock(SettingSnapshotHolder.class);
+
+    // Reservas de almuerzo confirmadas en la "base de datos"
+    private final AtomicInteger committedLunches = new AtomicInteger();
+
+    private ReservationCapacityLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        when(settingHolder.get()).thenReturn(Optional.of(new SettingSnapshot(1, Setting.builder()
+                .numLunch(10)
+                .numSnack(10)
+                .startBeneficiaryLunch(LocalTime.of(10, 0))
+                .endBeneficiaryLunch(LocalTime.of(11, 0))
+                .startLunch(LocalTime.of(11, 0))
+                .endLunch(LocalTime.of(14, 0))
+                .startBeneficiarySnack(LocalTime.of(14, 0))
+                .endBeneficiarySnack(LocalTime.of(15, 0))
+                .startSnack(LocalTime.of(15, 0))
+                .endSnack(LocalTime.of(17, 0))
+                .build())));
+        when(reservationRepository.countLunchReservationsForDay(any(LocalDate.class)))
+                .thenAnswer(invocation -> committedLunches.get());
+        when(reservationRepository.countSnackReservationsForDay(any(LocalDate.class))).thenReturn(0);
+        ledger = new ReservationCapacityLedger(reservationRepository, settingHolder, mock(ClusterEventBus.class));
+    }
+
+    @Test
+    void reconcileKeepsReservationsCommittedWhileCounting() {
+        assertThat(ledger.remainingLunch()).isEqualTo(10);
+
+        // Una reserva se toma y se confirma mientras la conciliación consulta la base de datos
+        AtomicInteger counts = new AtomicInteger();
+        when(reservationRepository.countSnackReservationsForDay(any(LocalDate.class))).thenAnswer(invocation -> {
+            if (counts.getAndIncrement() == 0) {
+                ledger.acquire(true, false);
+                committedLunches.incrementAndGet();
+            }
+            return 0;
+        });
+
+        ledger.reconcile();
+
+        assertThat(ledger.remainingLunch()).isEqualTo(9);
+        assertThat(ledger.remainingSnack()).isEqualTo(10);
+    }
+
+    @Test
+    void reconcileCorrectsDriftFromTheDatabase() {
+        assertThat(ledger.remainingLunch()).isEqualTo(10);
+
+        // Reservas que llegaron a la base de datos sin pasar por este nodo ni por el bus
+        committedLunches.set(4);
+        ledger.reconcile();
+
+        assertThat(ledger.remainingLunch()).isEqualTo(6);
+    }
+}
@@ -0,0 +1,210 @@
+package com.univalle.bubackend.services.reservation;
+
+import com.univalle.bubackend.exceptions.reservation.NoSlotsAvailableException;
+import com.univalle.bubackend.models.Reservation;
+import com.univalle.bubackend.models.Setting;
+import com.univalle.bubackend.models.UserEntity;
+import com.univalle.bubackend.repository.ReservationRepository;
+import com.univalle.bubackend.repository.UserEntityRepository;
+import com.univalle.bubackend.services.setting.SettingSnapshot;
+import com.univalle.bubackend.support.PostgresContainerTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationSlotAllocatorTest extends PostgresContainerTest {
+
+    private static final AtomicInteger DAYS = new AtomicInteger();
+
+    @Autowired
+    private ReservationSlotAllocator slotAllocator;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private UserEntityRepository userEntityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private UserEntity user;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        // Cada prueba usa su propio día para no compartir fichas con las demás
+        day = LocalDate.now().plusYears(1).plusDays(DAYS.incrementAndGet());
+        user = userEntityRepository.findByUsername("slot-tester").orElseGet(() -> userEntityRepository.save(UserEntity.builder()
+                .username("slot-tester")
+                .password("contraseña-de-prueba")
+                .name("Prueba")
+                .lastName("Cupos")
+                .plan("0000")
+                .build()));
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int capacity = 50;
+        int threads = 500;
+        SettingSnapshot setting = setting(capacity);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    transaction.executeWithoutResult(status -> slotAllocator.claim(reserve(), setting));
+                    accepted.incrementAndGet();
+                } catch (NoSlotsAvailableException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(accepted.get()).isEqualTo(capacity);
+        assertThat(rejected.get()).isEqualTo(threads - capacity);
+        assertThat(reservationRepository.countLunchReservationsForDay(day)).isEqualTo(capacity);
+        assertThat(freeSlots()).isZero();
+    }
+
+    @Test
+    void firstAllocationDiscountsReservationsMadeWithoutSlots() {
+        // Reservas anteriores a las fichas: existen en la tabla pero no reclamaron ninguna
+        for (int i = 0; i < 20; i++) {
+            transaction.executeWithoutResult(status -> reserve());
+        }
+
+        SettingSnapshot setting = setting(50);
+        int accepted = claimUntilRejected(setting);
+
+        assertThat(accepted).isEqualTo(30);
+        assertThat(reservationRepository.countLunchReservationsForDay(day)).isEqualTo(50);
+    }
+
+    @Test
+    void loweringCapacityTrimsAgainstClaimedSlots() {
+        assertThat(claimUntilRejected(setting(60))).isEqualTo(60);
+
+        // Con 60 fichas tomadas y el cupo bajado a 40 no debe quedar ninguna libre
+        assertThat(claimUntilRejected(setting(40))).isZero();
+        assertThat(freeSlots()).isZero();
+
+        // Al subir el cupo solo se liberan las que faltan hasta el nuevo total
+        assertThat(claimUntilRejected(setting(70))).isEqualTo(10);
+    }
+
+    @Test
+    void preallocatedSlotsAreClaimedWithoutTheAllocationLock() throws Exception {
+        SettingSnapshot setting = setting(5);
+        slotAllocator.preallocate(day, setting);
+        assertThat(freeSlots()).isEqualTo(5);
+
+        // Otra transacción retiene el bloqueo de generación del día mientras se reclama
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> holder = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(CAST(CAST(? AS date) AS text) || 'LUNCH'))", day);
+            locked.countDown();
+            try {
+                release.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        try {
+            assertThat(locked.await(30, TimeUnit.SECONDS)).isTrue();
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '2s'");
+                slotAllocator.claim(reserve(), setting);
+            });
+        } finally {
+            release.countDown();
+            holder.get(1, TimeUnit.MINUTES);
+            executor.shutdown();
+        }
+
+        assertThat(freeSlots()).isEqualTo(4);
+    }
+
+    private int claimUntilRejected(SettingSnapshot setting) {
+        int accepted = 0;
+        while (true) {
+            try {
+                transaction.executeWithoutResult(status -> slotAllocator.claim(reserve(), setting));
+                accepted++;
+            } catch (NoSlotsAvailableException e) {
+                return accepted;
+            }
+        }
+    }
+
+    private Reservation reserve() {
+        return reservationRepository.save(Reservation.builder()
+                .data(LocalDateTime.of(day, LocalTime.NOON))
+                .time(LocalTime.NOON)
+                .serviceDate(day)
+                .lunch(true)
+                .userEntity(user)
+                .build());
+    }
+
+    private int freeSlots() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation_slot " +
+                "WHERE service_day = ? AND meal_type = 'LUNCH' AND reservation_id IS NULL", Integer.class, day);
+    }
+
+    private SettingSnapshot setting(int lunches) {
+        return new SettingSnapshot(1, Setting.builder()
+                .startSemester(day.minusMonths(1))
+                .endSemester(day.plusMonths(1))
+                .numLunch(lunches)
+                .numSnack(0)
+                .startBeneficiaryLunch(LocalTime.of(10, 0))
+                .endBeneficiaryLunch(LocalTime.of(11, 0))
+                .startLunch(LocalTime.of(11, 0))
+                .endLunch(LocalTime.of(14, 0))
+                .startBeneficiarySnack(LocalTime.of(14, 0))
+                .endBeneficiarySnack(LocalTime.of(15, 0))
+                .startSnack(LocalTime.of(15, 0))
+                .endSnack(LocalTime.of(17, 0))
+                .build());
+    }
+}
@@ -0,0 +1,45 @@
+package com.univalle.bubackend.support;
+
+import com.univalle.bubackend.BuBackendApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Base para las pruebas que necesitan PostgreSQL real (SKIP LOCKED, LISTEN/NOTIFY, EXPLAIN).
+ * El contenedor se inicia una sola vez y lo comparten todas las clases que heredan de esta,
+ * igual que el contexto de Spring que las pruebas reutilizan. El sondeo de la cola de correos
+ * se aleja para que no envíe por el SMTP real lo que dejan las pruebas, y el SQL que genera
+ * Hibernate queda en {@link SqlCapture}.
+ */
+@SpringBootTest(properties = {PostgresContainerTest.MAIL_OUTBOX_OFF, PostgresContainerTest.SQL_CAPTURE})
+public abstract class PostgresContainerTest {
+
+    public static final String MAIL_OUTBOX_OFF = "mail.outbox.poll-interval=3600000";
+    public static final String SQL_CAPTURE =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.univalle.bubackend.support.SqlCapture";
+
+    @ServiceConnection
+    public static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    /**
+     * Otra instancia de la aplicación sobre el mismo contenedor y con las mismas propiedades de
+     * prueba, para las pruebas que necesitan varios nodos o un arranque sobre un esquema dado.
+     */
+    public static SpringApplicationBuilder node(String... properties) {
+        return new SpringApplicationBuilder(BuBackendApplication.class)
+                .properties(
+                        MAIL_OUTBOX_OFF,
+                        SQL_CAPTURE,
+                        "server.port=0",
+                        "spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                        "spring.datasource.username=" + POSTGRES.getUsername(),
+                        "spring.datasource.password=" + POSTGRES.getPassword())
+                .properties(properties);
+    }
+}
@@ -0,0 +1,36 @@
+package com.univalle.bubackend.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guarda el SQL que Hibernate genera en el hilo actual, para que las pruebas puedan pedir el
+ * plan de las consultas reales de los repositorios y no de una copia escrita a mano.
+ */
+public class SqlCapture implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * Primera sentencia desde el último {@link #clear()}.
+     */
+    public static String first() {
+        List<String> statements = STATEMENTS.get();
+        if (statements.isEmpty()) {
+            throw new IllegalStateException("Hibernate no ejecutó ninguna sentencia");
+        }
+        return statements.get(0);
+    }
+}